@@ -24,13 +24,13 @@ public class CurrencyFillerBean {
     @PostConstruct
     public void init() {
         List<Currency> currencies = new ArrayList<>();
-        currencies.add(new Currency("BTC", true));
-        currencies.add(new Currency("ETH", true));
-        currencies.add(new Currency("CLAM", true));
-        currencies.add(new Currency("GLX", true));
-        currencies.add(new Currency("USD", false));
-        currencies.add(new Currency("EUR", false));
-        currencies.add(new Currency("ARS", false));
+        currencies.add(new Currency("BTC", true, 8));
+        currencies.add(new Currency("ETH", true, 8));
+        currencies.add(new Currency("CLAM", true, 8));
+        currencies.add(new Currency("GLX", true, 8));
+        currencies.add(new Currency("USD", false, 2));
+        currencies.add(new Currency("EUR", false, 2));
+        currencies.add(new Currency("ARS", false, 2));
         currencyService.saveAll(currencies);
     }
 }
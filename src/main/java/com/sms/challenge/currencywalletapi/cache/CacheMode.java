@@ -0,0 +1,19 @@
+package com.sms.challenge.currencywalletapi.cache;
+
+/**
+ * The enum Cache mode.
+ */
+public enum CacheMode {
+    /**
+     * In-process cache only, not shared with other members.
+     */
+    L1,
+    /**
+     * Hazelcast cache only.
+     */
+    L2,
+    /**
+     * In-process cache in front of the Hazelcast cache.
+     */
+    BOTH
+}
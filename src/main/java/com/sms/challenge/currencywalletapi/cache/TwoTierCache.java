@@ -0,0 +1,190 @@
+package com.sms.challenge.currencywalletapi.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The type Two tier cache.
+ * <p>
+ * A bounded in-process L1 in front of a shared L2. Reads try L1 first and promote L2 hits into it; writes and
+ * evictions go to L2 first, then L1. Changes made by other members reach L1 through {@link #invalidateLocal(Object)}
+ * and {@link #invalidateLocalAll()}, driven by L2 entry listeners. Either tier may be absent.
+ */
+public class TwoTierCache implements Cache {
+
+    private final String name;
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> l1;
+
+    private final Cache l2;
+
+    private final AtomicLong l1Hits = new AtomicLong();
+    private final AtomicLong l2Hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Instantiates a new Two tier cache.
+     *
+     * @param name the name
+     * @param l1   the in-process cache, null for L2 only
+     * @param l2   the shared cache, null for L1 only
+     */
+    public TwoTierCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> l1, Cache l2) {
+        this.name = name;
+        this.l1 = l1;
+        this.l2 = l2;
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this.l2 != null ? this.l2.getNativeCache() : this.l1;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        if (this.l1 != null) {
+            Object value = this.l1.getIfPresent(key);
+            if (value != null) {
+                this.l1Hits.incrementAndGet();
+                return new SimpleValueWrapper(value);
+            }
+        }
+        ValueWrapper wrapper = this.l2 == null ? null : this.l2.get(key);
+        if (wrapper == null) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+        this.l2Hits.incrementAndGet();
+        if (this.l1 != null && wrapper.get() != null) {
+            this.l1.put(key, wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = this.get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = this.get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        this.put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (this.l2 != null) {
+            this.l2.put(key, value);
+        }
+        if (this.l1 != null && value != null) {
+            this.l1.put(key, value);
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing;
+        if (this.l2 != null) {
+            existing = this.l2.putIfAbsent(key, value);
+        } else {
+            Object previous = value == null ? this.l1.getIfPresent(key) : this.l1.asMap().putIfAbsent(key, value);
+            existing = previous == null ? null : new SimpleValueWrapper(previous);
+        }
+        if (this.l1 != null) {
+            Object current = existing == null ? value : existing.get();
+            if (current != null) {
+                this.l1.put(key, current);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        if (this.l2 != null) {
+            this.l2.evict(key);
+        }
+        this.invalidateLocal(key);
+    }
+
+    @Override
+    public void clear() {
+        if (this.l2 != null) {
+            this.l2.clear();
+        }
+        this.invalidateLocalAll();
+    }
+
+    /**
+     * Invalidate an L1 entry.
+     *
+     * @param key the key
+     */
+    public void invalidateLocal(Object key) {
+        if (this.l1 != null) {
+            this.l1.invalidate(key);
+        }
+    }
+
+    /**
+     * Invalidate all L1 entries.
+     */
+    public void invalidateLocalAll() {
+        if (this.l1 != null) {
+            this.l1.invalidateAll();
+        }
+    }
+
+    /**
+     * Gets the number of reads served by L1.
+     *
+     * @return the L1 hits
+     */
+    public long getL1Hits() {
+        return this.l1Hits.get();
+    }
+
+    /**
+     * Gets the number of reads served by L2.
+     *
+     * @return the L2 hits
+     */
+    public long getL2Hits() {
+        return this.l2Hits.get();
+    }
+
+    /**
+     * Gets the number of reads missing both tiers.
+     *
+     * @return the misses
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+}
@@ -0,0 +1,131 @@
+package com.sms.challenge.currencywalletapi.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hazelcast.core.EntryEvent;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.MapEvent;
+import com.hazelcast.map.listener.EntryEvictedListener;
+import com.hazelcast.map.listener.EntryExpiredListener;
+import com.hazelcast.map.listener.EntryRemovedListener;
+import com.hazelcast.map.listener.EntryUpdatedListener;
+import com.hazelcast.map.listener.MapClearedListener;
+import com.hazelcast.map.listener.MapEvictedListener;
+import com.hazelcast.spring.cache.HazelcastCacheManager;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The type Two tier cache manager.
+ * <p>
+ * Builds a {@link TwoTierCache} per cache name: a bounded Caffeine L1 with size and time to live eviction, in front of
+ * the Hazelcast map of the same name as L2, according to the {@link CacheMode} of the cache. When both tiers are used,
+ * an entry listener on the map invalidates L1 whenever another member updates or removes an entry, or the entry
+ * expires or is evicted from L2.
+ */
+public class TwoTierCacheManager implements CacheManager {
+
+    private final HazelcastInstance hazelcastInstance;
+
+    private final HazelcastCacheManager l2Manager;
+
+    private final Function<String, CacheMode> modes;
+
+    private final long l1MaxSize;
+
+    private final Function<String, Duration> l1TimeToLive;
+
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Instantiates a new Two tier cache manager.
+     *
+     * @param hazelcastInstance the hazelcast instance
+     * @param modes             the mode of each cache
+     * @param l1MaxSize         the maximum number of L1 entries per cache
+     * @param l1TimeToLive      the L1 time to live of each cache
+     */
+    public TwoTierCacheManager(HazelcastInstance hazelcastInstance, Function<String, CacheMode> modes, long l1MaxSize,
+                               Function<String, Duration> l1TimeToLive) {
+        this.hazelcastInstance = hazelcastInstance;
+        this.l2Manager = new HazelcastCacheManager(hazelcastInstance);
+        this.modes = modes;
+        this.l1MaxSize = l1MaxSize;
+        this.l1TimeToLive = l1TimeToLive;
+    }
+
+    @Override
+    public TwoTierCache getCache(String name) {
+        return this.caches.computeIfAbsent(name, this::create);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(this.caches.keySet());
+    }
+
+    private TwoTierCache create(String name) {
+        CacheMode mode = this.modes.apply(name);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> l1 = mode == CacheMode.L2 ? null : Caffeine.newBuilder()
+                .maximumSize(this.l1MaxSize)
+                .expireAfterWrite(this.l1TimeToLive.apply(name))
+                .build();
+        Cache l2 = mode == CacheMode.L1 ? null : this.l2Manager.getCache(name);
+        TwoTierCache cache = new TwoTierCache(name, l1, l2);
+        if (mode == CacheMode.BOTH) {
+            this.hazelcastInstance.getMap(name).addEntryListener(new Invalidation(cache), false);
+        }
+        return cache;
+    }
+
+    private static final class Invalidation implements EntryUpdatedListener<Object, Object>, EntryRemovedListener<Object, Object>,
+            EntryEvictedListener<Object, Object>, EntryExpiredListener<Object, Object>, MapClearedListener, MapEvictedListener {
+
+        private final TwoTierCache cache;
+
+        private Invalidation(TwoTierCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void entryUpdated(EntryEvent<Object, Object> event) {
+            // Local writes already updated L1
+            if (!event.getMember().localMember()) {
+                this.cache.invalidateLocal(event.getKey());
+            }
+        }
+
+        @Override
+        public void entryRemoved(EntryEvent<Object, Object> event) {
+            if (!event.getMember().localMember()) {
+                this.cache.invalidateLocal(event.getKey());
+            }
+        }
+
+        @Override
+        public void entryEvicted(EntryEvent<Object, Object> event) {
+            this.cache.invalidateLocal(event.getKey());
+        }
+
+        @Override
+        public void entryExpired(EntryEvent<Object, Object> event) {
+            this.cache.invalidateLocal(event.getKey());
+        }
+
+        @Override
+        public void mapCleared(MapEvent event) {
+            this.cache.invalidateLocalAll();
+        }
+
+        @Override
+        public void mapEvicted(MapEvent event) {
+            this.cache.invalidateLocalAll();
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.sms.challenge.currencywalletapi.config;
 
+import com.sms.challenge.currencywalletapi.cache.CacheMode;
+import com.sms.challenge.currencywalletapi.service.WalletLockMode;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * The type App config.
  */
@@ -14,4 +21,54 @@ public class AppConfig {
 
     private String cryptoCompareApiBaseUrl;
     private Double priceTolerance;
+    private boolean priceRefreshEnabled = true;
+    private long priceRefreshIntervalMs = 5000;
+    private long priceMaxStalenessMs = 10000;
+    private long priceBatchWindowMs = 3;
+    private int priceBatchMaxSize = 32;
+    private int priceCircuitWindowSize = 20;
+    private int priceCircuitMinimumCalls = 10;
+    private double priceCircuitFailureRateThreshold = 0.5;
+    private double priceCircuitSlowCallRateThreshold = 0.8;
+    private long priceCircuitSlowCallMs = 800;
+    private long priceCircuitOpenMs = 5000;
+    private String priceProvider = "cryptocompare";
+    private String priceSecondaryProvider;
+    private String priceProviderFile = "classpath:prices.json";
+    private boolean priceHedgeEnabled = false;
+    private double priceHedgePercentile = 0.95;
+    private long priceHedgeMinDelayMs = 50;
+    private int priceHedgeWindowSize = 200;
+    private String priceRecordFile;
+    private int priceRecordQueueCapacity = 10000;
+    private String priceReplayFile = "price-tape.bin";
+    private double priceReplayTimeCompression = 1.0;
+    private String priceReplayLatencyMode = "recorded";
+    private long priceReplayLatencyMs = 20;
+    private long priceReplaySeed = 42;
+    private boolean nearCacheEnabled = true;
+    private int nearCacheMaxSize = 10000;
+    private Map<String, CacheMode> cacheModes = new HashMap<>();
+    private long l1CacheMaxSize = 1000;
+    private long l1CacheTtlSeconds = 5;
+    private int walletCacheTtlSeconds = 300;
+    private WalletLockMode walletLockMode = WalletLockMode.PESSIMISTIC;
+    private String walletLockManager = "database";
+    private int walletLockStripes = 1024;
+    private long walletLockTimeoutMs = 5000;
+    private int walletRetryMaxAttempts = 5;
+    private long walletRetryBaseDelayMs = 10;
+    private long walletRetryMaxDelayMs = 200;
+    private Set<Long> walletCombineIds = new HashSet<>();
+    private int walletCombineMaxBatchSize = 100;
+    private int walletCombineThreads = 2;
+    private int walletBatchMaxOperations = 100;
+    private int operationQueuePartitions = 4;
+    private int operationQueueCapacity = 1000;
+    private long operationPollMaxWaitMs = 30000;
+    private long operationRetentionMs = 300000;
+    private int idempotencyTtlSeconds = 86400;
+    private long idempotencyWaitMs = 5000;
+    private long idempotencyLeaseMs = 30000;
+    private long idempotencyCleanupIntervalMs = 60000;
 }
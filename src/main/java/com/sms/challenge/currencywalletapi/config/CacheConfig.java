@@ -1,38 +1,85 @@
 package com.sms.challenge.currencywalletapi.config;
 
 import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
 import com.hazelcast.config.JoinConfig;
 import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.config.NearCacheConfig;
 import com.hazelcast.config.NetworkConfig;
 import com.hazelcast.core.Hazelcast;
-import com.hazelcast.spring.cache.HazelcastCacheManager;
-import org.springframework.cache.CacheManager;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.nearcache.NearCacheStats;
+import com.sms.challenge.currencywalletapi.cache.CacheMode;
+import com.sms.challenge.currencywalletapi.cache.TwoTierCache;
+import com.sms.challenge.currencywalletapi.cache.TwoTierCacheManager;
+import com.sms.challenge.currencywalletapi.entity.PriceSerializableFactory;
+import com.sms.challenge.currencywalletapi.service.IdempotencyService;
+import com.sms.challenge.currencywalletapi.service.WalletReadService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
 /**
  * The type Cache config.
+ * <p>
+ * Each cache is served by a {@link TwoTierCacheManager}: an in-process L1, the Hazelcast map of the same name as L2,
+ * or both, according to {@code config.cache-modes.<cache>} (both by default). The L1 time to live never exceeds the
+ * time to live of the map. The {@value WalletReadService#CACHE_WALLETS} read model map and the
+ * {@value IdempotencyService#CACHE_IDEMPOTENCY_KEYS} map are used directly, not through the cache manager.
  */
 @Configuration
 public class CacheConfig {
 
     /**
-     * Cache manager cache manager.
+     * The cache names and their time to live in seconds.
+     */
+    private static final String[] CACHES = {"currencies", "currency", "conversion"};
+    private static final int[] CACHE_TTL_SECONDS = {30, 10, 10};
+
+    @Autowired
+    private AppConfig appConfig;
+
+    /**
+     * Hazelcast instance hazelcast instance.
      *
-     * @return the cache manager
+     * @return the hazelcast instance
      */
-    @Bean
-    public CacheManager cacheManager() {
+    @Bean(destroyMethod = "shutdown")
+    public HazelcastInstance hazelcastInstance() {
         Config config = new Config();
-        MapConfig mapConfigCurrencies = new MapConfig("currencies");
-        mapConfigCurrencies.setTimeToLiveSeconds(30);
-        config.addMapConfig(mapConfigCurrencies);
-        MapConfig mapConfigCurrency = new MapConfig("currency");
-        mapConfigCurrency.setTimeToLiveSeconds(10);
-        config.addMapConfig(mapConfigCurrency);
-        MapConfig mapConfigConversion = new MapConfig("conversion");
-        mapConfigConversion.setTimeToLiveSeconds(10);
-        config.addMapConfig(mapConfigConversion);
+        config.getSerializationConfig().addDataSerializableFactory(
+                PriceSerializableFactory.FACTORY_ID,
+                new PriceSerializableFactory()
+        );
+        for (int i = 0; i < CACHES.length; i++) {
+            MapConfig mapConfig = new MapConfig(CACHES[i]);
+            mapConfig.setTimeToLiveSeconds(CACHE_TTL_SECONDS[i]);
+            if (this.appConfig.isNearCacheEnabled()) {
+                mapConfig.setNearCacheConfig(this.nearCacheConfig(CACHES[i], CACHE_TTL_SECONDS[i]));
+            }
+            config.addMapConfig(mapConfig);
+        }
+        MapConfig walletsConfig = new MapConfig(WalletReadService.CACHE_WALLETS);
+        walletsConfig.setTimeToLiveSeconds(this.appConfig.getWalletCacheTtlSeconds());
+        if (this.appConfig.isNearCacheEnabled()) {
+            walletsConfig.setNearCacheConfig(this.nearCacheConfig(WalletReadService.CACHE_WALLETS, this.appConfig.getWalletCacheTtlSeconds()));
+        }
+        config.addMapConfig(walletsConfig);
+        MapConfig idempotencyKeysConfig = new MapConfig(IdempotencyService.CACHE_IDEMPOTENCY_KEYS);
+        idempotencyKeysConfig.setTimeToLiveSeconds(this.appConfig.getIdempotencyTtlSeconds());
+        config.addMapConfig(idempotencyKeysConfig);
 
         // By default, Hazelcast uses multicast for discovering other members that can form a cluster.
         // If multicast isn't a preferred way of discovery for our environment, then we can configure Hazelcast for a full TCP/IP cluster.
@@ -43,6 +90,111 @@ public class CacheConfig {
         join.getMulticastConfig().setEnabled(false);
         join.getTcpIpConfig().addMember("localhost").setEnabled(true);
 
-        return new HazelcastCacheManager(Hazelcast.newHazelcastInstance(config));
+        return Hazelcast.newHazelcastInstance(config);
+    }
+
+    /**
+     * Cache manager cache manager.
+     *
+     * @param hazelcastInstance the hazelcast instance
+     * @return the cache manager
+     */
+    @Bean
+    public TwoTierCacheManager cacheManager(HazelcastInstance hazelcastInstance) {
+        TwoTierCacheManager cacheManager = new TwoTierCacheManager(
+                hazelcastInstance,
+                cache -> this.appConfig.getCacheModes().getOrDefault(cache, CacheMode.BOTH),
+                this.appConfig.getL1CacheMaxSize(),
+                cache -> Duration.ofSeconds(Math.min(this.appConfig.getL1CacheTtlSeconds(), this.timeToLiveSeconds(cache)))
+        );
+        for (String cache : CACHES) {
+            cacheManager.getCache(cache);
+        }
+        return cacheManager;
+    }
+
+    /**
+     * Two tier cache metrics meter binder.
+     *
+     * @param cacheManager the cache manager
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder twoTierCacheMetrics(TwoTierCacheManager cacheManager) {
+        return registry -> {
+            for (String cache : CACHES) {
+                TwoTierCache twoTierCache = cacheManager.getCache(cache);
+                FunctionCounter.builder("cache.tier.hits", twoTierCache, TwoTierCache::getL1Hits)
+                        .tags("cache", cache, "tier", "l1")
+                        .description("Reads served by a cache tier")
+                        .register(registry);
+                FunctionCounter.builder("cache.tier.hits", twoTierCache, TwoTierCache::getL2Hits)
+                        .tags("cache", cache, "tier", "l2")
+                        .description("Reads served by a cache tier")
+                        .register(registry);
+                FunctionCounter.builder("cache.tier.misses", twoTierCache, TwoTierCache::getMisses)
+                        .tag("cache", cache)
+                        .description("Reads missing every cache tier")
+                        .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Near cache metrics meter binder.
+     *
+     * @param hazelcastInstance the hazelcast instance
+     * @return the meter binder
+     */
+    @Bean
+    public MeterBinder nearCacheMetrics(HazelcastInstance hazelcastInstance) {
+        return registry -> {
+            for (String cache : this.nearCaches()) {
+                FunctionCounter.builder("cache.near.hits", hazelcastInstance, this.nearCacheStat(cache, NearCacheStats::getHits))
+                        .tag("cache", cache)
+                        .description("Reads served from the local near cache")
+                        .register(registry);
+                FunctionCounter.builder("cache.near.misses", hazelcastInstance, this.nearCacheStat(cache, NearCacheStats::getMisses))
+                        .tag("cache", cache)
+                        .description("Reads that missed the local near cache")
+                        .register(registry);
+                Gauge.builder("cache.near.entries", hazelcastInstance, this.nearCacheStat(cache, NearCacheStats::getOwnedEntryCount))
+                        .tag("cache", cache)
+                        .description("Entries held in the local near cache")
+                        .register(registry);
+            }
+        };
+    }
+
+    private List<String> nearCaches() {
+        List<String> caches = new ArrayList<>(Arrays.asList(CACHES));
+        caches.add(WalletReadService.CACHE_WALLETS);
+        return caches;
+    }
+
+    private long timeToLiveSeconds(String cache) {
+        int index = Arrays.asList(CACHES).indexOf(cache);
+        return index < 0 ? Long.MAX_VALUE : CACHE_TTL_SECONDS[index];
+    }
+
+    private NearCacheConfig nearCacheConfig(String name, int timeToLiveSeconds) {
+        // OBJECT format keeps the deserialized value, so a hit costs no deserialization; cached values are never mutated
+        EvictionConfig evictionConfig = new EvictionConfig()
+                .setEvictionPolicy(EvictionPolicy.LRU)
+                .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+                .setSize(this.appConfig.getNearCacheMaxSize());
+        return new NearCacheConfig(name)
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setInvalidateOnChange(true)
+                .setCacheLocalEntries(true)
+                .setTimeToLiveSeconds(timeToLiveSeconds)
+                .setEvictionConfig(evictionConfig);
+    }
+
+    private ToDoubleFunction<HazelcastInstance> nearCacheStat(String cache, ToDoubleFunction<NearCacheStats> stat) {
+        return instance -> {
+            NearCacheStats stats = instance.getMap(cache).getLocalMapStats().getNearCacheStats();
+            return stats == null ? Double.NaN : stat.applyAsDouble(stats);
+        };
     }
 }
@@ -0,0 +1,23 @@
+package com.sms.challenge.currencywalletapi.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+/**
+ * The type Clock config.
+ */
+@Configuration
+public class ClockConfig {
+
+    /**
+     * The clock of the price snapshots and of the price tape replay.
+     *
+     * @return the clock
+     */
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
@@ -3,27 +3,38 @@ package com.sms.challenge.currencywalletapi.controller;
 import com.sms.challenge.currencywalletapi.domain.CryptoCurrencyDTO;
 import com.sms.challenge.currencywalletapi.domain.CryptoCurrencyPriceDTO;
 import com.sms.challenge.currencywalletapi.entity.CryptoCurrency;
+import com.sms.challenge.currencywalletapi.entity.Priced;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyService;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * The type Crypto currency controller.
+ * <p>
+ * Handlers return a {@link Mono}, so the servlet thread is released while the upstream price request is pending.
+ * Stale prices served while the upstream API is unavailable carry a {@code Warning: 110} header and their {@code Age}
+ * in seconds.
  */
 @RestController
 @RequestMapping("/crypto-currencies")
 public class CryptoCurrencyController {
 
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     @Autowired
     private CryptoCurrencyService service;
 
@@ -36,14 +47,11 @@ public class CryptoCurrencyController {
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Successful retrieval", response = CryptoCurrencyDTO.class, responseContainer = "List"),
             @ApiResponse(code = 503, message = "External service unavailable")})
-    public ResponseEntity<List<CryptoCurrencyDTO>> findAll() {
-        List<CryptoCurrencyDTO> result = this.service.findAll().stream().map(item -> {
-            List<CryptoCurrencyPriceDTO> list = item.getPrices().stream().map(ccp -> CryptoCurrencyPriceDTO.builder().currency(
-                    ccp.getCurrency()).price(ccp.getPrice()).build()).collect(Collectors.toList());
-            return CryptoCurrencyDTO.builder().currency(item.getCurrency()).prices(list).build();
-        }).collect(Collectors.toList());
-
-        return new ResponseEntity<>(result, HttpStatus.OK);
+    public Mono<ResponseEntity<List<CryptoCurrencyDTO>>> findAll() {
+        return this.service.findAllAsync().map(priced -> {
+            List<CryptoCurrencyDTO> result = priced.getValue().stream().map(this::toDTO).collect(Collectors.toList());
+            return new ResponseEntity<>(result, this.headers(priced), HttpStatus.OK);
+        });
     }
 
     /**
@@ -57,11 +65,26 @@ public class CryptoCurrencyController {
             @ApiResponse(code = 200, message = "Successful retrieval", response = CryptoCurrencyDTO.class),
             @ApiResponse(code = 404, message = "Resource not found"),
             @ApiResponse(code = 503, message = "External service unavailable")})
-    public ResponseEntity<CryptoCurrencyDTO> find(@PathVariable("currency") String currency) {
-        CryptoCurrency cryptoCurrency = this.service.find(currency);
+    public Mono<ResponseEntity<CryptoCurrencyDTO>> find(@PathVariable("currency") String currency) {
+        return this.service.findAsync(currency).map(priced -> new ResponseEntity<>(
+                this.toDTO(priced.getValue()),
+                this.headers(priced),
+                HttpStatus.OK
+        ));
+    }
+
+    private HttpHeaders headers(Priced<?> priced) {
+        HttpHeaders headers = new HttpHeaders();
+        if (priced.isStale()) {
+            headers.set(HttpHeaders.WARNING, STALE_WARNING);
+            headers.set(HttpHeaders.AGE, String.valueOf(Duration.between(priced.getAsOf(), Instant.now()).getSeconds()));
+        }
+        return headers;
+    }
+
+    private CryptoCurrencyDTO toDTO(CryptoCurrency cryptoCurrency) {
         List<CryptoCurrencyPriceDTO> list = cryptoCurrency.getPrices().stream().map(ccp -> CryptoCurrencyPriceDTO.builder().currency(
                 ccp.getCurrency()).price(ccp.getPrice()).build()).collect(Collectors.toList());
-        CryptoCurrencyDTO result = CryptoCurrencyDTO.builder().currency(cryptoCurrency.getCurrency()).prices(list).build();
-        return new ResponseEntity<>(result, HttpStatus.OK);
+        return CryptoCurrencyDTO.builder().currency(cryptoCurrency.getCurrency()).prices(list).build();
     }
 }
@@ -0,0 +1,45 @@
+package com.sms.challenge.currencywalletapi.controller;
+
+import com.sms.challenge.currencywalletapi.domain.OperationDTO;
+import com.sms.challenge.currencywalletapi.service.OperationQueueService;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * The type Operation controller.
+ * <p>
+ * With {@code waitMs} the status is long-polled: the response is held, without holding a servlet thread, until the
+ * operation finishes or the wait is over, whichever comes first.
+ */
+@RestController
+@RequestMapping("/operations")
+public class OperationController {
+
+    @Autowired
+    private OperationQueueService service;
+
+    /**
+     * Find response entity.
+     *
+     * @param id     the id
+     * @param waitMs the longest wait for the operation to finish
+     * @return the response entity
+     */
+    @GetMapping("/{id}")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful retrieval", response = OperationDTO.class),
+            @ApiResponse(code = 404, message = "Resource not found")})
+    public Mono<ResponseEntity<OperationDTO>> find(@PathVariable("id") String id,
+                                                   @RequestParam(name = "waitMs", defaultValue = "0") long waitMs) {
+        return this.service.await(id, waitMs).map(operation -> new ResponseEntity<>(operation, HttpStatus.OK));
+    }
+}
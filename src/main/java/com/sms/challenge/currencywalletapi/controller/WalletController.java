@@ -3,17 +3,25 @@ package com.sms.challenge.currencywalletapi.controller;
 import com.sms.challenge.currencywalletapi.domain.*;
 import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
 import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.exception.ValidationException;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyOperationService;
+import com.sms.challenge.currencywalletapi.service.CurrencyRegistry;
+import com.sms.challenge.currencywalletapi.service.IdempotencyService;
+import com.sms.challenge.currencywalletapi.service.OperationQueueService;
+import com.sms.challenge.currencywalletapi.service.WalletReadService;
 import com.sms.challenge.currencywalletapi.service.WalletService;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.net.URI;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -23,12 +31,29 @@ import java.util.stream.Collectors;
 @RequestMapping("/wallets")
 public class WalletController {
 
+    /**
+     * The constant IDEMPOTENCY_KEY.
+     */
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     @Autowired
     private WalletService service;
 
+    @Autowired
+    private WalletReadService readService;
+
     @Autowired
     private CryptoCurrencyOperationService operationService;
 
+    @Autowired
+    private OperationQueueService operationQueueService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private CurrencyRegistry currencyRegistry;
+
     /**
      * Find wallet dto.
      *
@@ -41,8 +66,7 @@ public class WalletController {
             @ApiResponse(code = 404, message = "Resource not found"),
             @ApiResponse(code = 400, message = "Bad request")})
     public ResponseEntity<WalletDTO> find(@PathVariable("id") Long id) {
-        Wallet wallet = service.find(id);
-        return new ResponseEntity<>(this.toDTO(wallet), HttpStatus.OK);
+        return new ResponseEntity<>(this.readService.find(id), HttpStatus.OK);
     }
 
     /**
@@ -57,7 +81,7 @@ public class WalletController {
             @ApiResponse(code = 400, message = "Bad request")})
     public ResponseEntity<WalletDTO> create(@RequestBody CreateWalletDTO dto) {
         Wallet wallet = service.create(this.toEntity(dto));
-        return new ResponseEntity<>(this.toDTO(wallet), HttpStatus.CREATED);
+        return new ResponseEntity<>(WalletReadService.toDTO(wallet), HttpStatus.CREATED);
     }
 
     /**
@@ -76,7 +100,7 @@ public class WalletController {
         Wallet wallet = service.find(id);
         this.mergeEntity(wallet, dto);
         wallet = this.service.update(wallet);
-        return new ResponseEntity<>(this.toDTO(wallet), HttpStatus.OK);
+        return new ResponseEntity<>(WalletReadService.toDTO(wallet), HttpStatus.OK);
     }
 
     /**
@@ -97,45 +121,54 @@ public class WalletController {
 
     /**
      * Buy response entity.
+     * <p>
+     * A retry with the same {@code Idempotency-Key} gets the operation of the first request instead of a new one.
      *
-     * @param id  the id
-     * @param dto the dto
+     * @param id             the id
+     * @param idempotencyKey the idempotency key
+     * @param dto            the dto
      * @return the response entity
      */
     @PostMapping("/{id}/buy")
     @ApiResponses(value = {
-            @ApiResponse(code = 202, message = "Resource accepted", response = WalletDTO.class),
-            @ApiResponse(code = 404, message = "Resource not found"),
+            @ApiResponse(code = 202, message = "Operation queued", response = OperationDTO.class),
             @ApiResponse(code = 400, message = "Bad request"),
-            @ApiResponse(code = 503, message = "External service unavailable")})
-    public ResponseEntity<WalletDTO> buy(@PathVariable("id") Long id, @RequestBody BuyOperationDTO dto) {
-        this.operationService.buy(
+            @ApiResponse(code = 409, message = "Request with the same idempotency key in progress"),
+            @ApiResponse(code = 429, message = "Too many pending operations")})
+    public ResponseEntity<OperationDTO> buy(@PathVariable("id") Long id,
+                                            @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                            @RequestBody BuyOperationDTO dto) {
+        OperationDTO operation = this.submit(idempotencyKey, () -> this.operationQueueService.submitBuy(
                 id,
                 dto.getCurrencyFrom(),
                 dto.getCurrencyTo(),
                 dto.getAmount(),
                 dto.getPrice(),
                 dto.getValidatePrice()
-        );
-        Wallet wallet = this.service.find(id);
-        return new ResponseEntity<>(this.toDTO(wallet), HttpStatus.ACCEPTED);
+        ), OperationType.BUY, id, dto.getCurrencyFrom(), dto.getCurrencyTo(), dto.getAmount(), dto.getPrice(), dto.getValidatePrice());
+        return new ResponseEntity<>(operation, this.headers(operation), HttpStatus.ACCEPTED);
     }
 
     /**
-     * Buy response entity.
+     * Transfer response entity.
+     * <p>
+     * A retry with the same {@code Idempotency-Key} gets the operation of the first request instead of a new one.
      *
-     * @param id  the id
-     * @param dto the dto
+     * @param id             the id
+     * @param idempotencyKey the idempotency key
+     * @param dto            the dto
      * @return the response entity
      */
     @PostMapping("/{id}/transfer")
     @ApiResponses(value = {
-            @ApiResponse(code = 202, message = "Resource accepted"),
-            @ApiResponse(code = 404, message = "Resource not found"),
+            @ApiResponse(code = 202, message = "Operation queued", response = OperationDTO.class),
             @ApiResponse(code = 400, message = "Bad request"),
-            @ApiResponse(code = 503, message = "External service unavailable")})
-    public ResponseEntity<HttpStatus> transfer(@PathVariable("id") Long id, @RequestBody TransferOperationDTO dto) {
-        this.operationService.transfer(
+            @ApiResponse(code = 409, message = "Request with the same idempotency key in progress"),
+            @ApiResponse(code = 429, message = "Too many pending operations")})
+    public ResponseEntity<OperationDTO> transfer(@PathVariable("id") Long id,
+                                                 @RequestHeader(name = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                 @RequestBody TransferOperationDTO dto) {
+        OperationDTO operation = this.submit(idempotencyKey, () -> this.operationQueueService.submitTransfer(
                 id,
                 dto.getWalletId(),
                 dto.getCurrencyFrom(),
@@ -143,26 +176,57 @@ public class WalletController {
                 dto.getAmount(),
                 dto.getPrice(),
                 dto.getValidatePrice()
-        );
-        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        ), OperationType.TRANSFER, id, dto.getWalletId(), dto.getCurrencyFrom(), dto.getCurrencyTo(), dto.getAmount(), dto.getPrice(), dto.getValidatePrice());
+        return new ResponseEntity<>(operation, this.headers(operation), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Batch response entity.
+     *
+     * @param dto the dto
+     * @return the response entity
+     */
+    @PostMapping("/operations:batch")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Batch processed", response = BatchResultDTO.class),
+            @ApiResponse(code = 400, message = "Bad request")})
+    public ResponseEntity<BatchResultDTO> batch(@RequestBody BatchRequestDTO dto) {
+        BatchMode mode = dto.getMode() == null ? BatchMode.ATOMIC : dto.getMode();
+        return new ResponseEntity<>(new BatchResultDTO(mode, this.operationService.batch(dto.getOperations(), mode)), HttpStatus.OK);
     }
 
-    private WalletDTO toDTO(Wallet wallet) {
-        List<CurrencyAmountDTO> currencyAmounts = wallet.getCurrencyAmounts().stream().map(item -> new CurrencyAmountDTO(
-                item.getCurrency(),
-                item.getAmount()
-        )).collect(Collectors.toList());
-        return WalletDTO.builder().id(wallet.getId()).name(wallet.getName()).currencyAmounts(currencyAmounts).build();
+    private OperationDTO submit(String idempotencyKey, Supplier<OperationDTO> submit, Object... request) {
+        if (idempotencyKey == null) {
+            return submit.get();
+        }
+        return this.idempotencyService.submit(idempotencyKey, IdempotencyService.fingerprint(request), submit);
+    }
+
+    private HttpHeaders headers(OperationDTO operation) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setLocation(URI.create("/operations/" + operation.getId()));
+        return headers;
     }
 
     private Wallet toEntity(CreateWalletDTO dto) {
-        Set<CurrencyAmount> currencyAmounts = dto.getCurrencyAmounts().stream().map(item -> new CurrencyAmount(
-                item.getCurrency(),
-                item.getAmount()
-        )).collect(Collectors.toSet());
+        Set<CurrencyAmount> currencyAmounts = dto.getCurrencyAmounts().stream().map(this::toEntity).collect(Collectors.toSet());
         return Wallet.builder().name(dto.getName()).currencyAmounts(currencyAmounts).build();
     }
 
+    private CurrencyAmount toEntity(CurrencyAmountDTO dto) {
+        if (dto.getAmount() == null) {
+            throw new ValidationException("Amount is required in currency amounts");
+        }
+        // Held in minor units at the scale of the currency
+        int scale = this.currencyRegistry.scale(dto.getCurrency());
+        try {
+            return CurrencyAmount.of(dto.getCurrency(), dto.getAmount(), scale);
+        } catch (ArithmeticException e) {
+            throw new ValidationException(FixedPoint.isRepresentable(dto.getAmount()) && dto.getAmount().stripTrailingZeros().scale() > scale ?
+                    "Amount has more decimals than the currency allows in currency amounts" : "Amount is out of range in currency amounts");
+        }
+    }
+
     private void mergeEntity(Wallet wallet, UpdateWalletDTO dto) {
         wallet.setName(dto.getName());
     }
@@ -0,0 +1,15 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+/**
+ * The enum Batch mode.
+ */
+public enum BatchMode {
+    /**
+     * Every operation of the batch is applied, or none when one of them fails.
+     */
+    ATOMIC,
+    /**
+     * Every operation that passes its checks is applied, the others fail alone.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,28 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
+import lombok.Data;
+import org.springframework.lang.Nullable;
+
+import java.math.BigDecimal;
+
+/**
+ * The type Batch operation dto. A buy on the wallet, or a transfer from the wallet to the wallet to.
+ */
+@Data
+public class BatchOperationDTO {
+
+    private OperationType type;
+    private Long walletId;
+    @Nullable
+    private Long walletIdTo;
+    private String currencyFrom;
+    private String currencyTo;
+    @JsonDeserialize(using = FixedPoint.Deserializer.class)
+    private BigDecimal amount;
+    @Nullable
+    private Double price;
+    @Nullable
+    private Boolean validatePrice;
+}
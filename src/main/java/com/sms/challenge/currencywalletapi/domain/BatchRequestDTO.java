@@ -0,0 +1,17 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+import lombok.Data;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * The type Batch request dto.
+ */
+@Data
+public class BatchRequestDTO {
+
+    @Nullable
+    private BatchMode mode;
+    private List<BatchOperationDTO> operations;
+}
@@ -0,0 +1,28 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * The type Batch result dto.
+ */
+@Data
+public class BatchResultDTO {
+
+    private BatchMode mode;
+    private int applied;
+    private List<OperationResultDTO> results;
+
+    /**
+     * Instantiates a new Batch result dto.
+     *
+     * @param mode    the mode
+     * @param results the result of each operation, in the order of the operations
+     */
+    public BatchResultDTO(BatchMode mode, List<OperationResultDTO> results) {
+        this.mode = mode;
+        this.applied = (int) results.stream().filter(item -> item.getStatus() == OperationStatus.APPLIED).count();
+        this.results = results;
+    }
+}
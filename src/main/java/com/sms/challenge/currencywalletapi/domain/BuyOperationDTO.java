@@ -1,8 +1,12 @@
 package com.sms.challenge.currencywalletapi.domain;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
 import lombok.Data;
 import org.springframework.lang.Nullable;
 
+import java.math.BigDecimal;
+
 /**
  * The type Operation dto.
  */
@@ -11,7 +15,8 @@ public class BuyOperationDTO {
 
     private String currencyFrom;
     private String currencyTo;
-    private Double amount;
+    @JsonDeserialize(using = FixedPoint.Deserializer.class)
+    private BigDecimal amount;
     @Nullable
     private Double price;
     @Nullable
@@ -1,15 +1,23 @@
 package com.sms.challenge.currencywalletapi.domain;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
 import lombok.Data;
 
+import java.io.Serializable;
+import java.math.BigDecimal;
+
 /**
  * The type Currency amount dto.
  */
 @Data
-public class CurrencyAmountDTO {
+public class CurrencyAmountDTO implements Serializable {
 
     private String currency;
-    private Double amount;
+    @JsonSerialize(using = FixedPoint.Serializer.class)
+    @JsonDeserialize(using = FixedPoint.Deserializer.class)
+    private BigDecimal amount;
 
     /**
      * Instantiates a new Currency amount dto.
@@ -17,7 +25,7 @@ public class CurrencyAmountDTO {
      * @param currency the currency
      * @param amount   the amount
      */
-    public CurrencyAmountDTO(String currency, Double amount) {
+    public CurrencyAmountDTO(String currency, BigDecimal amount) {
         this.currency = currency;
         this.amount = amount;
     }
@@ -36,7 +44,7 @@ public class CurrencyAmountDTO {
      */
     public static class Builder {
         private String currency;
-        private Double amount;
+        private BigDecimal amount;
 
         /**
          * Currency currency amount . builder.
@@ -55,7 +63,7 @@ public class CurrencyAmountDTO {
          * @param amount the amount
          * @return the currency amount . builder
          */
-        public CurrencyAmountDTO.Builder amount(Double amount) {
+        public CurrencyAmountDTO.Builder amount(BigDecimal amount) {
             this.amount = amount;
             return this;
         }
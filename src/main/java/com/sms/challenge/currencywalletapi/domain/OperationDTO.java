@@ -0,0 +1,33 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+import lombok.Data;
+
+/**
+ * The type Operation dto.
+ */
+@Data
+public class OperationDTO {
+
+    private String id;
+    private OperationType type;
+    private Long walletId;
+    private OperationStatus status;
+    private String error;
+
+    /**
+     * Instantiates a new Operation dto.
+     *
+     * @param id       the id
+     * @param type     the type
+     * @param walletId the wallet id, the wallet from of a transfer
+     * @param status   the status
+     * @param error    the error, or null when the operation did not fail
+     */
+    public OperationDTO(String id, OperationType type, Long walletId, OperationStatus status, String error) {
+        this.id = id;
+        this.type = type;
+        this.walletId = walletId;
+        this.status = status;
+        this.error = error;
+    }
+}
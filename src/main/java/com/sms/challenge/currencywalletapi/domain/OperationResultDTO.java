@@ -0,0 +1,27 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+import lombok.Data;
+
+/**
+ * The type Operation result dto.
+ */
+@Data
+public class OperationResultDTO {
+
+    private int index;
+    private OperationStatus status;
+    private String error;
+
+    /**
+     * Instantiates a new Operation result dto.
+     *
+     * @param index  the index of the operation in its batch
+     * @param status the status
+     * @param error  the error, or null when the operation did not fail
+     */
+    public OperationResultDTO(int index, OperationStatus status, String error) {
+        this.index = index;
+        this.status = status;
+        this.error = error;
+    }
+}
@@ -0,0 +1,23 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+/**
+ * The enum Operation status.
+ */
+public enum OperationStatus {
+    /**
+     * The operation is queued or running, and not applied yet.
+     */
+    PENDING,
+    /**
+     * The operation was applied.
+     */
+    APPLIED,
+    /**
+     * The operation failed its checks and was not applied.
+     */
+    FAILED,
+    /**
+     * The operation passed its checks but was not applied, because another operation of its atomic batch failed.
+     */
+    ABORTED
+}
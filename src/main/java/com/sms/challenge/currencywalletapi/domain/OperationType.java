@@ -0,0 +1,15 @@
+package com.sms.challenge.currencywalletapi.domain;
+
+/**
+ * The enum Operation type.
+ */
+public enum OperationType {
+    /**
+     * Converts an amount between two currencies of the same wallet.
+     */
+    BUY,
+    /**
+     * Converts an amount of a wallet into a currency of another wallet.
+     */
+    TRANSFER
+}
@@ -1,18 +1,27 @@
 package com.sms.challenge.currencywalletapi.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
  * The type Wallet dto.
+ * <p>
+ * The version of the wallet and the deleted flag are only used by the read model, to order the writes to it; they
+ * are not part of the API.
  */
 @Data
-public class WalletDTO {
+public class WalletDTO implements Serializable {
 
     private Long id;
     private String name;
     private List<CurrencyAmountDTO> currencyAmounts;
+    @JsonIgnore
+    private Long version;
+    @JsonIgnore
+    private boolean deleted;
 
     /**
      * Instantiates a new Wallet dto.
@@ -22,9 +31,34 @@ public class WalletDTO {
      * @param currencyAmounts the currency amounts
      */
     public WalletDTO(Long id, String name, List<CurrencyAmountDTO> currencyAmounts) {
+        this(id, name, currencyAmounts, null);
+    }
+
+    /**
+     * Instantiates a new Wallet dto.
+     *
+     * @param id              the id
+     * @param name            the name
+     * @param currencyAmounts the currency amounts
+     * @param version         the version of the wallet
+     */
+    public WalletDTO(Long id, String name, List<CurrencyAmountDTO> currencyAmounts, Long version) {
         this.id = id;
         this.name = name;
         this.currencyAmounts = currencyAmounts;
+        this.version = version;
+    }
+
+    /**
+     * Marker of a deleted wallet, newer than any version of it.
+     *
+     * @param id the id
+     * @return the wallet dto
+     */
+    public static WalletDTO deleted(Long id) {
+        WalletDTO dto = new WalletDTO(id, null, null, Long.MAX_VALUE);
+        dto.setDeleted(true);
+        return dto;
     }
 
     /**
@@ -43,6 +77,7 @@ public class WalletDTO {
         private Long id;
         private String name;
         private List<CurrencyAmountDTO> currencyAmounts;
+        private Long version;
 
         /**
          * Id wallet dto . builder.
@@ -77,13 +112,24 @@ public class WalletDTO {
             return this;
         }
 
+        /**
+         * Version wallet dto . builder.
+         *
+         * @param version the version
+         * @return the wallet dto . builder
+         */
+        public WalletDTO.Builder version(Long version) {
+            this.version = version;
+            return this;
+        }
+
         /**
          * Build wallet dto.
          *
          * @return the wallet dto
          */
         public WalletDTO build() {
-            return new WalletDTO(this.id, this.name, this.currencyAmounts);
+            return new WalletDTO(this.id, this.name, this.currencyAmounts, this.version);
         }
     }
 }
@@ -0,0 +1,35 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * The type Conversion.
+ */
+@Data
+public class Conversion implements Serializable {
+
+    private final String currencyFrom;
+    private final String currencyTo;
+    private final double rate;
+    private final ConversionPath path;
+    private final String pivot;
+
+    /**
+     * Instantiates a new Conversion.
+     *
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @param rate         the rate
+     * @param path         the path
+     * @param pivot        the pivot currency, only for the pivot path
+     */
+    public Conversion(String currencyFrom, String currencyTo, double rate, ConversionPath path, String pivot) {
+        this.currencyFrom = currencyFrom;
+        this.currencyTo = currencyTo;
+        this.rate = rate;
+        this.path = path;
+        this.pivot = pivot;
+    }
+}
@@ -0,0 +1,27 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+/**
+ * The enum Conversion path.
+ */
+public enum ConversionPath {
+    /**
+     * Same currency, rate one.
+     */
+    IDENTITY,
+    /**
+     * Rate read from the matrix as is.
+     */
+    DIRECT,
+    /**
+     * Reciprocal of the opposite pair.
+     */
+    INVERSE,
+    /**
+     * Product of two legs through a pivot currency.
+     */
+    PIVOT,
+    /**
+     * Rate requested to the upstream API.
+     */
+    NETWORK
+}
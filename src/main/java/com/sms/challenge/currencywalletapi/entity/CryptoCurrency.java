@@ -1,19 +1,30 @@
 package com.sms.challenge.currencywalletapi.entity;
 
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
 import lombok.Data;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * The type Crypto currency.
  */
 @Data
-public class CryptoCurrency implements Serializable {
+public class CryptoCurrency implements Serializable, IdentifiedDataSerializable {
 
     private String currency;
     private List<CryptoCurrencyPrice> prices;
 
+    /**
+     * Instantiates a new Crypto currency, for deserialization.
+     */
+    public CryptoCurrency() {
+    }
+
     /**
      * Instantiates a new Crypto currency.
      *
@@ -33,4 +44,43 @@ public class CryptoCurrency implements Serializable {
         this.currency = currency;
         this.prices = prices;
     }
+
+    @Override
+    public int getFactoryId() {
+        return PriceSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getClassId() {
+        return PriceSerializableFactory.CRYPTO_CURRENCY;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeUTF(this.currency);
+        if (this.prices == null) {
+            out.writeInt(-1);
+            return;
+        }
+        // Prices are written inline, without a type header per element
+        out.writeInt(this.prices.size());
+        for (CryptoCurrencyPrice price : this.prices) {
+            out.writeUTF(price.getCurrency());
+            CryptoCurrencyPrice.writePrice(out, price.getPrice());
+        }
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        this.currency = PriceSerializableFactory.intern(in.readUTF());
+        int size = in.readInt();
+        if (size < 0) {
+            this.prices = null;
+            return;
+        }
+        this.prices = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.prices.add(new CryptoCurrencyPrice(PriceSerializableFactory.intern(in.readUTF()), CryptoCurrencyPrice.readPrice(in)));
+        }
+    }
 }
@@ -1,18 +1,28 @@
 package com.sms.challenge.currencywalletapi.entity;
 
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
 import lombok.Data;
 
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
  * The type Crypto currency price.
  */
 @Data
-public class CryptoCurrencyPrice implements Serializable {
+public class CryptoCurrencyPrice implements Serializable, IdentifiedDataSerializable {
 
     private String currency;
     private Double price;
 
+    /**
+     * Instantiates a new Crypto currency price, for deserialization.
+     */
+    public CryptoCurrencyPrice() {
+    }
+
     /**
      * Instantiates a new Crypto currency price.
      *
@@ -23,4 +33,49 @@ public class CryptoCurrencyPrice implements Serializable {
         this.currency = currency;
         this.price = price;
     }
+
+    @Override
+    public int getFactoryId() {
+        return PriceSerializableFactory.FACTORY_ID;
+    }
+
+    @Override
+    public int getClassId() {
+        return PriceSerializableFactory.CRYPTO_CURRENCY_PRICE;
+    }
+
+    @Override
+    public void writeData(ObjectDataOutput out) throws IOException {
+        out.writeUTF(this.currency);
+        writePrice(out, this.price);
+    }
+
+    @Override
+    public void readData(ObjectDataInput in) throws IOException {
+        this.currency = PriceSerializableFactory.intern(in.readUTF());
+        this.price = readPrice(in);
+    }
+
+    /**
+     * Write a price as a primitive double, NaN standing for a missing price.
+     *
+     * @param out   the out
+     * @param price the price
+     * @throws IOException the io exception
+     */
+    static void writePrice(ObjectDataOutput out, Double price) throws IOException {
+        out.writeDouble(price == null ? Double.NaN : price);
+    }
+
+    /**
+     * Read a price written by {@link #writePrice(ObjectDataOutput, Double)}.
+     *
+     * @param in the in
+     * @return the price
+     * @throws IOException the io exception
+     */
+    static Double readPrice(ObjectDataInput in) throws IOException {
+        double price = in.readDouble();
+        return Double.isNaN(price) ? null : price;
+    }
 }
@@ -7,12 +7,20 @@ import javax.persistence.*;
 
 /**
  * The type Currency.
+ * <p>
+ * The scale is the number of decimals of the currency: wallet amounts in it are held as a count of minor units at
+ * that scale.
  */
 @Data
 @Entity
 @Table(name = "currencies", uniqueConstraints = @UniqueConstraint(columnNames = {"symbol"}))
 public class Currency {
 
+    /**
+     * The constant DEFAULT_SCALE.
+     */
+    public static final int DEFAULT_SCALE = 8;
+
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence_currencies")
     @SequenceGenerator(name = "sequence_currencies", sequenceName = "sequence_currencies", allocationSize = 1)
@@ -26,6 +34,10 @@ public class Currency {
     @Column(name = "crypto", nullable = false)
     private Boolean crypto;
 
+    @NonNull
+    @Column(name = "scale", nullable = false)
+    private Integer scale;
+
     /**
      * Instantiates a new Currency.
      */
@@ -40,7 +52,19 @@ public class Currency {
      * @param crypto the crypto
      */
     public Currency(String symbol, Boolean crypto) {
+        this(symbol, crypto, DEFAULT_SCALE);
+    }
+
+    /**
+     * Instantiates a new Currency.
+     *
+     * @param symbol the symbol
+     * @param crypto the crypto
+     * @param scale  the scale
+     */
+    public Currency(String symbol, Boolean crypto, Integer scale) {
         this.symbol = symbol;
         this.crypto = crypto;
+        this.scale = scale;
     }
 }
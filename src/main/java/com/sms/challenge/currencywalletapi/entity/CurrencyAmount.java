@@ -1,12 +1,21 @@
 package com.sms.challenge.currencywalletapi.entity;
 
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
 import lombok.Data;
 import org.springframework.lang.NonNull;
 
 import javax.persistence.*;
+import java.math.BigDecimal;
+import java.util.Objects;
 
 /**
  * The type Currency amount.
+ * <p>
+ * The amount is a count of minor units at the scale of the currency when the row was written, see
+ * {@link FixedPoint}; the row keeps that scale, so it can be read on its own.
+ * <p>
+ * Equality is the persistent identity, and the hash code only depends on the currency, so both stay the same while
+ * the amount changes and the row is held in the wallet set.
  */
 @Data
 @Entity
@@ -22,9 +31,15 @@ public class CurrencyAmount {
     @Column(name = "currency", nullable = false)
     private String currency;
 
-    @NonNull
     @Column(name = "amount", nullable = false)
-    private Double amount;
+    private long amount;
+
+    @Column(name = "scale", nullable = false)
+    private int scale;
+
+    @Version
+    @Column(name = "version")
+    private Long version;
 
     /**
      * Instantiates a new Currency amount.
@@ -37,11 +52,43 @@ public class CurrencyAmount {
      * Instantiates a new Currency amount.
      *
      * @param currency the currency
-     * @param amount   the amount
+     * @param amount   the amount, in minor units
+     * @param scale    the scale
      */
-    public CurrencyAmount(String currency, Double amount) {
+    public CurrencyAmount(String currency, long amount, int scale) {
         this.currency = currency;
         this.amount = amount;
+        this.scale = scale;
+    }
+
+    /**
+     * Build a currency amount from a decimal amount.
+     *
+     * @param currency the currency
+     * @param amount   the amount
+     * @param scale    the scale
+     * @return the currency amount
+     * @throws ArithmeticException when the amount has more decimals than the scale or is out of range
+     */
+    public static CurrencyAmount of(String currency, BigDecimal amount, int scale) {
+        return new CurrencyAmount(currency, FixedPoint.toMinorUnits(amount, scale), scale);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CurrencyAmount)) {
+            return false;
+        }
+        CurrencyAmount other = (CurrencyAmount) o;
+        return this.id != null && this.id.equals(other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(this.currency);
     }
 
     /**
@@ -58,7 +105,8 @@ public class CurrencyAmount {
      */
     public static class Builder {
         private String currency;
-        private Double amount;
+        private long amount;
+        private int scale;
 
         /**
          * Currency currency amount . builder.
@@ -74,21 +122,32 @@ public class CurrencyAmount {
         /**
          * Amount currency amount . builder.
          *
-         * @param amount the amount
+         * @param amount the amount, in minor units
          * @return the currency amount . builder
          */
-        public CurrencyAmount.Builder amount(Double amount) {
+        public CurrencyAmount.Builder amount(long amount) {
             this.amount = amount;
             return this;
         }
 
+        /**
+         * Scale currency amount . builder.
+         *
+         * @param scale the scale
+         * @return the currency amount . builder
+         */
+        public CurrencyAmount.Builder scale(int scale) {
+            this.scale = scale;
+            return this;
+        }
+
         /**
          * Build currency amount.
          *
          * @return the currency amount
          */
         public CurrencyAmount build() {
-            return new CurrencyAmount(this.currency, this.amount);
+            return new CurrencyAmount(this.currency, this.amount, this.scale);
         }
     }
 }
@@ -0,0 +1,141 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The type Currency index.
+ * <p>
+ * Immutable assignment of a dense int ordinal (0..size-1) to each {@link Currency}, ordered by id, so currency keyed
+ * data can be stored in flat primitive arrays.
+ */
+public final class CurrencyIndex {
+
+    private final Long[] ids;
+    private final String[] symbols;
+    private final boolean[] crypto;
+    private final int[] scales;
+    private final Map<String, Integer> ordinals;
+
+    /**
+     * Instantiates a new Currency index.
+     *
+     * @param currencies the currencies
+     */
+    public CurrencyIndex(List<Currency> currencies) {
+        List<Currency> sorted = currencies.stream()
+                .sorted(Comparator.comparing(Currency::getId, Comparator.nullsLast(Comparator.naturalOrder())))
+                .collect(Collectors.toList());
+        this.ids = new Long[sorted.size()];
+        this.symbols = new String[sorted.size()];
+        this.crypto = new boolean[sorted.size()];
+        this.scales = new int[sorted.size()];
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            this.ids[i] = sorted.get(i).getId();
+            this.symbols[i] = sorted.get(i).getSymbol();
+            this.crypto[i] = Boolean.TRUE.equals(sorted.get(i).getCrypto());
+            this.scales[i] = sorted.get(i).getScale() == null ? Currency.DEFAULT_SCALE : sorted.get(i).getScale();
+            index.put(this.symbols[i], i);
+        }
+        this.ordinals = Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Build an ad-hoc index of the given symbols, in the given order, without crypto flags.
+     *
+     * @param symbols the symbols
+     * @return the currency index
+     */
+    public static CurrencyIndex of(String... symbols) {
+        return new CurrencyIndex(Arrays.stream(symbols).distinct().map(symbol -> new Currency(symbol, false)).collect(
+                Collectors.toList()));
+    }
+
+    /**
+     * Gets the number of currencies.
+     *
+     * @return the size
+     */
+    public int size() {
+        return this.symbols.length;
+    }
+
+    /**
+     * Gets the ordinal of a symbol.
+     *
+     * @param symbol the symbol
+     * @return the ordinal, or -1 when the symbol is unknown
+     */
+    public int ordinal(String symbol) {
+        Integer ordinal = this.ordinals.get(symbol);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Gets the symbol of an ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the symbol
+     */
+    public String symbol(int ordinal) {
+        return this.symbols[ordinal];
+    }
+
+    /**
+     * Gets the currency id of an ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the id, or null for an ad-hoc index
+     */
+    public Long id(int ordinal) {
+        return this.ids[ordinal];
+    }
+
+    /**
+     * Is crypto boolean.
+     *
+     * @param ordinal the ordinal
+     * @return the boolean
+     */
+    public boolean isCrypto(int ordinal) {
+        return this.crypto[ordinal];
+    }
+
+    /**
+     * Gets the scale of an ordinal.
+     *
+     * @param ordinal the ordinal
+     * @return the scale
+     */
+    public int scale(int ordinal) {
+        return this.scales[ordinal];
+    }
+
+    /**
+     * Gets the symbols of the crypto or the not crypto currencies, in ordinal order.
+     *
+     * @param crypto the crypto
+     * @return the symbols
+     */
+    public List<String> symbols(boolean crypto) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < this.symbols.length; i++) {
+            if (this.crypto[i] == crypto) {
+                result.add(this.symbols[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(this.symbols);
+    }
+}
@@ -0,0 +1,117 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+import com.sms.challenge.currencywalletapi.domain.OperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.lang.NonNull;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The type Idempotency key.
+ * <p>
+ * A client supplied key and the operation it was first used for. The row is inserted before the operation is queued,
+ * so the unique constraint on the key decides which of two concurrent requests runs it. Until the operation id is set
+ * the key is claimed by a request still being submitted.
+ */
+@Data
+@Entity
+@Table(name = "idempotency_keys", uniqueConstraints = @UniqueConstraint(columnNames = {"idempotency_key"}))
+public class IdempotencyKey implements Serializable {
+
+    /**
+     * The constant MAX_LENGTH.
+     */
+    public static final int MAX_LENGTH = 255;
+
+    /**
+     * The constant MAX_ERROR_LENGTH.
+     */
+    public static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sequence_idempotency_keys")
+    @SequenceGenerator(name = "sequence_idempotency_keys", sequenceName = "sequence_idempotency_keys", allocationSize = 1)
+    private Long id;
+
+    @NonNull
+    @Column(name = "idempotency_key", nullable = false, length = MAX_LENGTH)
+    private String idempotencyKey;
+
+    @NonNull
+    @Column(name = "fingerprint", nullable = false)
+    private String fingerprint;
+
+    @Column(name = "operation_id")
+    private String operationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type")
+    private OperationType type;
+
+    @Column(name = "wallet_id")
+    private Long walletId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status")
+    private OperationStatus status;
+
+    @Column(name = "error", length = MAX_ERROR_LENGTH)
+    private String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    /**
+     * Instantiates a new Idempotency key.
+     */
+    public IdempotencyKey() {
+        super();
+    }
+
+    /**
+     * Instantiates a new Idempotency key.
+     *
+     * @param idempotencyKey the idempotency key
+     * @param fingerprint    the fingerprint of the request
+     */
+    public IdempotencyKey(String idempotencyKey, String fingerprint) {
+        this.idempotencyKey = idempotencyKey;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Record the operation, or its outcome.
+     *
+     * @param operation the operation
+     */
+    public void setOperation(OperationDTO operation) {
+        this.operationId = operation.getId();
+        this.type = operation.getType();
+        this.walletId = operation.getWalletId();
+        this.status = operation.getStatus();
+        this.error = operation.getError() == null || operation.getError().length() <= MAX_ERROR_LENGTH ?
+                operation.getError() : operation.getError().substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Gets the operation.
+     *
+     * @return the operation, or null while the key is claimed and the operation not queued yet
+     */
+    public OperationDTO getOperation() {
+        return this.operationId == null ? null : new OperationDTO(this.operationId, this.type, this.walletId, this.status, this.error);
+    }
+}
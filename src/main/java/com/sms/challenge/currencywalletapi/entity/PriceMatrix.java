@@ -0,0 +1,206 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The type Price matrix.
+ * <p>
+ * Dense size x size matrix of rates stored row-major in a flat {@code double[]}, indexed by {@link CurrencyIndex}
+ * ordinals. Missing rates are {@link Double#NaN}. Per-pair reads are array lookups, with no boxing or hashing; the
+ * {@link CryptoCurrency} lists are rendered from the matrix only when requested, and then memoized.
+ */
+public final class PriceMatrix {
+
+    private final CurrencyIndex index;
+    private final double[] rates;
+    private volatile List<CryptoCurrency> rendered;
+
+    private PriceMatrix(CurrencyIndex index, double[] rates) {
+        this.index = index;
+        this.rates = rates;
+    }
+
+    /**
+     * Builder price matrix . builder.
+     *
+     * @param index the index
+     * @return the price matrix . builder
+     */
+    public static PriceMatrix.Builder builder(CurrencyIndex index) {
+        return new PriceMatrix.Builder(index);
+    }
+
+    /**
+     * Build a price matrix from a pricemulti shaped map.
+     *
+     * @param index the index
+     * @param data  the data
+     * @return the price matrix
+     */
+    public static PriceMatrix from(CurrencyIndex index, Map<String, Map<String, Number>> data) {
+        PriceMatrix.Builder builder = builder(index);
+        data.forEach((currencyFrom, prices) -> {
+            int from = index.ordinal(currencyFrom);
+            if (from >= 0 && prices != null) {
+                prices.forEach((currencyTo, price) -> {
+                    int to = index.ordinal(currencyTo);
+                    if (to >= 0 && price != null) {
+                        builder.set(from, to, price.doubleValue());
+                    }
+                });
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Gets index.
+     *
+     * @return the index
+     */
+    public CurrencyIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the rate of a pair.
+     *
+     * @param from the from ordinal
+     * @param to   the to ordinal
+     * @return the rate, or NaN when missing
+     */
+    public double rate(int from, int to) {
+        return this.rates[from * this.index.size() + to];
+    }
+
+    /**
+     * Gets the rate of a pair.
+     *
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @return the rate, or NaN when missing or unknown
+     */
+    public double rate(String currencyFrom, String currencyTo) {
+        int from = this.index.ordinal(currencyFrom);
+        int to = this.index.ordinal(currencyTo);
+        return from < 0 || to < 0 ? Double.NaN : this.rate(from, to);
+    }
+
+    /**
+     * Has row boolean.
+     *
+     * @param from the from ordinal
+     * @return true when the row has at least one rate
+     */
+    public boolean hasRow(int from) {
+        int size = this.index.size();
+        for (int to = 0; to < size; to++) {
+            if (!Double.isNaN(this.rates[from * size + to])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Is empty boolean.
+     *
+     * @return the boolean
+     */
+    public boolean isEmpty() {
+        for (double rate : this.rates) {
+            if (!Double.isNaN(rate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Render the crypto currency rows.
+     * <p>
+     * The list is shared by every caller and must not be modified. It is a plain {@link ArrayList}, not an
+     * unmodifiable view, because it is the value of the {@code currencies} cache: Hazelcast has a serializer for
+     * {@link ArrayList}, which writes the elements as {@link com.hazelcast.nio.serialization.IdentifiedDataSerializable},
+     * while a wrapper list would fall back to Java serialization for the list and every element.
+     *
+     * @return the crypto currencies
+     */
+    public List<CryptoCurrency> toCryptoCurrencies() {
+        List<CryptoCurrency> result = this.rendered;
+        if (result == null) {
+            ArrayList<CryptoCurrency> rows = new ArrayList<>();
+            for (int from = 0; from < this.index.size(); from++) {
+                if (this.index.isCrypto(from) && this.hasRow(from)) {
+                    rows.add(this.toCryptoCurrency(from));
+                }
+            }
+            result = rows;
+            this.rendered = result;
+        }
+        return result;
+    }
+
+    /**
+     * Render a crypto currency row.
+     *
+     * @param from the from ordinal
+     * @return the crypto currency
+     */
+    public CryptoCurrency toCryptoCurrency(int from) {
+        List<CryptoCurrencyPrice> prices = new ArrayList<>();
+        for (int to = 0; to < this.index.size(); to++) {
+            double rate = this.rate(from, to);
+            if (!this.index.isCrypto(to) && !Double.isNaN(rate)) {
+                prices.add(new CryptoCurrencyPrice(this.index.symbol(to), rate));
+            }
+        }
+        return new CryptoCurrency(this.index.symbol(from), prices);
+    }
+
+    /**
+     * The type Builder.
+     */
+    public static class Builder {
+        private final CurrencyIndex index;
+        private double[] rates;
+
+        /**
+         * Instantiates a new Builder.
+         *
+         * @param index the index
+         */
+        Builder(CurrencyIndex index) {
+            this.index = index;
+            this.rates = new double[index.size() * index.size()];
+            Arrays.fill(this.rates, Double.NaN);
+        }
+
+        /**
+         * Set a rate.
+         *
+         * @param from the from ordinal
+         * @param to   the to ordinal
+         * @param rate the rate
+         * @return the price matrix . builder
+         */
+        public PriceMatrix.Builder set(int from, int to, double rate) {
+            this.rates[from * this.index.size() + to] = rate;
+            return this;
+        }
+
+        /**
+         * Build price matrix. The builder cannot be reused afterwards.
+         *
+         * @return the price matrix
+         */
+        public PriceMatrix build() {
+            double[] built = this.rates;
+            this.rates = null;
+            return new PriceMatrix(this.index, built);
+        }
+    }
+}
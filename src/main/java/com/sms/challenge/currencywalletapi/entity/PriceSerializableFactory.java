@@ -0,0 +1,69 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+import com.hazelcast.nio.serialization.DataSerializableFactory;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The type Price serializable factory.
+ * <p>
+ * Creates the cached price objects on deserialization, so Hazelcast writes them with
+ * {@link IdentifiedDataSerializable} instead of Java serialization.
+ */
+public class PriceSerializableFactory implements DataSerializableFactory {
+
+    /**
+     * The constant FACTORY_ID.
+     */
+    public static final int FACTORY_ID = 1;
+
+    /**
+     * The constant CRYPTO_CURRENCY.
+     */
+    public static final int CRYPTO_CURRENCY = 1;
+
+    /**
+     * The constant CRYPTO_CURRENCY_PRICE.
+     */
+    public static final int CRYPTO_CURRENCY_PRICE = 2;
+
+    private static final int MAX_SYMBOLS = 4096;
+
+    private static final ConcurrentMap<String, String> SYMBOLS = new ConcurrentHashMap<>();
+
+    @Override
+    public IdentifiedDataSerializable create(int typeId) {
+        switch (typeId) {
+            case CRYPTO_CURRENCY:
+                return new CryptoCurrency();
+            case CRYPTO_CURRENCY_PRICE:
+                return new CryptoCurrencyPrice();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Intern a symbol read from the wire, so cached values share one instance per symbol.
+     *
+     * @param symbol the symbol
+     * @return the interned symbol
+     */
+    static String intern(String symbol) {
+        if (symbol == null) {
+            return null;
+        }
+        String interned = SYMBOLS.get(symbol);
+        if (interned != null) {
+            return interned;
+        }
+        // Symbols are a small closed set, the bound only guards against unexpected input
+        if (SYMBOLS.size() >= MAX_SYMBOLS) {
+            return symbol;
+        }
+        interned = SYMBOLS.putIfAbsent(symbol, symbol);
+        return interned == null ? symbol : interned;
+    }
+}
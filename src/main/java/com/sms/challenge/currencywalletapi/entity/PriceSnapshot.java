@@ -0,0 +1,91 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The type Price snapshot.
+ * <p>
+ * Immutable view of the price matrix as of a refresh instant. Readers never see a partially built snapshot because
+ * a new instance is published as a whole.
+ */
+public final class PriceSnapshot {
+
+    private final Instant refreshedAt;
+    private final PriceMatrix matrix;
+
+    /**
+     * Instantiates a new Price snapshot.
+     *
+     * @param refreshedAt the refreshed at
+     * @param matrix      the matrix
+     */
+    public PriceSnapshot(Instant refreshedAt, PriceMatrix matrix) {
+        this.refreshedAt = refreshedAt;
+        this.matrix = matrix;
+    }
+
+    /**
+     * Gets refreshed at.
+     *
+     * @return the refreshed at
+     */
+    public Instant getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    /**
+     * Gets matrix.
+     *
+     * @return the matrix
+     */
+    public PriceMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * Gets crypto currencies.
+     *
+     * @return the crypto currencies
+     */
+    public List<CryptoCurrency> getCryptoCurrencies() {
+        return this.matrix.toCryptoCurrencies();
+    }
+
+    /**
+     * Find crypto currency.
+     *
+     * @param currency the currency
+     * @return the optional crypto currency
+     */
+    public Optional<CryptoCurrency> find(String currency) {
+        int from = this.matrix.getIndex().ordinal(currency);
+        if (from < 0 || !this.matrix.getIndex().isCrypto(from) || !this.matrix.hasRow(from)) {
+            return Optional.empty();
+        }
+        return Optional.of(this.matrix.toCryptoCurrency(from));
+    }
+
+    /**
+     * Gets the price of a pair.
+     *
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @return the price, or NaN when missing
+     */
+    public double price(String currencyFrom, String currencyTo) {
+        return this.matrix.rate(currencyFrom, currencyTo);
+    }
+
+    /**
+     * Gets the age of the snapshot.
+     *
+     * @param now the now
+     * @return the age
+     */
+    public Duration age(Instant now) {
+        return Duration.between(this.refreshedAt, now);
+    }
+}
@@ -0,0 +1,50 @@
+package com.sms.challenge.currencywalletapi.entity;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * The type Priced.
+ * <p>
+ * A price read together with its freshness: live reads are current, stale reads come from the last known good
+ * snapshot while the upstream API is unavailable.
+ *
+ * @param <T> the value type
+ */
+@Data
+public class Priced<T> {
+
+    private final T value;
+    private final boolean stale;
+    private final Instant asOf;
+
+    private Priced(T value, boolean stale, Instant asOf) {
+        this.value = value;
+        this.stale = stale;
+        this.asOf = asOf;
+    }
+
+    /**
+     * Live priced.
+     *
+     * @param <T>   the value type
+     * @param value the value
+     * @return the priced
+     */
+    public static <T> Priced<T> live(T value) {
+        return new Priced<>(value, false, null);
+    }
+
+    /**
+     * Stale priced.
+     *
+     * @param <T>   the value type
+     * @param value the value
+     * @param asOf  the time the prices were read
+     * @return the priced
+     */
+    public static <T> Priced<T> stale(T value, Instant asOf) {
+        return new Priced<>(value, true, asOf);
+    }
+}
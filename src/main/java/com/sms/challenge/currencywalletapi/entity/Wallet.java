@@ -1,16 +1,28 @@
 package com.sms.challenge.currencywalletapi.entity;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.lang.NonNull;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * The type Wallet.
+ * <p>
+ * The currency amounts are also indexed by currency, so an operation finds or adds the balance of a currency without
+ * scanning the set. The index is built on the first lookup after the wallet is loaded, and again only when the set is
+ * replaced or resized behind it.
  */
 @Data
 @Entity
@@ -30,6 +42,24 @@ public class Wallet {
     @JoinColumn(name = "wallet_id")
     private Set<CurrencyAmount> currencyAmounts;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Map<String, CurrencyAmount> currencyAmountIndex;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Set<CurrencyAmount> indexedCurrencyAmounts;
+
     /**
      * The Created at.
      */
@@ -84,6 +114,52 @@ public class Wallet {
         this.currencyAmounts = currencyAmounts;
     }
 
+    /**
+     * Gets the currency amount of a currency.
+     *
+     * @param currency the currency
+     * @return the currency amount, or null when the wallet does not hold the currency
+     */
+    public CurrencyAmount getCurrencyAmount(String currency) {
+        return this.currencyAmountIndex().get(currency);
+    }
+
+    /**
+     * Gets the currency amount of a currency, adding an empty one at the given scale when the wallet does not hold
+     * the currency yet.
+     *
+     * @param currency the currency
+     * @param scale    the scale of a new currency amount
+     * @return the currency amount
+     */
+    public CurrencyAmount getOrCreateCurrencyAmount(String currency, int scale) {
+        if (this.currencyAmounts == null) {
+            this.currencyAmounts = new HashSet<>();
+        }
+        Map<String, CurrencyAmount> index = this.currencyAmountIndex();
+        CurrencyAmount currencyAmount = index.get(currency);
+        if (currencyAmount == null) {
+            currencyAmount = new CurrencyAmount(currency, 0L, scale);
+            this.currencyAmounts.add(currencyAmount);
+            index.put(currency, currencyAmount);
+        }
+        return currencyAmount;
+    }
+
+    private Map<String, CurrencyAmount> currencyAmountIndex() {
+        // Hibernate replaces the set with its own wrapper on load and on flush, holding the same currency amounts
+        if (this.currencyAmountIndex == null || this.indexedCurrencyAmounts != this.currencyAmounts
+                || this.currencyAmountIndex.size() != (this.currencyAmounts == null ? 0 : this.currencyAmounts.size())) {
+            Map<String, CurrencyAmount> index = new HashMap<>();
+            if (this.currencyAmounts != null) {
+                this.currencyAmounts.forEach(item -> index.put(item.getCurrency(), item));
+            }
+            this.currencyAmountIndex = index;
+            this.indexedCurrencyAmounts = this.currencyAmounts;
+        }
+        return this.currencyAmountIndex;
+    }
+
     /**
      * Builder wallet . builder.
      *
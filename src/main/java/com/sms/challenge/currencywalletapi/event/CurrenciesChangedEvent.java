@@ -0,0 +1,9 @@
+package com.sms.challenge.currencywalletapi.event;
+
+/**
+ * The type Currencies changed event.
+ * <p>
+ * Published when the currencies table is written, so the in-memory views of it are reloaded.
+ */
+public class CurrenciesChangedEvent {
+}
@@ -0,0 +1,43 @@
+package com.sms.challenge.currencywalletapi.event;
+
+import com.sms.challenge.currencywalletapi.entity.Wallet;
+
+/**
+ * The type Wallet changed event.
+ * <p>
+ * Published when a wallet is written, with its new state, or without it when the wallet was deleted.
+ */
+public class WalletChangedEvent {
+
+    private final Long walletId;
+    private final Wallet wallet;
+
+    /**
+     * Instantiates a new Wallet changed event.
+     *
+     * @param walletId the wallet id
+     * @param wallet   the wallet, or null when deleted
+     */
+    public WalletChangedEvent(Long walletId, Wallet wallet) {
+        this.walletId = walletId;
+        this.wallet = wallet;
+    }
+
+    /**
+     * Gets wallet id.
+     *
+     * @return the wallet id
+     */
+    public Long getWalletId() {
+        return walletId;
+    }
+
+    /**
+     * Gets wallet.
+     *
+     * @return the wallet, or null when deleted
+     */
+    public Wallet getWallet() {
+        return wallet;
+    }
+}
@@ -0,0 +1,41 @@
+package com.sms.challenge.currencywalletapi.exception;
+
+/**
+ * The type Conflict exception.
+ */
+public class ConflictException extends RuntimeException {
+
+    /**
+     * Instantiates a new Conflict exception.
+     */
+    public ConflictException() {
+    }
+
+    /**
+     * Instantiates a new Conflict exception.
+     *
+     * @param var1 the var 1
+     */
+    public ConflictException(String var1) {
+        super(var1);
+    }
+
+    /**
+     * Instantiates a new Conflict exception.
+     *
+     * @param var1 the var 1
+     * @param var2 the var 2
+     */
+    public ConflictException(String var1, Throwable var2) {
+        super(var1, var2);
+    }
+
+    /**
+     * Instantiates a new Conflict exception.
+     *
+     * @param var1 the var 1
+     */
+    public ConflictException(Throwable var1) {
+        super(var1);
+    }
+}
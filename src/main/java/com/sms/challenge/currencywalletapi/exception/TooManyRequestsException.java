@@ -0,0 +1,41 @@
+package com.sms.challenge.currencywalletapi.exception;
+
+/**
+ * The type Too many requests exception.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    /**
+     * Instantiates a new Too many requests exception.
+     */
+    public TooManyRequestsException() {
+    }
+
+    /**
+     * Instantiates a new Too many requests exception.
+     *
+     * @param var1 the var 1
+     */
+    public TooManyRequestsException(String var1) {
+        super(var1);
+    }
+
+    /**
+     * Instantiates a new Too many requests exception.
+     *
+     * @param var1 the var 1
+     * @param var2 the var 2
+     */
+    public TooManyRequestsException(String var1, Throwable var2) {
+        super(var1, var2);
+    }
+
+    /**
+     * Instantiates a new Too many requests exception.
+     *
+     * @param var1 the var 1
+     */
+    public TooManyRequestsException(Throwable var1) {
+        super(var1);
+    }
+}
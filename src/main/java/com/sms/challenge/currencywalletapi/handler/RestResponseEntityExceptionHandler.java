@@ -1,8 +1,11 @@
 package com.sms.challenge.currencywalletapi.handler;
 
+import com.sms.challenge.currencywalletapi.exception.ConflictException;
 import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.exception.TooManyRequestsException;
 import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -54,6 +57,20 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
         return handleExceptionInternal(ex, ex.getMessage(), new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE, request);
     }
 
+    /**
+     * Handle too many requests response entity.
+     *
+     * @param ex      the ex
+     * @param request the request
+     * @return the response entity
+     */
+    @ExceptionHandler(value = {TooManyRequestsException.class})
+    protected ResponseEntity<Object> handleTooManyRequests(RuntimeException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(ex, ex.getMessage(), headers, HttpStatus.TOO_MANY_REQUESTS, request);
+    }
+
     /**
      * Handle conflict response entity.
      *
@@ -61,7 +78,7 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
      * @param request the request
      * @return the response entity
      */
-    @ExceptionHandler(value = {IllegalArgumentException.class, IllegalStateException.class, DataIntegrityViolationException.class})
+    @ExceptionHandler(value = {ConflictException.class, IllegalArgumentException.class, IllegalStateException.class, DataIntegrityViolationException.class, ConcurrencyFailureException.class})
     protected ResponseEntity<Object> handleConflict(RuntimeException ex, WebRequest request) {
         String bodyOfResponse = "Conflict: ".concat(ex.getMessage());
         return handleExceptionInternal(ex, bodyOfResponse, new HttpHeaders(), HttpStatus.CONFLICT, request);
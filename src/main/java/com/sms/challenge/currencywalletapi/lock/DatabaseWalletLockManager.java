@@ -0,0 +1,35 @@
+package com.sms.challenge.currencywalletapi.lock;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * The type Database wallet lock manager.
+ * <p>
+ * Leaves the locking to the database: the wallets are read with PESSIMISTIC_WRITE row locks inside the transaction.
+ * Works across several application nodes, at the cost of lock waits holding a JDBC connection.
+ */
+@Component
+public class DatabaseWalletLockManager implements WalletLockManager {
+
+    /**
+     * The constant NAME.
+     */
+    public static final String NAME = "database";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void execute(Collection<Long> walletIds, Runnable action) {
+        action.run();
+    }
+
+    @Override
+    public boolean isDatabaseLock() {
+        return true;
+    }
+}
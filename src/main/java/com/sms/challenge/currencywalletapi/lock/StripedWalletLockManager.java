@@ -0,0 +1,117 @@
+package com.sms.challenge.currencywalletapi.lock;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The type Striped wallet lock manager.
+ * <p>
+ * In-JVM locks for single-node deployments: a fixed array of {@code config.wallet-lock-stripes} locks (rounded up to
+ * a power of two), with each wallet id hashed to one of them. Several wallets are locked in ascending stripe order,
+ * so two callers locking the same wallets cannot deadlock. Two wallets sharing a stripe are serialized together,
+ * which is safe. Waits are bounded by {@code config.wallet-lock-timeout-ms}.
+ */
+@Component
+public class StripedWalletLockManager implements WalletLockManager, MeterBinder {
+
+    /**
+     * The constant NAME.
+     */
+    public static final String NAME = "striped";
+
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private ReentrantLock[] locks;
+
+    private int mask;
+
+    private volatile Timer waitTimer;
+
+    /**
+     * Init the stripes.
+     */
+    @PostConstruct
+    public void init() {
+        int configured = this.appConfig.getWalletLockStripes();
+        int stripes = configured <= 1 ? 1 : Integer.highestOneBit(configured - 1) << 1;
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.mask = stripes - 1;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void execute(Collection<Long> walletIds, Runnable action) {
+        int[] stripes = walletIds.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(this.appConfig.getWalletLockTimeoutMs());
+        int acquired = 0;
+        try {
+            for (int stripe : stripes) {
+                if (!this.locks[stripe].tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    throw new CannotAcquireLockException("Timeout trying to lock wallet");
+                }
+                acquired++;
+            }
+            Timer timer = this.waitTimer;
+            if (timer != null) {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            action.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted trying to lock wallet", e);
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                this.locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    @Override
+    public boolean isDatabaseLock() {
+        return false;
+    }
+
+    /**
+     * Gets the number of stripes.
+     *
+     * @return the stripes
+     */
+    public int getStripes() {
+        return this.locks.length;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.waitTimer = Timer.builder("wallet.lock.wait")
+                .tag("manager", NAME)
+                .description("Time waited for the in-process wallet locks")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private int stripe(Long walletId) {
+        // Fibonacci hashing spreads sequential ids over the stripes
+        return (int) ((walletId * GOLDEN_RATIO) >>> 32) & this.mask;
+    }
+}
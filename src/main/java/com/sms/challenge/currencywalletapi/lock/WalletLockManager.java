@@ -0,0 +1,36 @@
+package com.sms.challenge.currencywalletapi.lock;
+
+import java.util.Collection;
+
+/**
+ * The interface Wallet lock manager.
+ * <p>
+ * Serializes the writes to a wallet in pessimistic mode. Implementations are Spring beans selected by
+ * {@link #getName()} through {@code config.wallet-lock-manager}. Locks are acquired before the write transaction is
+ * opened; a lock that cannot be acquired in time is reported as a
+ * {@link org.springframework.dao.PessimisticLockingFailureException}, which the caller retries.
+ */
+public interface WalletLockManager {
+
+    /**
+     * Gets name.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Run the action holding the locks of the wallets.
+     *
+     * @param walletIds the wallet ids
+     * @param action    the action
+     */
+    void execute(Collection<Long> walletIds, Runnable action);
+
+    /**
+     * Whether the wallets must still be read with a database lock inside the transaction.
+     *
+     * @return the boolean
+     */
+    boolean isDatabaseLock();
+}
@@ -0,0 +1,76 @@
+package com.sms.challenge.currencywalletapi.provider;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.util.PriceMultiDecoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The type Crypto compare price provider.
+ * <p>
+ * Reads prices from the CryptoCompare /pricemulti and /price endpoints. Response bodies are decoded with
+ * {@link PriceMultiDecoder} straight into a {@link PriceMatrix}.
+ */
+@Component
+public class CryptoComparePriceProvider implements PriceProvider {
+
+    /**
+     * The constant NAME.
+     */
+    public static final String NAME = "cryptocompare";
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private WebClient webClient;
+
+    private final PriceMultiDecoder decoder = new PriceMultiDecoder();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo) {
+        return this.retrieve(index, null, String.join(
+                "",
+                this.appConfig.getCryptoCompareApiBaseUrl(),
+                "/pricemulti?fsyms=",
+                String.join(",", currenciesFrom),
+                "&tsyms=",
+                String.join(",", currenciesTo)
+        ));
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, String currencyFrom, List<String> currenciesTo) {
+        return this.retrieve(index, currencyFrom, String.join(
+                "",
+                this.appConfig.getCryptoCompareApiBaseUrl(),
+                "/price?fsym=",
+                currencyFrom,
+                "&tsyms=",
+                String.join(",", currenciesTo)
+        ));
+    }
+
+    private Mono<PriceMatrix> retrieve(CurrencyIndex index, String currencyFrom, String uri) {
+        return DataBufferUtils.join(this.webClient.get()
+                .uri(uri)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class))
+                .map(body -> this.decoder.decode(body.asInputStream(true), index, currencyFrom))
+                .switchIfEmpty(Mono.error(() -> new ExternalServiceException("Invalid price response")));
+    }
+}
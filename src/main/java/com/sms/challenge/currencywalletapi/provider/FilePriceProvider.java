@@ -0,0 +1,117 @@
+package com.sms.challenge.currencywalletapi.provider;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The type File price provider.
+ * <p>
+ * Serves prices from memory for local runs, without network. The prices are loaded on first use from
+ * {@code config.price-provider-file}, a JSON document with the /pricemulti shape, and can be replaced at runtime
+ * through {@link #setPrices(Map)}.
+ */
+@Component
+public class FilePriceProvider implements PriceProvider {
+
+    /**
+     * The constant NAME.
+     */
+    public static final String NAME = "file";
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile Map<String, Map<String, Double>> prices;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo) {
+        return Mono.fromCallable(() -> this.matrix(index, currenciesFrom, currenciesTo));
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, String currencyFrom, List<String> currenciesTo) {
+        return Mono.fromCallable(() -> {
+            if (!this.prices().containsKey(currencyFrom)) {
+                throw new NotFoundException("Currency symbol not found");
+            }
+            return this.matrix(index, Collections.singletonList(currencyFrom), currenciesTo);
+        });
+    }
+
+    /**
+     * Sets prices.
+     *
+     * @param prices the prices by currency from and currency to
+     */
+    public void setPrices(Map<String, Map<String, Double>> prices) {
+        this.prices = prices;
+    }
+
+    private PriceMatrix matrix(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo) {
+        Map<String, Map<String, Double>> data = this.prices();
+        PriceMatrix.Builder builder = PriceMatrix.builder(index);
+        for (String currencyFrom : currenciesFrom) {
+            Map<String, Double> row = data.get(currencyFrom);
+            int from = index.ordinal(currencyFrom);
+            if (row == null || from < 0) {
+                continue;
+            }
+            for (String currencyTo : currenciesTo) {
+                Double price = row.get(currencyTo);
+                int to = index.ordinal(currencyTo);
+                if (price != null && to >= 0) {
+                    builder.set(from, to, price);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private Map<String, Map<String, Double>> prices() {
+        Map<String, Map<String, Double>> current = this.prices;
+        if (current == null) {
+            synchronized (this) {
+                current = this.prices;
+                if (current == null) {
+                    current = this.load();
+                    this.prices = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Map<String, Map<String, Double>> load() {
+        try (InputStream input = this.resourceLoader.getResource(this.appConfig.getPriceProviderFile()).getInputStream()) {
+            return this.objectMapper.readValue(input, new TypeReference<Map<String, Map<String, Double>>>() {
+            });
+        } catch (IOException e) {
+            throw new ExternalServiceException("Price file not available", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.sms.challenge.currencywalletapi.provider;
+
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * The interface Price provider.
+ * <p>
+ * A source of crypto currency prices. Implementations are Spring beans selected by {@link #getName()} through
+ * {@code config.price-provider} and {@code config.price-secondary-provider}. Failures to reach the source are
+ * reported as {@link com.sms.challenge.currencywalletapi.exception.ExternalServiceException}, unknown symbols as
+ * {@link com.sms.challenge.currencywalletapi.exception.NotFoundException}.
+ */
+public interface PriceProvider {
+
+    /**
+     * Gets name.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * Fetch the prices of several currencies.
+     *
+     * @param index          the index
+     * @param currenciesFrom the currencies from
+     * @param currenciesTo   the currencies to
+     * @return the mono of the price matrix
+     */
+    Mono<PriceMatrix> fetch(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo);
+
+    /**
+     * Fetch the prices of a single currency.
+     *
+     * @param index        the index
+     * @param currencyFrom the currency from
+     * @param currenciesTo the currencies to
+     * @return the mono of the price matrix
+     */
+    Mono<PriceMatrix> fetch(CurrencyIndex index, String currencyFrom, List<String> currenciesTo);
+}
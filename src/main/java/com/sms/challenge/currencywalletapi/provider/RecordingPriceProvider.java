@@ -0,0 +1,161 @@
+package com.sms.challenge.currencywalletapi.provider;
+
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.util.PriceTape;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The type Recording price provider.
+ * <p>
+ * Decorates a provider and appends every response, with its request time and latency, to a {@link PriceTape} that
+ * {@link ReplayPriceProvider} can serve later. The responses arrive on the event loop threads, so the records are only
+ * queued there: a single background thread writes them to the tape, flushing once per batch of queued records. When
+ * the queue is full the record is dropped rather than holding up the response.
+ */
+public class RecordingPriceProvider implements PriceProvider, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RecordingPriceProvider.class);
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final PriceProvider delegate;
+
+    private final PriceTape.Writer writer;
+
+    private final BlockingQueue<PriceTape.Record> records;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    /**
+     * Instantiates a new Recording price provider.
+     *
+     * @param delegate the delegate
+     * @param writer   the writer, owned by this provider from now on
+     * @param capacity the most records waiting to be written
+     */
+    public RecordingPriceProvider(PriceProvider delegate, PriceTape.Writer writer, int capacity) {
+        this.delegate = delegate;
+        this.writer = writer;
+        this.records = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.thread = new Thread(this::drain, "price-tape-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public String getName() {
+        return this.delegate.getName();
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo) {
+        return this.record(false, currenciesFrom, currenciesTo, () -> this.delegate.fetch(index, currenciesFrom, currenciesTo));
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, String currencyFrom, List<String> currenciesTo) {
+        return this.record(true, Collections.singletonList(currencyFrom), currenciesTo, () -> this.delegate.fetch(
+                index,
+                currencyFrom,
+                currenciesTo
+        ));
+    }
+
+    private Mono<PriceMatrix> record(boolean single, List<String> currenciesFrom, List<String> currenciesTo,
+                                     Supplier<Mono<PriceMatrix>> call) {
+        return Mono.defer(() -> {
+            long timestamp = System.currentTimeMillis();
+            long start = System.nanoTime();
+            return call.get()
+                    .doOnSuccess(matrix -> this.append(PriceTape.Record.ok(
+                            timestamp,
+                            this.latencyMicros(start),
+                            single,
+                            currenciesFrom,
+                            currenciesTo,
+                            matrix
+                    )))
+                    .doOnError(error -> this.append(PriceTape.Record.failed(
+                            timestamp,
+                            this.latencyMicros(start),
+                            single,
+                            currenciesFrom,
+                            currenciesTo,
+                            error instanceof NotFoundException ? PriceTape.Outcome.NOT_FOUND : PriceTape.Outcome.ERROR,
+                            error.getMessage()
+                    )));
+        });
+    }
+
+    private int latencyMicros(long start) {
+        return (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * Write the queued records and close the tape.
+     *
+     * @throws IOException the io exception
+     */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.writer.close();
+        if (this.dropped.get() > 0) {
+            LOG.warn("Price tape dropped {} records, the queue was full", this.dropped.get());
+        }
+    }
+
+    private void append(PriceTape.Record record) {
+        if (!this.records.offer(record)) {
+            this.dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        List<PriceTape.Record> batch = new ArrayList<>();
+        while (!this.closed || !this.records.isEmpty()) {
+            try {
+                PriceTape.Record first = this.records.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                this.records.drainTo(batch);
+                for (PriceTape.Record record : batch) {
+                    this.writer.append(record);
+                }
+                this.writer.flush();
+            } catch (IOException e) {
+                LOG.warn("Price tape record failed {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.sms.challenge.currencywalletapi.provider;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.util.PriceTape;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The type Replay price provider.
+ * <p>
+ * Serves the responses of a {@link PriceTape} recorded by {@link RecordingPriceProvider}, without network. The tape
+ * clock starts at the first recorded request when the first call is replayed, and advances
+ * {@code config.price-replay-time-compression} times faster than the wall clock. Each call gets the latest response
+ * recorded for the same fsyms and tsyms at the current tape time, or, for a request never recorded as such, the
+ * latest recorded rate of every requested pair. Latency is injected according to
+ * {@code config.price-replay-latency-mode}: {@code recorded}, {@code fixed}, {@code exponential} (with
+ * {@code config.price-replay-latency-ms} as mean) or {@code none}, drawn from a seeded random for repeatable runs.
+ */
+@Component
+public class ReplayPriceProvider implements PriceProvider {
+
+    /**
+     * The constant NAME.
+     */
+    public static final String NAME = "replay";
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private Clock clock;
+
+    private volatile Tape tape;
+
+    private Random random;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo) {
+        return this.replay(index, false, currenciesFrom, currenciesTo);
+    }
+
+    @Override
+    public Mono<PriceMatrix> fetch(CurrencyIndex index, String currencyFrom, List<String> currenciesTo) {
+        return this.replay(index, true, Collections.singletonList(currencyFrom), currenciesTo);
+    }
+
+    /**
+     * Load a tape, restarting the replay from its first record.
+     *
+     * @param input the input
+     * @throws IOException the io exception
+     */
+    public synchronized void load(InputStream input) throws IOException {
+        this.tape = new Tape(PriceTape.read(input), this.clock.millis());
+        this.random = new Random(this.appConfig.getPriceReplaySeed());
+    }
+
+    private Mono<PriceMatrix> replay(CurrencyIndex index, boolean single, List<String> currenciesFrom, List<String> currenciesTo) {
+        return Mono.defer(() -> {
+            Tape current = this.tape();
+            long tapeTime = current.tapeTime(this.clock.millis(), this.appConfig.getPriceReplayTimeCompression());
+            PriceTape.Record record = current.latest(this.key(single, currenciesFrom, currenciesTo), tapeTime);
+            Mono<PriceMatrix> response;
+            if (record == null) {
+                response = Mono.fromCallable(() -> current.merged(index, single, currenciesFrom, currenciesTo, tapeTime));
+            } else if (record.getOutcome() == PriceTape.Outcome.NOT_FOUND) {
+                response = Mono.error(new NotFoundException(record.getMessage()));
+            } else if (record.getOutcome() == PriceTape.Outcome.ERROR) {
+                response = Mono.error(new ExternalServiceException(record.getMessage()));
+            } else {
+                response = Mono.just(record.toMatrix(index));
+            }
+            Duration latency = this.latency(record);
+            return latency.isZero() ? response : Mono.delay(latency).then(response);
+        });
+    }
+
+    private Duration latency(PriceTape.Record record) {
+        String mode = this.appConfig.getPriceReplayLatencyMode();
+        long mean = this.appConfig.getPriceReplayLatencyMs();
+        if ("recorded".equals(mode)) {
+            return record == null ? Duration.ofMillis(mean) : Duration.ofNanos(record.getLatencyMicros() * 1000L);
+        }
+        if ("fixed".equals(mode)) {
+            return Duration.ofMillis(mean);
+        }
+        if ("exponential".equals(mode)) {
+            double sample;
+            synchronized (this) {
+                sample = this.random.nextDouble();
+            }
+            return Duration.ofNanos((long) (-Math.log(1 - sample) * mean * 1_000_000));
+        }
+        return Duration.ZERO;
+    }
+
+    private String key(boolean single, List<String> currenciesFrom, List<String> currenciesTo) {
+        return String.join("", single ? "price?fsym=" : "pricemulti?fsyms=", String.join(",", currenciesFrom),
+                "&tsyms=", String.join(",", currenciesTo));
+    }
+
+    private Tape tape() {
+        Tape current = this.tape;
+        if (current == null) {
+            synchronized (this) {
+                current = this.tape;
+                if (current == null) {
+                    try (InputStream input = Files.newInputStream(Paths.get(this.appConfig.getPriceReplayFile()))) {
+                        this.load(input);
+                    } catch (IOException e) {
+                        throw new ExternalServiceException("Price tape not available", e);
+                    }
+                    current = this.tape;
+                }
+            }
+        }
+        return current;
+    }
+
+    private final class Tape {
+
+        private final List<PriceTape.Record> records;
+        private final Map<String, List<PriceTape.Record>> byKey = new HashMap<>();
+        private final long startedAt;
+
+        private Tape(List<PriceTape.Record> records, long startedAt) {
+            // Records are appended on completion, so slower calls may follow later requests
+            this.records = new ArrayList<>(records);
+            this.records.sort(Comparator.comparingLong(PriceTape.Record::getTimestamp));
+            this.startedAt = startedAt;
+            for (PriceTape.Record record : this.records) {
+                this.byKey.computeIfAbsent(
+                        key(record.isSingle(), record.getCurrenciesFrom(), record.getCurrenciesTo()),
+                        key -> new ArrayList<>()
+                ).add(record);
+            }
+        }
+
+        private long tapeTime(long now, double compression) {
+            long first = this.records.isEmpty() ? 0 : this.records.get(0).getTimestamp();
+            return first + (long) ((now - this.startedAt) * compression);
+        }
+
+        private PriceTape.Record latest(String key, long tapeTime) {
+            List<PriceTape.Record> candidates = this.byKey.get(key);
+            if (candidates == null) {
+                return null;
+            }
+            PriceTape.Record latest = candidates.get(0);
+            for (PriceTape.Record candidate : candidates) {
+                if (candidate.getTimestamp() > tapeTime) {
+                    break;
+                }
+                latest = candidate;
+            }
+            return latest;
+        }
+
+        private PriceMatrix merged(CurrencyIndex index, boolean single, List<String> currenciesFrom,
+                                   List<String> currenciesTo, long tapeTime) {
+            PriceMatrix.Builder builder = PriceMatrix.builder(index);
+            boolean found = false;
+            for (String currencyFrom : currenciesFrom) {
+                for (String currencyTo : currenciesTo) {
+                    double rate = this.latestRate(currencyFrom, currencyTo, tapeTime);
+                    int from = index.ordinal(currencyFrom);
+                    int to = index.ordinal(currencyTo);
+                    if (!Double.isNaN(rate) && from >= 0 && to >= 0) {
+                        builder.set(from, to, rate);
+                        found = true;
+                    }
+                }
+            }
+            if (single && !found) {
+                throw new NotFoundException("Currency symbol not found");
+            }
+            return builder.build();
+        }
+
+        private double latestRate(String currencyFrom, String currencyTo, long tapeTime) {
+            double rate = Double.NaN;
+            for (PriceTape.Record record : this.records) {
+                if (record.getTimestamp() > tapeTime && !Double.isNaN(rate)) {
+                    break;
+                }
+                double recorded = record.rate(currencyFrom, currencyTo);
+                if (!Double.isNaN(recorded)) {
+                    rate = recorded;
+                }
+            }
+            return rate;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.sms.challenge.currencywalletapi.repository;
+
+import com.sms.challenge.currencywalletapi.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+
+/**
+ * The interface Idempotency key repository.
+ */
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+
+    /**
+     * Find by idempotency key.
+     *
+     * @param idempotencyKey the idempotency key
+     * @return the idempotency key
+     */
+    IdempotencyKey findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Delete a claim whose operation was never queued. By id, so a claim taken over since is left alone.
+     *
+     * @param id the id
+     * @return the number of deleted rows
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.id = :id and k.operationId is null")
+    int deleteClaim(@Param("id") Long id);
+
+    /**
+     * Delete the keys created before a time.
+     *
+     * @param createdAt the created at
+     * @return the number of deleted rows
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :createdAt")
+    int deleteCreatedBefore(@Param("createdAt") LocalDateTime createdAt);
+}
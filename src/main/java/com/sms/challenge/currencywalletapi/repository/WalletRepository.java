@@ -8,6 +8,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -41,4 +43,17 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("select w from Wallet w where w.id = :id")
     Optional<Wallet> findByIdForWrite(@Param("id") Long id);
+
+    /**
+     * Find all by id for write list.
+     * <p>
+     * Takes the PESSIMISTIC_WRITE locks of several wallets in a single query, in ascending id order. As every caller
+     * locks in the same global order, two transactions locking the same wallets cannot deadlock.
+     *
+     * @param ids the ids
+     * @return the wallets, ordered by id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from Wallet w where w.id in :ids order by w.id")
+    List<Wallet> findAllByIdForWrite(@Param("ids") Collection<Long> ids);
 }
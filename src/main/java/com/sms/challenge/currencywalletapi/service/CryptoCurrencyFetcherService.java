@@ -1,25 +1,49 @@
 package com.sms.challenge.currencywalletapi.service;
 
 import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
 import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.provider.PriceProvider;
+import com.sms.challenge.currencywalletapi.provider.RecordingPriceProvider;
+import com.sms.challenge.currencywalletapi.util.CircuitBreaker;
+import com.sms.challenge.currencywalletapi.util.LatencyWindow;
+import com.sms.challenge.currencywalletapi.util.PriceTape;
+import com.sms.challenge.currencywalletapi.util.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
  * The type Crypto currency fetcher service.
+ * <p>
+ * Concurrent identical requests (same fsyms and tsyms) share a single pending upstream call, so a cache expiration
+ * does not turn into one HTTP call per waiting caller. Prices come from the configured primary {@link PriceProvider}
+ * through a {@link CircuitBreaker}: while it is failing or slow, calls fail fast with an
+ * {@link ExternalServiceException} instead of waiting for the client timeouts, and a single probe call checks whether
+ * it recovered. When a secondary provider is configured, failed primary calls fail over to it, and in hedging mode
+ * the secondary is also fired when the primary has not answered within a percentile of its recent latency; the first
+ * answer wins. With {@code config.price-record-file} set, primary responses are recorded to a {@link PriceTape}.
  */
 @Service
-public class CryptoCurrencyFetcherService {
+public class CryptoCurrencyFetcherService implements MeterBinder {
 
     private static final Logger LOG = LoggerFactory.getLogger(CryptoCurrencyFetcherService.class);
 
@@ -27,81 +51,211 @@ public class CryptoCurrencyFetcherService {
     private AppConfig appConfig;
 
     @Autowired
-    private WebClient webClient;
+    private List<PriceProvider> providers;
+
+    private final SingleFlight<String, PriceMatrix> singleFlight = new SingleFlight<>();
+
+    private final AtomicLong failovers = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    private PriceProvider primary;
+
+    private PriceProvider secondary;
+
+    private CircuitBreaker circuitBreaker;
+
+    private LatencyWindow latencyWindow;
+
+    private RecordingPriceProvider recorder;
+
+    /**
+     * Init the providers and the circuit breaker.
+     */
+    @PostConstruct
+    public void init() {
+        this.primary = this.provider(this.appConfig.getPriceProvider());
+        String secondaryName = this.appConfig.getPriceSecondaryProvider();
+        this.secondary = secondaryName == null || secondaryName.isEmpty() ? null : this.provider(secondaryName);
+        String recordFile = this.appConfig.getPriceRecordFile();
+        if (recordFile != null && !recordFile.isEmpty()) {
+            PriceTape.Writer writer;
+            try {
+                writer = new PriceTape.Writer(Paths.get(recordFile));
+            } catch (IOException e) {
+                throw new IllegalStateException("Price tape not writable " + recordFile, e);
+            }
+            this.recorder = new RecordingPriceProvider(this.primary, writer, this.appConfig.getPriceRecordQueueCapacity());
+            this.primary = this.recorder;
+        }
+        this.circuitBreaker = new CircuitBreaker(
+                this.appConfig.getPriceCircuitWindowSize(),
+                this.appConfig.getPriceCircuitMinimumCalls(),
+                this.appConfig.getPriceCircuitFailureRateThreshold(),
+                this.appConfig.getPriceCircuitSlowCallRateThreshold(),
+                this.appConfig.getPriceCircuitSlowCallMs(),
+                this.appConfig.getPriceCircuitOpenMs()
+        );
+        this.latencyWindow = new LatencyWindow(this.appConfig.getPriceHedgeWindowSize());
+    }
 
     /**
-     * Fetch map width Cache-Aside for throughput.
+     * Close the price tape.
      *
+     * @throws IOException the io exception
+     */
+    @PreDestroy
+    public void destroy() throws IOException {
+        if (this.recorder != null) {
+            this.recorder.close();
+        }
+    }
+
+    /**
+     * Fetch price matrix.
+     *
+     * @param index          the index
      * @param currenciesFrom the currencies from
      * @param currenciesTo   the currencies to
-     * @return the map
+     * @return the price matrix
      */
-    public Map<String, Map<String, Number>> fetch(List<String> currenciesFrom, List<String> currenciesTo) {
-        String from = currenciesFrom.stream().collect(Collectors.joining(","));
-        String to = currenciesTo.stream().collect(Collectors.joining(","));
-
-        Map<String, Map<String, Number>> data = webClient.get()
-                .uri(String.join(
-                        "",
-                        appConfig.getCryptoCompareApiBaseUrl(),
-                        "/pricemulti?fsyms=",
-                        from,
-                        "&tsyms=",
-                        to
-                ))
-                .retrieve()
-                .bodyToMono(Map.class)
-                .doOnError(error -> LOG.error("An error has occurred {}", error.getMessage()))
-                .onErrorResume(error -> Mono.just(new HashMap<>()))
-                .block();
-        if (data.get("Response") != null) {
-            String response = String.valueOf(data.get("Response"));
-            if (response.equals("Error")) {
-                String message = String.valueOf(data.get("Message"));
-                if (message.contains("market does not exist for this coin pair")) {
-                    throw new NotFoundException("Currency symbol not found");
-                }
-                throw new ExternalServiceException(message);
-            }
-        }
+    public PriceMatrix fetch(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo) {
+        return this.fetchAsync(index, currenciesFrom, currenciesTo).block();
+    }
 
-        return data;
+    /**
+     * Fetch price matrix without blocking the caller thread.
+     *
+     * @param index          the index
+     * @param currenciesFrom the currencies from
+     * @param currenciesTo   the currencies to
+     * @return the mono of the price matrix
+     */
+    public Mono<PriceMatrix> fetchAsync(CurrencyIndex index, List<String> currenciesFrom, List<String> currenciesTo) {
+        String key = String.join("", "pricemulti?fsyms=", String.join(",", currenciesFrom), "&tsyms=", String.join(",", currenciesTo));
+        return this.retrieve(key, provider -> provider.fetch(index, currenciesFrom, currenciesTo));
     }
 
     /**
-     * Fetch map.
+     * Fetch the prices of a single currency without blocking the caller thread.
      *
+     * @param index        the index
      * @param currencyFrom the currency from
-     * @param currencyTo   the currency to
-     * @return the map
+     * @param currenciesTo the currencies to
+     * @return the mono of the price matrix
      */
-    public Map<String, Number> fetch(String currencyFrom, String currencyTo) {
-        Map<String, Number> data = webClient.get()
-                .uri(String.join(
-                        "",
-                        appConfig.getCryptoCompareApiBaseUrl(),
-                        "/price?fsym=",
-                        currencyFrom,
-                        "&tsyms=",
-                        currencyTo
-                ))
-                .retrieve()
-                .bodyToMono(Map.class)
-                .doOnError(error -> LOG.error("An error has occurred {}", error.getMessage()))
-                .onErrorResume(error -> Mono.just(new HashMap<>()))
-                .block();
-        if (data.get("Response") != null) {
-            String response = String.valueOf(data.get("Response"));
-            if (response.equals("Error")) {
-                String message = String.valueOf(data.get("Message"));
-                if (message.contains("market does not exist for this coin pair")) {
-                    throw new NotFoundException("Currency symbol not found");
-                }
-                throw new ExternalServiceException(message);
+    public Mono<PriceMatrix> fetchAsync(CurrencyIndex index, String currencyFrom, List<String> currenciesTo) {
+        String key = String.join("", "price?fsym=", currencyFrom, "&tsyms=", String.join(",", currenciesTo));
+        return this.retrieve(key, provider -> provider.fetch(index, currencyFrom, currenciesTo));
+    }
+
+    /**
+     * Gets the number of upstream calls saved by joining an identical pending call.
+     *
+     * @return the coalesced count
+     */
+    public long getCoalescedCount() {
+        return this.singleFlight.getCoalesced();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("crypto.fetcher.coalesced", this.singleFlight, SingleFlight::getCoalesced)
+                .description("Upstream price calls saved by joining an identical pending call")
+                .register(registry);
+        Gauge.builder("crypto.fetcher.in-flight", this.singleFlight, SingleFlight::getInFlight)
+                .description("Upstream price calls currently pending")
+                .register(registry);
+        Gauge.builder("crypto.fetcher.circuit.state", this.circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Upstream circuit state: 0 closed, 1 open, 2 half open")
+                .register(registry);
+        FunctionCounter.builder("crypto.fetcher.circuit.rejected", this.circuitBreaker, CircuitBreaker::getRejected)
+                .description("Upstream price calls rejected while the circuit is open")
+                .register(registry);
+        FunctionCounter.builder("crypto.fetcher.secondary", this.failovers, AtomicLong::get)
+                .tag("reason", "failover")
+                .description("Calls sent to the secondary price provider")
+                .register(registry);
+        FunctionCounter.builder("crypto.fetcher.secondary", this.hedges, AtomicLong::get)
+                .tag("reason", "hedge")
+                .description("Calls sent to the secondary price provider")
+                .register(registry);
+        FunctionCounter.builder("crypto.fetcher.hedge.won", this.hedgesWon, AtomicLong::get)
+                .description("Hedged calls answered first by the secondary price provider")
+                .register(registry);
+    }
+
+    private PriceProvider provider(String name) {
+        return this.providers.stream()
+                .filter(provider -> provider.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown price provider " + name));
+    }
+
+    private Mono<PriceMatrix> retrieve(String key, Function<PriceProvider, Mono<PriceMatrix>> call) {
+        // The key carries the fsyms and tsyms, so it is the deduplication key
+        return this.singleFlight.execute(key, () -> Mono.defer(() -> {
+            Mono<PriceMatrix> fromPrimary = this.guarded(call);
+            if (this.secondary == null) {
+                return fromPrimary;
             }
-        }
+            // Shared, so a hedge and a failover of the same call reach the secondary only once
+            Mono<PriceMatrix> fromSecondary = Mono.defer(() -> call.apply(this.secondary))
+                    .doOnError(error -> LOG.error("An error has occurred on {} {}", this.secondary.getName(), error.getMessage()))
+                    .cache();
+            Mono<PriceMatrix> withFailover = fromPrimary.onErrorResume(ExternalServiceException.class, error -> {
+                this.failovers.incrementAndGet();
+                return fromSecondary;
+            });
+            if (!this.appConfig.isPriceHedgeEnabled()) {
+                return withFailover;
+            }
+            Mono<PriceMatrix> hedge = Mono.delay(this.hedgeDelay())
+                    .doOnNext(tick -> this.hedges.incrementAndGet())
+                    .then(fromSecondary)
+                    .doOnNext(matrix -> this.hedgesWon.incrementAndGet())
+                    // A failed hedge must not win over a primary that may still answer
+                    .onErrorResume(error -> Mono.never());
+            return Mono.first(withFailover, hedge);
+        }));
+    }
 
-        return data;
+    private Mono<PriceMatrix> guarded(Function<PriceProvider, Mono<PriceMatrix>> call) {
+        return Mono.defer(() -> {
+            if (!this.circuitBreaker.tryAcquire()) {
+                return Mono.error(new ExternalServiceException("Price service unavailable"));
+            }
+            long start = System.nanoTime();
+            return call.apply(this.primary)
+                    .doOnSuccess(matrix -> {
+                        long duration = System.nanoTime() - start;
+                        this.latencyWindow.record(duration);
+                        this.circuitBreaker.onSuccess(duration);
+                    })
+                    .doOnError(error -> {
+                        LOG.error("An error has occurred {}", error.getMessage());
+                        // An unknown symbol is a valid upstream answer, not a sign of an unhealthy service
+                        if (error instanceof NotFoundException) {
+                            this.circuitBreaker.onSuccess(System.nanoTime() - start);
+                        } else {
+                            this.circuitBreaker.onError(System.nanoTime() - start);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        // Cancelled by a winning hedge: still a lower bound of the primary latency
+                        this.latencyWindow.record(System.nanoTime() - start);
+                        this.circuitBreaker.onCancel();
+                    })
+                    .onErrorMap(
+                            error -> !(error instanceof NotFoundException || error instanceof ExternalServiceException),
+                            error -> new ExternalServiceException("Price service unavailable", error)
+                    );
+        });
     }
 
+    private Duration hedgeDelay() {
+        long percentile = this.latencyWindow.percentile(this.appConfig.getPriceHedgePercentile());
+        long minimum = TimeUnit.MILLISECONDS.toNanos(this.appConfig.getPriceHedgeMinDelayMs());
+        return Duration.ofNanos(Math.max(percentile, minimum));
+    }
 }
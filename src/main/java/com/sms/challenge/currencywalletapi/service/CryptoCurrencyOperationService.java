@@ -1,29 +1,85 @@
 package com.sms.challenge.currencywalletapi.service;
 
 import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.domain.BatchMode;
+import com.sms.challenge.currencywalletapi.domain.BatchOperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationResultDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
 import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import com.sms.challenge.currencywalletapi.entity.Conversion;
 import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
 import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.lock.WalletLockManager;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
+import com.sms.challenge.currencywalletapi.util.WriteCombiner;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
 
-import javax.transaction.Transactional;
-import java.util.Optional;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * The type Crypto currency operation service.
+ * <p>
+ * Each operation is split in a quote phase, which resolves the price before any transaction is opened, and an apply
+ * phase, which runs in its own short transaction and only checks the balances and writes. With
+ * {@code config.wallet-lock-mode=pessimistic} the wallets are locked for the apply phase, always in ascending id
+ * order, by the {@link WalletLockManager} named by {@code config.wallet-lock-manager}: row locks taken in the
+ * transaction, or in-process locks taken before it, so that waiting for them never holds a connection. With
+ * {@code optimistic} they are read without a lock and a conflicting concurrent update is retried, see
+ * {@link WalletLockMode}. Lock timeouts are retried in both modes.
+ * <p>
+ * Operations on the hot wallets listed in {@code config.wallet-combine-ids} are not applied one by one: they are
+ * queued per wallet and applied in batches by a {@link WriteCombiner}, one transaction per batch, while each caller
+ * still waits for its own result.
+ * <p>
+ * A {@link #batch(List, BatchMode) batch} quotes all its prices up front and applies all its operations in one
+ * transaction, with all their wallets locked together, instead of paying for a transaction and a lock round per
+ * operation.
  */
 @Service
-@Transactional
-public class CryptoCurrencyOperationService {
+public class CryptoCurrencyOperationService implements MeterBinder {
 
     @Autowired
     private CryptoCurrencyService cryptoCurrencyService;
 
     @Autowired
-    private CurrencyService currencyService;
+    private CurrencyRegistry currencyRegistry;
 
     @Autowired
     private WalletService walletService;
@@ -31,6 +87,31 @@ public class CryptoCurrencyOperationService {
     @Autowired
     private AppConfig appConfig;
 
+    @Autowired
+    private TransactionOperations transactionOperations;
+
+    @Autowired
+    private List<WalletLockManager> lockManagers;
+
+    private Map<String, WalletLockManager> lockManagersByName;
+
+    private ExecutorService combinerExecutor;
+
+    private WriteCombiner<Long, WalletWrite> combiner;
+
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong lockTimeouts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    private volatile Timer quoteTimer;
+
+    private volatile Map<WalletLockMode, Timer> lockHoldTimers;
+
+    private volatile DistributionSummary batchSizeSummary;
+
+    private volatile DistributionSummary batchOperationsSummary;
+
     /**
      * Buy.
      *
@@ -39,7 +120,7 @@ public class CryptoCurrencyOperationService {
      * @param currencyTo   the currency to
      * @param amount       the amount
      */
-    public void buy(Long walletId, String currencyFrom, String currencyTo, Double amount) {
+    public void buy(Long walletId, String currencyFrom, String currencyTo, BigDecimal amount) {
         this.buy(walletId, currencyFrom, currencyTo, amount, null, null);
     }
 
@@ -52,7 +133,7 @@ public class CryptoCurrencyOperationService {
      * @param amount       the amount
      * @param price        the price
      */
-    public void buy(Long walletId, String currencyFrom, String currencyTo, Double amount, Double price) {
+    public void buy(Long walletId, String currencyFrom, String currencyTo, BigDecimal amount, Double price) {
         this.buy(walletId, currencyFrom, currencyTo, amount, price, Boolean.FALSE);
     }
 
@@ -66,32 +147,50 @@ public class CryptoCurrencyOperationService {
      * @param price         the price
      * @param validatePrice the validate price
      */
-    public void buy(Long walletId, String currencyFrom, String currencyTo, Double amount, Double price, Boolean validatePrice) {
+    public void buy(Long walletId, String currencyFrom, String currencyTo, BigDecimal amount, Double price, Boolean validatePrice) {
         this.validateBuyInputs(walletId, currencyFrom, currencyTo, amount);
-        Wallet wallet = this.walletService.findForWrite(walletId);
+        double value = this.quote(currencyFrom, currencyTo, price, validatePrice);
+        int scale = this.currencyRegistry.scale(currencyFrom);
+        long units = this.toMinorUnits(amount, scale);
+        Long combineKey = this.combineKey(walletId);
+        if (combineKey != null) {
+            this.combine(combineKey, new WalletWrite(walletId, null, currencyFrom, currencyTo, units, scale, value));
+            return;
+        }
+        this.write(Collections.singletonList(walletId), () -> this.applyBuy(walletId, currencyFrom, currencyTo, units, scale, value));
+    }
+
+    /**
+     * Check the inputs of a buy that need neither the wallet nor a price, so a malformed buy can be rejected before
+     * it is queued.
+     *
+     * @param walletId     the wallet id
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @param amount       the amount
+     */
+    public void validateBuy(Long walletId, String currencyFrom, String currencyTo, BigDecimal amount) {
+        this.validateBuyInputs(walletId, currencyFrom, currencyTo, amount);
+        this.checkCurrencies(currencyFrom, currencyTo);
+        this.toMinorUnits(amount, this.currencyRegistry.scale(currencyFrom));
+    }
+
+    private void applyBuy(Long walletId, String currencyFrom, String currencyTo, long amount, int scale, double value) {
+        Wallet wallet = this.findForWrite(walletId);
+        this.applyBuy(wallet, currencyFrom, currencyTo, amount, scale, value);
+        // Update the wallet
+        this.walletService.update(wallet);
+    }
+
+    /**
+     * Check and apply a buy to the loaded wallet. Every check is done before the first change.
+     */
+    private void applyBuy(Wallet wallet, String currencyFrom, String currencyTo, long amount, int scale, double value) {
         // Data validations
         if (wallet == null) {
             throw new NotFoundException("Wallet not found");
         }
-        if (this.currencyService.findBySymbol(currencyFrom) == null) {
-            throw new NotFoundException("Currency from not found");
-        }
-        if (this.currencyService.findBySymbol(currencyTo) == null) {
-            throw new NotFoundException("Currency to not found");
-        }
-        CurrencyAmount currencyAmountFrom = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(currencyFrom)).findFirst().orElseThrow(() -> new ValidationException("Wallet does not contain the currency from"));
-        if (amount > currencyAmountFrom.getAmount()) {
-            throw new ValidationException("The amount exceeds the available");
-        }
-        // Conversion
-        Double value = this.getFinalPrice(currencyFrom, currencyTo, price, validatePrice);
-        // Substracts the amount in the from currency
-        currencyAmountFrom.setAmount(currencyAmountFrom.getAmount() - amount);
-        // Update the amount in destination currency
-        Optional<CurrencyAmount> optionalCurrencyAmount = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(currencyTo)).findFirst();
-        this.updateCurrencyAmountTo(wallet, currencyTo, amount, value, optionalCurrencyAmount);
-        // Update the wallet
-        this.walletService.update(wallet);
+        this.move(wallet, wallet, currencyFrom, currencyTo, amount, scale, value, "Wallet does not contain the currency from");
     }
 
     /**
@@ -103,7 +202,7 @@ public class CryptoCurrencyOperationService {
      * @param currencyTo   the currency to
      * @param amount       the amount
      */
-    public void transfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, Double amount) {
+    public void transfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, BigDecimal amount) {
         this.transfer(walletIdFrom, walletIdTo, currencyFrom, currencyTo, amount, null, null);
     }
 
@@ -117,7 +216,7 @@ public class CryptoCurrencyOperationService {
      * @param amount       the amount
      * @param price        the price
      */
-    public void transfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, Double amount, Double price) {
+    public void transfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, BigDecimal amount, Double price) {
         this.transfer(walletIdFrom, walletIdTo, currencyFrom, currencyTo, amount, price, Boolean.FALSE);
     }
 
@@ -132,10 +231,50 @@ public class CryptoCurrencyOperationService {
      * @param price         the price
      * @param validatePrice the validate price
      */
-    public void transfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, Double amount, Double price, Boolean validatePrice) {
+    public void transfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, BigDecimal amount, Double price, Boolean validatePrice) {
+        this.validateTransferInputs(walletIdFrom, walletIdTo, currencyFrom, currencyTo, amount);
+        double value = this.quote(currencyFrom, currencyTo, price, validatePrice);
+        int scale = this.currencyRegistry.scale(currencyFrom);
+        long units = this.toMinorUnits(amount, scale);
+        // Credits to a hot wallet are the common case, so they are combined on the receiving wallet first
+        Long combineKey = this.combineKey(walletIdTo, walletIdFrom);
+        if (combineKey != null) {
+            this.combine(combineKey, new WalletWrite(walletIdFrom, walletIdTo, currencyFrom, currencyTo, units, scale, value));
+            return;
+        }
+        this.write(Arrays.asList(walletIdFrom, walletIdTo), () -> this.applyTransfer(walletIdFrom, walletIdTo, currencyFrom, currencyTo, units, scale, value));
+    }
+
+    /**
+     * Check the inputs of a transfer that need neither the wallets nor a price, so a malformed transfer can be
+     * rejected before it is queued.
+     *
+     * @param walletIdFrom the wallet id from
+     * @param walletIdTo   the wallet id to
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @param amount       the amount
+     */
+    public void validateTransfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, BigDecimal amount) {
         this.validateTransferInputs(walletIdFrom, walletIdTo, currencyFrom, currencyTo, amount);
-        Wallet walletFrom = this.walletService.findForWrite(walletIdFrom);
-        Wallet walletTo = this.walletService.findForWrite(walletIdTo);
+        this.checkCurrencies(currencyFrom, currencyTo);
+        this.toMinorUnits(amount, this.currencyRegistry.scale(currencyFrom));
+    }
+
+    private void applyTransfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, long amount, int scale, double value) {
+        Map<Long, Wallet> wallets = this.findAllForWrite(Arrays.asList(walletIdFrom, walletIdTo));
+        Wallet walletFrom = wallets.get(walletIdFrom);
+        Wallet walletTo = wallets.get(walletIdTo);
+        this.applyTransfer(walletFrom, walletTo, currencyFrom, currencyTo, amount, scale, value);
+        // Update both wallets
+        this.walletService.update(walletFrom);
+        this.walletService.update(walletTo);
+    }
+
+    /**
+     * Check and apply a transfer to the loaded wallets. Every check is done before the first change.
+     */
+    private void applyTransfer(Wallet walletFrom, Wallet walletTo, String currencyFrom, String currencyTo, long amount, int scale, double value) {
         // Data validations
         if (walletFrom == null) {
             throw new NotFoundException("Wallet from not found");
@@ -143,59 +282,467 @@ public class CryptoCurrencyOperationService {
         if (walletTo == null) {
             throw new NotFoundException("Wallet to not found");
         }
-        if (this.currencyService.findBySymbol(currencyFrom) == null) {
-            throw new NotFoundException("Currency from not found");
-        }
-        if (this.currencyService.findBySymbol(currencyTo) == null) {
-            throw new NotFoundException("Currency to not found");
+        this.move(walletFrom, walletTo, currencyFrom, currencyTo, amount, scale, value, "Wallet from does not contain the currency from");
+    }
+
+    /**
+     * Debit the amount from a wallet and credit its value to another, or to the same one for a buy. The balances are
+     * long minor units: the debit is exact, the credit is rounded to the nearest minor unit of the currency to, and
+     * an overflow is rejected before the first change.
+     */
+    private void move(Wallet walletFrom, Wallet walletTo, String currencyFrom, String currencyTo, long amount, int scale, double value, String missingCurrencyFrom) {
+        CurrencyAmount currencyAmountFrom = walletFrom.getCurrencyAmount(currencyFrom);
+        if (currencyAmountFrom == null) {
+            throw new ValidationException(missingCurrencyFrom);
         }
-        CurrencyAmount currencyAmountFrom = walletFrom.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(currencyFrom)).findFirst().orElseThrow(() -> new ValidationException("Wallet from does not contain the currency from"));
-        if (amount > currencyAmountFrom.getAmount()) {
+        long debit = this.rescale(amount, scale, currencyAmountFrom.getScale());
+        if (debit > currencyAmountFrom.getAmount()) {
             throw new ValidationException("The amount exceeds the available");
         }
-        // Conversion
-        Double value = this.getFinalPrice(currencyFrom, currencyTo, price, validatePrice);
+        CurrencyAmount currencyAmountTo = walletTo.getCurrencyAmount(currencyTo);
+        int scaleTo = currencyAmountTo == null ? this.currencyRegistry.scale(currencyTo) : currencyAmountTo.getScale();
+        long credit = this.convert(amount, scale, value, scaleTo);
+        // Checked on the balance before the debit, which can only be higher when both are the same
+        this.add(currencyAmountTo == null ? 0L : currencyAmountTo.getAmount(), credit);
         // Substracts the amount in the from currency
-        currencyAmountFrom.setAmount(currencyAmountFrom.getAmount() - amount);
-        // Update wallet from
-        this.walletService.update(walletFrom);
+        currencyAmountFrom.setAmount(currencyAmountFrom.getAmount() - debit);
         // Update the amount in destination currency
-        Optional<CurrencyAmount> optionalCurrencyAmount = walletTo.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(currencyTo)).findFirst();
-        this.updateCurrencyAmountTo(walletTo, currencyTo, amount, value, optionalCurrencyAmount);
-        // Update wallet to
-        this.walletService.update(walletTo);
+        currencyAmountTo = walletTo.getOrCreateCurrencyAmount(currencyTo, scaleTo);
+        currencyAmountTo.setAmount(this.add(currencyAmountTo.getAmount(), credit));
+    }
+
+    /**
+     * Apply a batch of buys and transfers. The prices are quoted once for the whole batch, against the same price
+     * snapshot and before any lock is taken; then all the wallets of the batch are locked together, in ascending id
+     * order, and the operations are applied in order in a single transaction. In atomic mode, the default, they are
+     * all applied or, when one fails, none; in best-effort mode every operation passing its checks is applied.
+     *
+     * @param operations the operations
+     * @param mode       the mode
+     * @return the result of each operation, in the order of the operations
+     */
+    public List<OperationResultDTO> batch(List<BatchOperationDTO> operations, BatchMode mode) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ValidationException("Operations are required");
+        }
+        if (operations.size() > this.appConfig.getWalletBatchMaxOperations()) {
+            throw new ValidationException("Too many operations, the maximum is " + this.appConfig.getWalletBatchMaxOperations());
+        }
+        boolean atomic = mode != BatchMode.BEST_EFFORT;
+        DistributionSummary summary = this.batchOperationsSummary;
+        if (summary != null) {
+            summary.record(operations.size());
+        }
+        RuntimeException[] failures = new RuntimeException[operations.size()];
+        Map<Pair<String, String>, Mono<Conversion>> quotes = this.quoteAll(operations);
+        List<Integer> indexes = new ArrayList<>();
+        List<WalletWrite> writes = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            try {
+                writes.add(this.prepare(operations.get(i), quotes));
+                indexes.add(i);
+            } catch (ValidationException | NotFoundException | ExternalServiceException e) {
+                failures[i] = e;
+            }
+        }
+        boolean failed = indexes.size() < operations.size();
+        if (!writes.isEmpty() && !(atomic && failed)) {
+            List<RuntimeException> applied = this.applyAll(writes, atomic);
+            for (int i = 0; i < applied.size(); i++) {
+                failures[indexes.get(i)] = applied.get(i);
+                failed |= applied.get(i) != null;
+            }
+        }
+        List<OperationResultDTO> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            if (failures[i] != null) {
+                results.add(new OperationResultDTO(i, OperationStatus.FAILED, failures[i].getMessage()));
+            } else {
+                results.add(new OperationResultDTO(i, atomic && failed ? OperationStatus.ABORTED : OperationStatus.APPLIED, null));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Quote, in one go, the official prices needed by the operations of a batch.
+     */
+    private Map<Pair<String, String>, Mono<Conversion>> quoteAll(List<BatchOperationDTO> operations) {
+        List<Pair<String, String>> pairs = operations.stream()
+                .filter(item -> item != null && needsOfficialPrice(item.getPrice(), item.getValidatePrice()))
+                .filter(item -> this.currencyRegistry.contains(item.getCurrencyFrom()) && this.currencyRegistry.contains(item.getCurrencyTo()))
+                .map(item -> Pair.of(item.getCurrencyFrom(), item.getCurrencyTo()))
+                .collect(Collectors.toList());
+        if (pairs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Timer timer = this.quoteTimer;
+        if (timer == null) {
+            return this.cryptoCurrencyService.quoteAll(pairs);
+        }
+        return timer.record(() -> this.cryptoCurrencyService.quoteAll(pairs));
+    }
+
+    /**
+     * Check an operation of a batch and resolve its price and amount, ready to be applied.
+     */
+    private WalletWrite prepare(BatchOperationDTO operation, Map<Pair<String, String>, Mono<Conversion>> quotes) {
+        if (operation == null || operation.getType() == null) {
+            throw new ValidationException("Operation type is required");
+        }
+        String currencyFrom = operation.getCurrencyFrom();
+        String currencyTo = operation.getCurrencyTo();
+        boolean transfer = operation.getType() == OperationType.TRANSFER;
+        if (transfer) {
+            this.validateTransferInputs(operation.getWalletId(), operation.getWalletIdTo(), currencyFrom, currencyTo, operation.getAmount());
+        } else {
+            this.validateBuyInputs(operation.getWalletId(), currencyFrom, currencyTo, operation.getAmount());
+        }
+        this.checkCurrencies(currencyFrom, currencyTo);
+        double value = this.getFinalPrice(operation.getPrice(), operation.getValidatePrice(), () -> rate(quotes.get(Pair.of(currencyFrom, currencyTo))));
+        int scale = this.currencyRegistry.scale(currencyFrom);
+        long units = this.toMinorUnits(operation.getAmount(), scale);
+        return new WalletWrite(operation.getWalletId(), transfer ? operation.getWalletIdTo() : null, currencyFrom, currencyTo, units, scale, value);
+    }
+
+    /**
+     * The rate of a quote of a batch. A pair without a price, or whose lookup failed, fails only its own operations.
+     */
+    private static double rate(Mono<Conversion> quote) {
+        Conversion conversion;
+        try {
+            conversion = quote.block();
+        } catch (ValidationException | NotFoundException | ExternalServiceException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new ExternalServiceException("Price service unavailable", e);
+        }
+        if (conversion == null) {
+            throw new ExternalServiceException("Price not available");
+        }
+        return conversion.getRate();
+    }
+
+    /**
+     * Init the wallet lock managers and the write combiner.
+     */
+    @PostConstruct
+    public void init() {
+        this.lockManagersByName = this.lockManagers.stream().collect(Collectors.toMap(WalletLockManager::getName, Function.identity()));
+        this.lockManager();
+        AtomicInteger threads = new AtomicInteger();
+        this.combinerExecutor = Executors.newFixedThreadPool(Math.max(1, this.appConfig.getWalletCombineThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "wallet-combiner-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.combiner = new WriteCombiner<>(this.combinerExecutor, this.appConfig.getWalletCombineMaxBatchSize(), this::applyBatch);
+    }
+
+    /**
+     * Stop the write combiner.
+     */
+    @PreDestroy
+    public void destroy() {
+        this.combinerExecutor.shutdown();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("wallet.write.conflicts", this.conflicts, AtomicLong::get)
+                .description("Wallet writes that failed on a concurrent update")
+                .register(registry);
+        FunctionCounter.builder("wallet.write.lock.timeouts", this.lockTimeouts, AtomicLong::get)
+                .description("Wallet writes that failed waiting for a wallet lock")
+                .register(registry);
+        FunctionCounter.builder("wallet.write.retries", this.retries, AtomicLong::get)
+                .description("Wallet writes retried after a concurrent update or a lock timeout")
+                .register(registry);
+        FunctionCounter.builder("wallet.write.retries.exhausted", this.exhausted, AtomicLong::get)
+                .description("Wallet writes given up after the last retry")
+                .register(registry);
+        this.quoteTimer = Timer.builder("wallet.operation.quote")
+                .description("Price lookup of an operation, done before any wallet lock is taken")
+                .publishPercentileHistogram()
+                .register(registry);
+        Map<WalletLockMode, Timer> timers = new EnumMap<>(WalletLockMode.class);
+        for (WalletLockMode mode : WalletLockMode.values()) {
+            timers.put(mode, Timer.builder("wallet.write.lock.hold")
+                    .tag("mode", mode.name().toLowerCase())
+                    .description("Duration of the wallet write transaction, during which its wallet locks are held")
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        this.lockHoldTimers = timers;
+        this.batchSizeSummary = DistributionSummary.builder("wallet.combine.batch.size")
+                .description("Operations on a hot wallet applied together in one transaction")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.batchOperationsSummary = DistributionSummary.builder("wallet.batch.operations")
+                .description("Operations submitted together in a batch")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("wallet.combine.queue.depth", this.combiner, WriteCombiner::getQueued)
+                .description("Operations on a hot wallet waiting for the next batch")
+                .register(registry);
+    }
+
+    /**
+     * Gets the combine key of an operation: the first of its wallets configured as hot, or null to apply it alone.
+     */
+    private Long combineKey(Long... walletIds) {
+        Set<Long> hotWalletIds = this.appConfig.getWalletCombineIds();
+        if (hotWalletIds == null || hotWalletIds.isEmpty()) {
+            return null;
+        }
+        return Arrays.stream(walletIds).filter(hotWalletIds::contains).findFirst().orElse(null);
+    }
+
+    /**
+     * Queue the operation behind the other operations on the same hot wallet, and wait for its own result.
+     */
+    private void combine(Long combineKey, WalletWrite write) {
+        try {
+            this.combiner.submit(combineKey, write).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Apply a batch of operations on a hot wallet in a single transaction, committed once.
+     */
+    private List<RuntimeException> applyBatch(Long combineKey, List<WalletWrite> writes) {
+        DistributionSummary summary = this.batchSizeSummary;
+        if (summary != null) {
+            summary.record(writes.size());
+        }
+        return this.applyAll(writes, false);
+    }
+
+    /**
+     * Apply operations in a single transaction, with all their wallets locked together in ascending id order, and
+     * each changed wallet updated once. An operation failing its checks leaves no change: it fails alone, or when
+     * atomic rolls back the operations already applied, and the rest are not tried. Any other failure rolls back,
+     * and fails, all of them.
+     */
+    private List<RuntimeException> applyAll(List<WalletWrite> writes, boolean atomic) {
+        Set<Long> walletIds = new TreeSet<>();
+        for (WalletWrite write : writes) {
+            walletIds.add(write.walletIdFrom);
+            if (write.walletIdTo != null) {
+                walletIds.add(write.walletIdTo);
+            }
+        }
+        RuntimeException[] failures = new RuntimeException[writes.size()];
+        try {
+            this.write(walletIds, () -> this.applyInTransaction(writes, atomic, walletIds, failures));
+        } catch (BatchRollbackException e) {
+            // The failure of the operation is already recorded
+        }
+        return Arrays.asList(failures);
+    }
+
+    private void applyInTransaction(List<WalletWrite> writes, boolean atomic, Set<Long> walletIds, RuntimeException[] failures) {
+        // A retry starts again from fresh wallets
+        Arrays.fill(failures, null);
+        Map<Long, Wallet> wallets = this.findAllForWrite(walletIds);
+        Map<Long, Wallet> changed = new TreeMap<>();
+        for (int i = 0; i < writes.size(); i++) {
+            WalletWrite write = writes.get(i);
+            Wallet walletFrom = wallets.get(write.walletIdFrom);
+            try {
+                if (write.walletIdTo == null) {
+                    this.applyBuy(walletFrom, write.currencyFrom, write.currencyTo, write.amount, write.scale, write.value);
+                } else {
+                    Wallet walletTo = wallets.get(write.walletIdTo);
+                    this.applyTransfer(walletFrom, walletTo, write.currencyFrom, write.currencyTo, write.amount, write.scale, write.value);
+                    changed.put(write.walletIdTo, walletTo);
+                }
+                changed.put(write.walletIdFrom, walletFrom);
+            } catch (ValidationException | NotFoundException e) {
+                failures[i] = e;
+                if (atomic) {
+                    throw new BatchRollbackException();
+                }
+            }
+        }
+        changed.values().forEach(this.walletService::update);
+    }
+
+    /**
+     * Quote phase: currency checks and the conversion price, with no transaction open and no lock held, so a slow
+     * upstream lookup never keeps a wallet locked.
+     */
+    private Double quote(String currencyFrom, String currencyTo, Double price, Boolean validatePrice) {
+        this.checkCurrencies(currencyFrom, currencyTo);
+        Timer timer = this.quoteTimer;
+        if (timer == null) {
+            return this.getFinalPrice(currencyFrom, currencyTo, price, validatePrice);
+        }
+        return timer.record(() -> this.getFinalPrice(currencyFrom, currencyTo, price, validatePrice));
+    }
+
+    /**
+     * Apply phase: run the operation in its own short transaction. A lock timeout, and in optimistic mode a concurrent
+     * update detected on commit, rolls it back, and it is run again on fresh data after a random backoff, up to the
+     * configured attempts.
+     */
+    private void write(Collection<Long> walletIds, Runnable operation) {
+        WalletLockMode mode = this.appConfig.getWalletLockMode();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (mode == WalletLockMode.OPTIMISTIC) {
+                    this.transaction(mode, operation);
+                } else {
+                    // Locks are taken before the transaction, so waiting for them never holds a connection
+                    this.lockManager().execute(walletIds, () -> this.transaction(mode, operation));
+                }
+                return;
+            } catch (ConcurrencyFailureException e) {
+                boolean lockTimeout = e instanceof PessimisticLockingFailureException;
+                (lockTimeout ? this.lockTimeouts : this.conflicts).incrementAndGet();
+                if (!lockTimeout && mode != WalletLockMode.OPTIMISTIC) {
+                    throw e;
+                }
+                if (attempt >= this.appConfig.getWalletRetryMaxAttempts()) {
+                    this.exhausted.incrementAndGet();
+                    throw e;
+                }
+                this.retries.incrementAndGet();
+                this.backoff(attempt, e);
+            }
+        }
+    }
+
+    private void transaction(WalletLockMode mode, Runnable operation) {
+        Map<WalletLockMode, Timer> timers = this.lockHoldTimers;
+        if (timers == null) {
+            this.transactionOperations.executeWithoutResult(status -> operation.run());
+        } else {
+            timers.get(mode).record(() -> this.transactionOperations.executeWithoutResult(status -> operation.run()));
+        }
+    }
+
+    /**
+     * Exponential backoff with full jitter, so the conflicting writers do not retry in lockstep.
+     */
+    private void backoff(int attempt, ConcurrencyFailureException conflict) {
+        long ceiling = Math.min(
+                this.appConfig.getWalletRetryMaxDelayMs(),
+                this.appConfig.getWalletRetryBaseDelayMs() << Math.min(attempt - 1, 20)
+        );
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private WalletLockManager lockManager() {
+        String name = this.appConfig.getWalletLockManager();
+        WalletLockManager lockManager = this.lockManagersByName.get(name);
+        if (lockManager == null) {
+            throw new IllegalStateException("Unknown wallet lock manager " + name);
+        }
+        return lockManager;
+    }
+
+    /**
+     * Whether the wallets are read with a database row lock: not in optimistic mode, where the versions are checked
+     * when the changes are flushed, nor when an in-process lock manager already serializes the writes.
+     */
+    private boolean isDatabaseLock() {
+        return this.appConfig.getWalletLockMode() != WalletLockMode.OPTIMISTIC && this.lockManager().isDatabaseLock();
+    }
+
+    private Wallet findForWrite(Long walletId) {
+        return this.isDatabaseLock() ? this.walletService.findForWrite(walletId) : this.walletService.find(walletId);
+    }
+
+    private Map<Long, Wallet> findAllForWrite(Collection<Long> walletIds) {
+        // The wallets are locked by a single query in id order, so opposite transfers cannot deadlock
+        List<Wallet> wallets = this.isDatabaseLock() ? this.walletService.findAllForWrite(walletIds) : this.walletService.findAll(walletIds);
+        return wallets.stream().collect(Collectors.toMap(Wallet::getId, Function.identity()));
+    }
+
+    private void checkCurrencies(String currencyFrom, String currencyTo) {
+        if (!this.currencyRegistry.contains(currencyFrom)) {
+            throw new NotFoundException("Currency from not found");
+        }
+        if (!this.currencyRegistry.contains(currencyTo)) {
+            throw new NotFoundException("Currency to not found");
+        }
     }
 
     private Double getFinalPrice(String currencyFrom, String currencyTo, Double price, Boolean validatePrice) {
+        return this.getFinalPrice(price, validatePrice, () -> cryptoCurrencyService.convert(currencyFrom, currencyTo).doubleValue());
+    }
+
+    private Double getFinalPrice(Double price, Boolean validatePrice, DoubleSupplier officialPrice) {
         Double value;
         if (price != null) {
             if (price <= 0) {
                 throw new ValidationException("Price must be greater than zero");
             }
             if (validatePrice != null && validatePrice.equals(Boolean.TRUE)) {
-                Double diff = price / cryptoCurrencyService.convert(currencyFrom, currencyTo).doubleValue();
+                Double diff = price / officialPrice.getAsDouble();
                 if (diff >= 1 + this.appConfig.getPriceTolerance() || diff <= 1 - this.appConfig.getPriceTolerance()) {
                     throw new ValidationException("The price is different from the official");
                 }
             }
             value = price;
         } else {
-            value = cryptoCurrencyService.convert(currencyFrom, currencyTo).doubleValue();
+            value = officialPrice.getAsDouble();
         }
         return value;
     }
 
-    private void updateCurrencyAmountTo(Wallet wallet, String currency, Double amount, Double price, Optional<CurrencyAmount> optionalCurrencyAmount) {
-        if (optionalCurrencyAmount.isPresent()) {
-            CurrencyAmount currencyAmountTo = optionalCurrencyAmount.get();
-            currencyAmountTo.setAmount(currencyAmountTo.getAmount() + (price * amount));
-        } else {
-            CurrencyAmount newCurrencyAmount = new CurrencyAmount(currency, price * amount);
-            wallet.getCurrencyAmounts().add(newCurrencyAmount);
+    /**
+     * Whether the final price of an operation needs the official price.
+     */
+    private static boolean needsOfficialPrice(Double price, Boolean validatePrice) {
+        return price == null || Boolean.TRUE.equals(validatePrice);
+    }
+
+    private long toMinorUnits(BigDecimal amount, int scale) {
+        try {
+            return FixedPoint.toMinorUnits(amount, scale);
+        } catch (ArithmeticException e) {
+            throw new ValidationException(FixedPoint.isRepresentable(amount) && amount.stripTrailingZeros().scale() > scale ?
+                    "Amount has more decimals than the currency allows" : "Amount is out of range");
+        }
+    }
+
+    private long rescale(long amount, int scaleFrom, int scaleTo) {
+        try {
+            return FixedPoint.rescale(amount, scaleFrom, scaleTo);
+        } catch (ArithmeticException e) {
+            throw new ValidationException("Amount has more decimals than the currency allows");
+        }
+    }
+
+    private long convert(long amount, int scaleFrom, double price, int scaleTo) {
+        try {
+            return FixedPoint.convert(amount, scaleFrom, price, scaleTo);
+        } catch (ArithmeticException e) {
+            throw new ValidationException("Amount is out of range");
+        }
+    }
+
+    private long add(long balance, long credit) {
+        try {
+            return Math.addExact(balance, credit);
+        } catch (ArithmeticException e) {
+            throw new ValidationException("Amount is out of range");
         }
     }
 
-    private void validateBuyInputs(Long walletId, String currencyFrom, String currencyTo, Double amount) {
+    private void validateBuyInputs(Long walletId, String currencyFrom, String currencyTo, BigDecimal amount) {
         if (walletId == null) {
             throw new ValidationException("Wallet id is required");
         }
@@ -208,12 +755,12 @@ public class CryptoCurrencyOperationService {
         if (amount == null) {
             throw new ValidationException("Amount is required");
         }
-        if (amount <= 0) {
+        if (amount.signum() <= 0) {
             throw new ValidationException("Amount must be greater than zero");
         }
     }
 
-    private void validateTransferInputs(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, Double amount) {
+    private void validateTransferInputs(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, BigDecimal amount) {
         if (walletIdFrom == null) {
             throw new ValidationException("Wallet id from is required");
         }
@@ -229,8 +776,41 @@ public class CryptoCurrencyOperationService {
         if (amount == null) {
             throw new ValidationException("Amount is required");
         }
-        if (amount <= 0) {
+        if (amount.signum() <= 0) {
             throw new ValidationException("Amount must be greater than zero");
         }
     }
+
+    /**
+     * Thrown to roll back an atomic batch once one of its operations fails.
+     */
+    private static final class BatchRollbackException extends RuntimeException {
+
+        private BatchRollbackException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A buy, or a transfer when it has a wallet to, waiting to be applied with the other operations on a hot wallet.
+     */
+    private static final class WalletWrite {
+        private final Long walletIdFrom;
+        private final Long walletIdTo;
+        private final String currencyFrom;
+        private final String currencyTo;
+        private final long amount;
+        private final int scale;
+        private final double value;
+
+        private WalletWrite(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, long amount, int scale, double value) {
+            this.walletIdFrom = walletIdFrom;
+            this.walletIdTo = walletIdTo;
+            this.currencyFrom = currencyFrom;
+            this.currencyTo = currencyTo;
+            this.amount = amount;
+            this.scale = scale;
+            this.value = value;
+        }
+    }
 }
@@ -1,56 +1,107 @@
 package com.sms.challenge.currencywalletapi.service;
 
+import com.sms.challenge.currencywalletapi.entity.Conversion;
+import com.sms.challenge.currencywalletapi.entity.ConversionPath;
 import com.sms.challenge.currencywalletapi.entity.CryptoCurrency;
-import com.sms.challenge.currencywalletapi.entity.CryptoCurrencyPrice;
-import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.entity.PriceSnapshot;
+import com.sms.challenge.currencywalletapi.entity.Priced;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.util.ConversionEngine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.data.util.Pair;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * The type Crypto currency service.
+ * <p>
+ * Reads are served from the background refreshed {@link PriceSnapshotService} snapshot while it is within the
+ * staleness bound, and fall back to Cache-Aside over the upstream API otherwise. Conversions are triangulated from
+ * the snapshot matrix by {@link ConversionEngine}; the remaining misses are batched by {@link PriceBatchService}.
  */
 @Service
-public class CryptoCurrencyService {
+public class CryptoCurrencyService implements MeterBinder {
+
+    private static final String CACHE_CURRENCIES = "currencies";
+    private static final String CACHE_CURRENCY = "currency";
+    private static final String CACHE_CONVERSION = "conversion";
 
     @Autowired
-    private CurrencyService currencyService;
+    private CurrencyRegistry currencyRegistry;
 
     @Autowired
     private CryptoCurrencyFetcherService fetcherService;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PriceSnapshotService priceSnapshotService;
+
+    @Autowired
+    private PriceBatchService priceBatchService;
+
+    private final Map<ConversionPath, AtomicLong> conversions = new EnumMap<>(ConversionPath.class);
+
+    /**
+     * Instantiates a new Crypto currency service.
+     */
+    public CryptoCurrencyService() {
+        for (ConversionPath path : ConversionPath.values()) {
+            this.conversions.put(path, new AtomicLong());
+        }
+    }
+
     /**
      * Find all list.
      *
      * @return the list
      */
-    @Cacheable("currencies")
     public List<CryptoCurrency> findAll() {
-        List<String> currenciesFrom = this.currencyService.findAllByCrypto().stream().map(Currency::getSymbol).collect(
-                Collectors.toList());
-        List<String> currenciesTo = this.currencyService.findAllByNotCrypto().stream().map(Currency::getSymbol).collect(
-                Collectors.toList());
-        List<CryptoCurrency> result = new ArrayList<>();
-        Map<String, Map<String, Number>> data = this.fetcherService.fetch(currenciesFrom, currenciesTo);
-        currenciesFrom.stream().forEach(itemFrom -> {
-            if (data.get(itemFrom) != null) {
-                CryptoCurrency cryptoCurrency = new CryptoCurrency(itemFrom);
-                cryptoCurrency.setPrices(new ArrayList<>());
-                currenciesTo.stream().forEach(itemTo -> cryptoCurrency.getPrices().add(new CryptoCurrencyPrice(
-                        itemTo,
-                        data.get(itemFrom).get(itemTo).doubleValue()
-                )));
-                result.add(cryptoCurrency);
-            }
-        });
-        return result;
+        return this.findAllAsync().map(Priced::getValue).block();
+    }
+
+    /**
+     * Find all list without blocking the caller thread. While the upstream API is unavailable, the last known good
+     * snapshot is served and flagged as stale.
+     *
+     * @return the mono of the list
+     */
+    public Mono<Priced<List<CryptoCurrency>>> findAllAsync() {
+        Optional<PriceSnapshot> snapshot = this.priceSnapshotService.current();
+        if (snapshot.isPresent()) {
+            return Mono.just(Priced.live(snapshot.get().getCryptoCurrencies()));
+        }
+        return this.cached(CACHE_CURRENCIES, SimpleKey.EMPTY, () -> this.index().flatMap(index -> this.fetcherService.fetchAsync(
+                index,
+                index.symbols(true),
+                index.symbols(false)
+        )).map(PriceMatrix::toCryptoCurrencies)).map(Priced::live).onErrorResume(ExternalServiceException.class, error -> this.stale(
+                error,
+                latest -> Optional.of(latest.getCryptoCurrencies())
+        ));
     }
 
     /**
@@ -59,26 +110,34 @@ public class CryptoCurrencyService {
      * @param currency the currency
      * @return the crypto currency
      */
-    @Cacheable("currency")
     public CryptoCurrency find(String currency) {
-        List<String> currenciesTo = this.currencyService.findAllByNotCrypto().stream().map(Currency::getSymbol).collect(
-                Collectors.toList());
-        Map<String, Map<String, Number>> data = this.fetcherService.fetch(
-                Stream.of(currency.toUpperCase()).collect(Collectors.toList()),
-                currenciesTo
-        );
-        CryptoCurrency cryptoCurrency = new CryptoCurrency(currency.toUpperCase());
-        cryptoCurrency.setPrices(new ArrayList<>());
-        Map<String, Number> currencyData = data.get(currency.toUpperCase());
-        if (currencyData != null) {
-            currenciesTo.forEach(itemTo ->
-                    cryptoCurrency.getPrices().add(new CryptoCurrencyPrice(
-                            itemTo,
-                            currencyData.get(itemTo).doubleValue()
-                    ))
-            );
+        return this.findAsync(currency).map(Priced::getValue).block();
+    }
+
+    /**
+     * Find crypto currency without blocking the caller thread. While the upstream API is unavailable, the last known
+     * good snapshot is served and flagged as stale.
+     *
+     * @param currency the currency
+     * @return the mono of the crypto currency
+     */
+    public Mono<Priced<CryptoCurrency>> findAsync(String currency) {
+        final String symbol = currency.toUpperCase();
+        Optional<CryptoCurrency> fromSnapshot = this.priceSnapshotService.current().flatMap(item -> item.find(symbol));
+        if (fromSnapshot.isPresent()) {
+            return Mono.just(Priced.live(fromSnapshot.get()));
         }
-        return cryptoCurrency;
+        return this.cached(CACHE_CURRENCY, symbol, () -> this.index().flatMap(index -> {
+            int ordinal = this.ordinal(index, symbol);
+            return this.fetcherService.fetchAsync(
+                    index,
+                    Collections.singletonList(symbol),
+                    index.symbols(false)
+            ).map(matrix -> matrix.toCryptoCurrency(ordinal));
+        })).map(Priced::live).onErrorResume(ExternalServiceException.class, error -> this.stale(
+                error,
+                latest -> latest.find(symbol)
+        ));
     }
 
     /**
@@ -88,9 +147,123 @@ public class CryptoCurrencyService {
      * @param currencyTo   the currency to
      * @return the double
      */
-    @Cacheable("conversion")
     public Number convert(String currencyFrom, String currencyTo) {
-        Map<String, Number> data = this.fetcherService.fetch(currencyFrom, currencyTo);
-        return data.get(currencyTo.toUpperCase());
+        return this.convertAsync(currencyFrom, currencyTo).block();
+    }
+
+    /**
+     * Convert double without blocking the caller thread.
+     *
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @return the mono of the double
+     */
+    public Mono<Number> convertAsync(String currencyFrom, String currencyTo) {
+        return this.quoteAsync(currencyFrom, currencyTo).map(Conversion::getRate);
+    }
+
+    /**
+     * Quote a conversion, reporting the path used to resolve it.
+     *
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @return the conversion
+     */
+    public Conversion quote(String currencyFrom, String currencyTo) {
+        return this.quoteAsync(currencyFrom, currencyTo).block();
+    }
+
+    /**
+     * Quote a conversion without blocking the caller thread. Any pair with a direct, inverse or one-hop pivot path
+     * in the snapshot matrix is resolved in memory; the upstream API is only called when no path exists.
+     *
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @return the mono of the conversion
+     */
+    public Mono<Conversion> quoteAsync(String currencyFrom, String currencyTo) {
+        return this.quoteAsync(this.priceSnapshotService.current(), currencyFrom, currencyTo);
+    }
+
+    /**
+     * Quote the conversions of several pairs against the same price snapshot, so they are consistent with each
+     * other. Each distinct pair is resolved once, and all of them concurrently, so the pairs missing from the
+     * snapshot share the upstream round trips.
+     *
+     * @param pairs the pairs of currency from and currency to
+     * @return the conversion of each distinct pair, already resolved; a pair that could not be resolved holds its
+     * failure, and fails alone
+     */
+    public Map<Pair<String, String>, Mono<Conversion>> quoteAll(Collection<Pair<String, String>> pairs) {
+        Optional<PriceSnapshot> snapshot = this.priceSnapshotService.current();
+        Map<Pair<String, String>, Mono<Conversion>> quotes = new LinkedHashMap<>();
+        pairs.forEach(pair -> quotes.computeIfAbsent(pair, key -> this.quoteAsync(snapshot, key.getFirst(), key.getSecond()).cache()));
+        Flux.merge(quotes.values().stream().map(quote -> quote.onErrorResume(error -> Mono.empty())).collect(Collectors.toList())).blockLast();
+        return quotes;
+    }
+
+    private Mono<Conversion> quoteAsync(Optional<PriceSnapshot> snapshot, String currencyFrom, String currencyTo) {
+        final String symbolFrom = currencyFrom.toUpperCase();
+        final String symbolTo = currencyTo.toUpperCase();
+        if (snapshot.isPresent()) {
+            Conversion conversion = ConversionEngine.resolve(snapshot.get().getMatrix(), symbolFrom, symbolTo);
+            if (conversion != null) {
+                return Mono.just(this.record(conversion));
+            }
+        }
+        return this.<Number>cached(CACHE_CONVERSION, new SimpleKey(currencyFrom, currencyTo), () -> this.priceBatchService.price(
+                symbolFrom,
+                symbolTo
+        ).cast(Number.class)).map(price -> this.record(new Conversion(symbolFrom, symbolTo, price.doubleValue(), ConversionPath.NETWORK, null)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.conversions.forEach((path, counter) -> FunctionCounter.builder("price.conversion", counter, AtomicLong::get)
+                .tag("path", path.name().toLowerCase())
+                .description("Conversions by resolution path")
+                .register(registry));
+    }
+
+    private <T> Mono<Priced<T>> stale(ExternalServiceException error, Function<PriceSnapshot, Optional<T>> reader) {
+        return this.priceSnapshotService.latest()
+                .flatMap(latest -> reader.apply(latest).map(value -> Priced.stale(value, latest.getRefreshedAt())))
+                .map(Mono::just)
+                .orElseGet(() -> Mono.error(error));
+    }
+
+    private Conversion record(Conversion conversion) {
+        this.conversions.get(conversion.getPath()).incrementAndGet();
+        return conversion;
+    }
+
+    private int ordinal(CurrencyIndex index, String symbol) {
+        int ordinal = index.ordinal(symbol);
+        if (ordinal < 0) {
+            throw new NotFoundException("Currency symbol not found");
+        }
+        return ordinal;
+    }
+
+    private Mono<CurrencyIndex> index() {
+        return Mono.fromSupplier(this.currencyRegistry::getIndex);
+    }
+
+    /**
+     * Cache-Aside over the configured cache manager, shared by the blocking and the reactive variants.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> cached(String cacheName, Object key, Supplier<Mono<T>> loader) {
+        return Mono.defer(() -> {
+            Cache cache = this.cacheManager.getCache(cacheName);
+            if (cache == null) {
+                return loader.get();
+            }
+            Cache.ValueWrapper hit = cache.get(key);
+            if (hit != null) {
+                return Mono.justOrEmpty((T) hit.get());
+            }
+            return loader.get().doOnNext(value -> cache.put(key, value));
+        });
     }
 }
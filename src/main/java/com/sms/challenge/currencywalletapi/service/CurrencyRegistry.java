@@ -0,0 +1,91 @@
+package com.sms.challenge.currencywalletapi.service;
+
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.event.CurrenciesChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The type Currency registry.
+ * <p>
+ * In-memory view of the currencies table as an immutable {@link CurrencyIndex} (symbol to id, ordinal and crypto
+ * flag). It is loaded at startup and swapped atomically after every committed change, so symbol lookups on the
+ * request path never reach the database.
+ */
+@Service
+public class CurrencyRegistry {
+
+    @Autowired
+    private CurrencyService currencyService;
+
+    private final AtomicReference<CurrencyIndex> index = new AtomicReference<>();
+
+    /**
+     * Gets the current index, loading it on first use.
+     *
+     * @return the index
+     */
+    public CurrencyIndex getIndex() {
+        CurrencyIndex current = this.index.get();
+        return current != null ? current : this.reload();
+    }
+
+    /**
+     * Contains boolean.
+     *
+     * @param symbol the symbol
+     * @return true when the currency exists
+     */
+    public boolean contains(String symbol) {
+        return symbol != null && this.getIndex().ordinal(symbol) >= 0;
+    }
+
+    /**
+     * Gets the scale of a currency.
+     *
+     * @param symbol the symbol
+     * @return the scale, or the default scale when the currency is unknown
+     */
+    public int scale(String symbol) {
+        CurrencyIndex current = this.getIndex();
+        int ordinal = symbol == null ? -1 : current.ordinal(symbol);
+        return ordinal < 0 ? Currency.DEFAULT_SCALE : current.scale(ordinal);
+    }
+
+    /**
+     * Reload the index from the database.
+     *
+     * @return the new index
+     */
+    public CurrencyIndex reload() {
+        CurrencyIndex loaded = new CurrencyIndex(this.currencyService.findAll());
+        this.index.set(loaded);
+        return loaded;
+    }
+
+    /**
+     * Load at startup, once every bean (including the currency filler) is initialized.
+     *
+     * @param event the event
+     */
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        this.reload();
+    }
+
+    /**
+     * Reload once the change is committed, so the new index never shows uncommitted currencies.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCurrenciesChanged(CurrenciesChangedEvent event) {
+        this.reload();
+    }
+}
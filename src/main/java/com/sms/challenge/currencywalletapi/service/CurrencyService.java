@@ -3,8 +3,10 @@ package com.sms.challenge.currencywalletapi.service;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
 import com.sms.challenge.currencywalletapi.exception.ValidationException;
 import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.event.CurrenciesChangedEvent;
 import com.sms.challenge.currencywalletapi.repository.CurrencyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -21,6 +23,9 @@ public class CurrencyService {
     @Autowired
     private CurrencyRepository repository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Find all list.
      *
@@ -54,6 +59,7 @@ public class CurrencyService {
      */
     public void saveAll(List<Currency> currencies) {
         repository.saveAll(currencies);
+        eventPublisher.publishEvent(new CurrenciesChangedEvent());
     }
 
     /**
@@ -0,0 +1,223 @@
+package com.sms.challenge.currencywalletapi.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.domain.OperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.entity.IdempotencyKey;
+import com.sms.challenge.currencywalletapi.exception.ConflictException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import com.sms.challenge.currencywalletapi.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The type Idempotency service.
+ * <p>
+ * Deduplicates the operations submitted with an {@code Idempotency-Key}. A key is claimed by inserting it in the
+ * {@code idempotency_keys} table, whose unique constraint lets one request win across all the nodes; once its operation
+ * is queued the record is also kept in the Hazelcast map {@value #CACHE_IDEMPOTENCY_KEYS}, so a retry is answered
+ * without the database. A retry gets the operation of the first request, with its stored outcome once finished, and
+ * never reaches the wallets. A retry arriving while the first request is still being submitted polls the table for up
+ * to {@code config.idempotency-wait-ms}. A claim still without an operation after {@code config.idempotency-lease-ms}
+ * was left by a request that stopped before queueing it, and is taken over by the next request with its key. Keys are
+ * forgotten after {@code config.idempotency-ttl-seconds}.
+ */
+@Service
+public class IdempotencyService implements MeterBinder {
+
+    /**
+     * The idempotency keys map name.
+     */
+    public static final String CACHE_IDEMPOTENCY_KEYS = "idempotency-keys";
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final long POLL_INTERVAL_MS = 10;
+
+    @Autowired
+    private IdempotencyKeyRepository repository;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    @Autowired
+    private OperationQueueService operationQueueService;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private final AtomicLong replayed = new AtomicLong();
+
+    /**
+     * Submit an operation once per key.
+     *
+     * @param key         the idempotency key
+     * @param fingerprint the fingerprint of the request, see {@link #fingerprint(Object...)}
+     * @param submit      the submission of the operation, only called by the request claiming the key
+     * @return the operation, submitted by this request or by the first one with the same key
+     */
+    public OperationDTO submit(String key, String fingerprint, Supplier<OperationDTO> submit) {
+        // Input validations
+        if (key == null || key.trim().isEmpty()) {
+            throw new ValidationException("Idempotency key must not be blank");
+        }
+        if (key.length() > IdempotencyKey.MAX_LENGTH) {
+            throw new ValidationException("Idempotency key must not be longer than " + IdempotencyKey.MAX_LENGTH + " characters");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.appConfig.getIdempotencyWaitMs());
+        while (true) {
+            IdempotencyKey record = this.find(key);
+            if (record == null) {
+                IdempotencyKey claim = this.claim(key, fingerprint);
+                if (claim != null) {
+                    return this.run(claim, submit);
+                }
+                // Claimed by a concurrent request, read it again
+                continue;
+            }
+            OperationDTO operation = record.getOperation();
+            if (operation == null && this.abandoned(record)) {
+                // Released only if still unqueued, then claimed again; of concurrent takers, the insert picks one
+                this.repository.deleteClaim(record.getId());
+                continue;
+            }
+            if (!record.getFingerprint().equals(fingerprint)) {
+                throw new ValidationException("Idempotency key was already used for a different request");
+            }
+            if (operation != null) {
+                this.replayed.incrementAndGet();
+                return this.current(operation);
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new ConflictException("A request with the same idempotency key is in progress");
+            }
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException("A request with the same idempotency key is in progress");
+            }
+        }
+    }
+
+    /**
+     * Forget the keys older than their time to live.
+     */
+    @Scheduled(fixedDelayString = "${config.idempotency-cleanup-interval-ms:60000}")
+    public void evict() {
+        this.repository.deleteCreatedBefore(LocalDateTime.now().minusSeconds(this.appConfig.getIdempotencyTtlSeconds()));
+    }
+
+    /**
+     * Fingerprint of a request, to tell a retry from another request reusing its key.
+     *
+     * @param parts the parts of the request
+     * @return the fingerprint
+     */
+    public static String fingerprint(Object... parts) {
+        String canonical = Arrays.stream(parts)
+                .map(part -> part instanceof BigDecimal ? ((BigDecimal) part).stripTrailingZeros().toPlainString() : String.valueOf(part))
+                .collect(Collectors.joining("\u0000"));
+        return DigestUtils.md5DigestAsHex(canonical.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("idempotency.replayed", this.replayed, AtomicLong::get)
+                .description("Requests answered with the operation of an earlier request with the same idempotency key")
+                .register(registry);
+    }
+
+    private IdempotencyKey find(String key) {
+        IMap<String, IdempotencyKey> keys = this.keys();
+        IdempotencyKey cached = keys.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        IdempotencyKey loaded = this.repository.findByIdempotencyKey(key);
+        if (loaded == null || loaded.getOperation() == null) {
+            // A claim is never cached, as its submission may still fail and release it
+            return loaded;
+        }
+        IdempotencyKey concurrent = keys.putIfAbsent(key, loaded);
+        return concurrent != null ? concurrent : loaded;
+    }
+
+    private IdempotencyKey claim(String key, String fingerprint) {
+        try {
+            return this.repository.saveAndFlush(new IdempotencyKey(key, fingerprint));
+        } catch (DataIntegrityViolationException e) {
+            return null;
+        }
+    }
+
+    private OperationDTO run(IdempotencyKey claim, Supplier<OperationDTO> submit) {
+        OperationDTO operation;
+        try {
+            operation = submit.get();
+        } catch (RuntimeException e) {
+            // Not queued, so a retry may run it; only the row holds the claim
+            this.repository.deleteClaim(claim.getId());
+            throw e;
+        }
+        claim.setOperation(operation);
+        IdempotencyKey saved = this.save(claim);
+        this.operationQueueService.onComplete(operation.getId(), done -> {
+            try {
+                saved.setOperation(done);
+                this.save(saved);
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to store the outcome of operation {}", done.getId(), e);
+            }
+        });
+        return operation;
+    }
+
+    private boolean abandoned(IdempotencyKey claim) {
+        return claim.getCreatedAt() != null
+                && claim.getCreatedAt().isBefore(LocalDateTime.now().minus(this.appConfig.getIdempotencyLeaseMs(), ChronoUnit.MILLIS));
+    }
+
+    private OperationDTO current(OperationDTO operation) {
+        if (operation.getStatus() != OperationStatus.PENDING) {
+            return operation;
+        }
+        try {
+            return this.operationQueueService.find(operation.getId());
+        } catch (NotFoundException e) {
+            // Queued on another node
+            return operation;
+        }
+    }
+
+    private IdempotencyKey save(IdempotencyKey record) {
+        IdempotencyKey saved = this.repository.save(record);
+        this.keys().set(saved.getIdempotencyKey(), saved);
+        return saved;
+    }
+
+    private IMap<String, IdempotencyKey> keys() {
+        return this.hazelcastInstance.getMap(CACHE_IDEMPOTENCY_KEYS);
+    }
+}
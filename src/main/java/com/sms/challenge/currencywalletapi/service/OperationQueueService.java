@@ -0,0 +1,272 @@
+package com.sms.challenge.currencywalletapi.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.domain.OperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.exception.TooManyRequestsException;
+import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * The type Operation queue service.
+ * <p>
+ * Runs buys and transfers in the background, so a request only pays for the checks that need neither a wallet nor
+ * a price, and gets an operation id to follow. The operations are queued in {@code config.operation-queue-partitions}
+ * bounded queues, each drained by its own worker, by the wallet they debit: the operations of a wallet are applied
+ * one at a time, in submission order, and a busy wallet does not hold back the others. When the queue of a partition
+ * is full the operation is rejected with a {@link TooManyRequestsException} instead of being queued, so the latency of
+ * a submission stays flat under bursts. A finished operation is kept for {@code config.operation-retention-ms}.
+ */
+@Service
+public class OperationQueueService implements MeterBinder {
+
+    @Autowired
+    private CryptoCurrencyOperationService operationService;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private ThreadPoolExecutor[] partitions;
+
+    private volatile Timer waitTimer;
+
+    /**
+     * Queue a buy.
+     *
+     * @param walletId      the wallet id
+     * @param currencyFrom  the currency from
+     * @param currencyTo    the currency to
+     * @param amount        the amount
+     * @param price         the price
+     * @param validatePrice the validate price
+     * @return the pending operation
+     */
+    public OperationDTO submitBuy(Long walletId, String currencyFrom, String currencyTo, BigDecimal amount, Double price, Boolean validatePrice) {
+        this.operationService.validateBuy(walletId, currencyFrom, currencyTo, amount);
+        return this.submit(OperationType.BUY, walletId, () -> this.operationService.buy(
+                walletId,
+                currencyFrom,
+                currencyTo,
+                amount,
+                price,
+                validatePrice
+        ));
+    }
+
+    /**
+     * Queue a transfer.
+     *
+     * @param walletIdFrom  the wallet id from
+     * @param walletIdTo    the wallet id to
+     * @param currencyFrom  the currency from
+     * @param currencyTo    the currency to
+     * @param amount        the amount
+     * @param price         the price
+     * @param validatePrice the validate price
+     * @return the pending operation
+     */
+    public OperationDTO submitTransfer(Long walletIdFrom, Long walletIdTo, String currencyFrom, String currencyTo, BigDecimal amount, Double price, Boolean validatePrice) {
+        this.operationService.validateTransfer(walletIdFrom, walletIdTo, currencyFrom, currencyTo, amount);
+        return this.submit(OperationType.TRANSFER, walletIdFrom, () -> this.operationService.transfer(
+                walletIdFrom,
+                walletIdTo,
+                currencyFrom,
+                currencyTo,
+                amount,
+                price,
+                validatePrice
+        ));
+    }
+
+    /**
+     * Find an operation.
+     *
+     * @param id the id
+     * @return the operation
+     */
+    public OperationDTO find(String id) {
+        return this.get(id).toDTO();
+    }
+
+    /**
+     * Wait for an operation to finish, without blocking the caller thread.
+     *
+     * @param id     the id
+     * @param waitMs the longest wait, capped to {@code config.operation-poll-max-wait-ms}
+     * @return the mono of the operation, finished or still pending when the wait is over
+     */
+    public Mono<OperationDTO> await(String id, long waitMs) {
+        Operation operation = this.get(id);
+        long wait = Math.min(Math.max(0, waitMs), this.appConfig.getOperationPollMaxWaitMs());
+        if (wait == 0 || operation.done.isDone()) {
+            return Mono.just(operation.toDTO());
+        }
+        // A dependent stage, so a poll giving up does not cancel the operation
+        return Mono.fromFuture(operation.done.thenApply(ignored -> operation.toDTO()))
+                .timeout(Duration.ofMillis(wait), Mono.fromSupplier(operation::toDTO));
+    }
+
+    /**
+     * Run an action once an operation has finished, or right away when it already has.
+     *
+     * @param id     the id
+     * @param action the action, given the finished operation
+     */
+    public void onComplete(String id, Consumer<OperationDTO> action) {
+        Operation operation = this.get(id);
+        operation.done.thenRun(() -> action.accept(operation.toDTO()));
+    }
+
+    /**
+     * Forget the operations finished for longer than the retention.
+     */
+    @Scheduled(fixedDelayString = "${config.operation-retention-ms:300000}")
+    public void evict() {
+        long limit = System.currentTimeMillis() - this.appConfig.getOperationRetentionMs();
+        this.operations.values().removeIf(operation -> operation.done.isDone() && operation.finishedAt <= limit);
+    }
+
+    /**
+     * Start the partition workers.
+     */
+    @PostConstruct
+    public void init() {
+        int capacity = Math.max(1, this.appConfig.getOperationQueueCapacity());
+        this.partitions = new ThreadPoolExecutor[Math.max(1, this.appConfig.getOperationQueuePartitions())];
+        for (int i = 0; i < this.partitions.length; i++) {
+            String name = "operation-worker-" + (i + 1);
+            this.partitions[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity), runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Stop the partition workers.
+     */
+    @PreDestroy
+    public void destroy() {
+        Arrays.stream(this.partitions).forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("operation.queue.depth", this, service -> Arrays.stream(service.partitions).mapToInt(item -> item.getQueue().size()).sum())
+                .description("Operations waiting for a worker")
+                .register(registry);
+        FunctionCounter.builder("operation.queue.rejected", this.rejected, AtomicLong::get)
+                .description("Operations rejected because the queue of their partition was full")
+                .register(registry);
+        this.waitTimer = Timer.builder("operation.queue.wait")
+                .description("Time from the submission of an operation to the start of its processing")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private OperationDTO submit(OperationType type, Long walletId, Runnable task) {
+        Operation operation = new Operation(UUID.randomUUID().toString(), type, walletId);
+        this.operations.put(operation.id, operation);
+        try {
+            this.partitions[Math.floorMod(Long.hashCode(walletId), this.partitions.length)].execute(() -> this.run(operation, task));
+        } catch (RejectedExecutionException e) {
+            this.operations.remove(operation.id);
+            this.rejected.incrementAndGet();
+            throw new TooManyRequestsException("Too many pending operations, retry later");
+        }
+        return operation.toDTO();
+    }
+
+    private void run(Operation operation, Runnable task) {
+        Timer timer = this.waitTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - operation.submittedAt, TimeUnit.NANOSECONDS);
+        }
+        try {
+            task.run();
+            operation.finish(OperationStatus.APPLIED, null);
+        } catch (RuntimeException e) {
+            operation.finish(OperationStatus.FAILED, error(e));
+        } catch (Throwable e) {
+            // Finished before the worker dies, so no poll or replay waits on it forever
+            operation.finish(OperationStatus.FAILED, error(e));
+            throw e;
+        }
+    }
+
+    private static String error(Throwable e) {
+        return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+    }
+
+    private Operation get(String id) {
+        if (id == null) {
+            throw new ValidationException("Id is required");
+        }
+        Operation operation = this.operations.get(id);
+        if (operation == null) {
+            throw new NotFoundException("Operation not found");
+        }
+        return operation;
+    }
+
+    /**
+     * A queued operation and, once finished, its outcome.
+     */
+    private static final class Operation {
+        private final String id;
+        private final OperationType type;
+        private final Long walletId;
+        private final long submittedAt = System.nanoTime();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private volatile OperationStatus status = OperationStatus.PENDING;
+        private volatile String error;
+        private volatile long finishedAt;
+
+        private Operation(String id, OperationType type, Long walletId) {
+            this.id = id;
+            this.type = type;
+            this.walletId = walletId;
+        }
+
+        private void finish(OperationStatus status, String error) {
+            this.error = error;
+            this.finishedAt = System.currentTimeMillis();
+            this.status = status;
+            this.done.complete(null);
+        }
+
+        private OperationDTO toDTO() {
+            return new OperationDTO(this.id, this.type, this.walletId, this.status, this.error);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.sms.challenge.currencywalletapi.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Price batch service.
+ * <p>
+ * Pair lookups arriving within a short window (or until the batch is full) are answered by a single /pricemulti call
+ * with the union of their fsyms and tsyms, and the rates are fanned back out to the waiting callers. Pairs missing
+ * from the batched response, or every pair of a failed batch, are retried on their own through /price, so an unknown
+ * symbol still surfaces as not found without failing its neighbours.
+ */
+@Service
+public class PriceBatchService implements MeterBinder {
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private CryptoCurrencyFetcherService fetcherService;
+
+    private final Object lock = new Object();
+
+    private List<PendingPair> pending = new ArrayList<>();
+
+    private long generation;
+
+    private volatile DistributionSummary batchSizes;
+
+    /**
+     * Price a pair, joining the current batch.
+     *
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @return the mono of the price, empty when the pair has no price
+     */
+    public Mono<Double> price(String currencyFrom, String currencyTo) {
+        if (this.appConfig.getPriceBatchWindowMs() <= 0) {
+            return this.fetchSingle(currencyFrom, currencyTo);
+        }
+        return Mono.create(sink -> this.enqueue(new PendingPair(currencyFrom, currencyTo, sink)));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.batchSizes = DistributionSummary.builder("price.batch.size")
+                .description("Pairs answered by a single batched upstream call")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) Math.max(1, this.appConfig.getPriceBatchMaxSize()))
+                .register(registry);
+    }
+
+    private void enqueue(PendingPair pair) {
+        List<PendingPair> full = null;
+        long scheduled = -1;
+        synchronized (this.lock) {
+            this.pending.add(pair);
+            if (this.pending.size() >= this.appConfig.getPriceBatchMaxSize()) {
+                full = this.drain();
+            } else if (this.pending.size() == 1) {
+                scheduled = this.generation;
+            }
+        }
+        if (full != null) {
+            this.flush(full);
+        } else if (scheduled >= 0) {
+            final long batch = scheduled;
+            Schedulers.parallel().schedule(() -> this.flushWindow(batch), this.appConfig.getPriceBatchWindowMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushWindow(long batch) {
+        List<PendingPair> expired;
+        synchronized (this.lock) {
+            // The batch may have been flushed already because it filled up
+            if (batch != this.generation || this.pending.isEmpty()) {
+                return;
+            }
+            expired = this.drain();
+        }
+        this.flush(expired);
+    }
+
+    private List<PendingPair> drain() {
+        List<PendingPair> drained = this.pending;
+        this.pending = new ArrayList<>();
+        this.generation++;
+        return drained;
+    }
+
+    private void flush(List<PendingPair> batch) {
+        DistributionSummary summary = this.batchSizes;
+        if (summary != null) {
+            summary.record(batch.size());
+        }
+        if (batch.size() == 1) {
+            this.fetchSingle(batch.get(0));
+            return;
+        }
+        Set<String> currenciesFrom = new LinkedHashSet<>();
+        Set<String> currenciesTo = new LinkedHashSet<>();
+        Set<String> symbols = new LinkedHashSet<>();
+        for (PendingPair pair : batch) {
+            currenciesFrom.add(pair.currencyFrom);
+            currenciesTo.add(pair.currencyTo);
+            symbols.add(pair.currencyFrom);
+            symbols.add(pair.currencyTo);
+        }
+        CurrencyIndex index = CurrencyIndex.of(symbols.toArray(new String[0]));
+        this.fetcherService.fetchAsync(index, new ArrayList<>(currenciesFrom), new ArrayList<>(currenciesTo)).subscribe(
+                matrix -> this.fanOut(batch, matrix),
+                error -> batch.forEach(this::fetchSingle)
+        );
+    }
+
+    private void fanOut(List<PendingPair> batch, PriceMatrix matrix) {
+        for (PendingPair pair : batch) {
+            double price = matrix.rate(pair.currencyFrom, pair.currencyTo);
+            if (Double.isNaN(price)) {
+                this.fetchSingle(pair);
+            } else {
+                pair.sink.success(price);
+            }
+        }
+    }
+
+    private void fetchSingle(PendingPair pair) {
+        this.fetchSingle(pair.currencyFrom, pair.currencyTo).subscribe(pair.sink::success, pair.sink::error, pair.sink::success);
+    }
+
+    private Mono<Double> fetchSingle(String currencyFrom, String currencyTo) {
+        return this.fetcherService.fetchAsync(
+                CurrencyIndex.of(currencyFrom, currencyTo),
+                currencyFrom,
+                Collections.singletonList(currencyTo)
+        ).flatMap(matrix -> {
+            double price = matrix.rate(currencyFrom, currencyTo);
+            return Double.isNaN(price) ? Mono.empty() : Mono.just(price);
+        });
+    }
+
+    private static final class PendingPair {
+
+        private final String currencyFrom;
+        private final String currencyTo;
+        private final MonoSink<Double> sink;
+
+        private PendingPair(String currencyFrom, String currencyTo, MonoSink<Double> sink) {
+            this.currencyFrom = currencyFrom;
+            this.currencyTo = currencyTo;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.sms.challenge.currencywalletapi.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.entity.PriceSnapshot;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The type Price snapshot service.
+ * <p>
+ * Refreshes the whole crypto x fiat price matrix in the background, ahead of the staleness bound, and publishes it
+ * as an immutable {@link PriceSnapshot}. Price reads then become in-memory reads instead of upstream round trips.
+ */
+@Service
+public class PriceSnapshotService implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PriceSnapshotService.class);
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private CurrencyRegistry currencyRegistry;
+
+    @Autowired
+    private CryptoCurrencyFetcherService fetcherService;
+
+    @Autowired
+    private Clock clock;
+
+    private final AtomicReference<PriceSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong refreshSuccesses = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong lastRefreshDurationMillis = new AtomicLong();
+
+    /**
+     * Gets the current snapshot if it is within the staleness bound.
+     *
+     * @return the optional snapshot
+     */
+    public Optional<PriceSnapshot> current() {
+        PriceSnapshot current = this.snapshot.get();
+        if (current == null || current.age(this.clock.instant()).toMillis() > this.appConfig.getPriceMaxStalenessMs()) {
+            return Optional.empty();
+        }
+        return Optional.of(current);
+    }
+
+    /**
+     * Gets the last published snapshot regardless of its age, to serve stale prices while the upstream API is down.
+     *
+     * @return the optional snapshot
+     */
+    public Optional<PriceSnapshot> latest() {
+        return Optional.ofNullable(this.snapshot.get());
+    }
+
+    /**
+     * Scheduled refresh.
+     */
+    @Scheduled(fixedDelayString = "${config.price-refresh-interval-ms:5000}")
+    public void scheduledRefresh() {
+        if (this.appConfig.isPriceRefreshEnabled()) {
+            this.refresh();
+        }
+    }
+
+    /**
+     * Refresh the snapshot. On failure the previous snapshot is kept until it exceeds the staleness bound.
+     */
+    public void refresh() {
+        long start = System.nanoTime();
+        try {
+            CurrencyIndex index = this.currencyRegistry.getIndex();
+            PriceMatrix matrix = this.fetcherService.fetch(index, index.symbols(true), index.symbols(false));
+            if (matrix.isEmpty()) {
+                throw new IllegalStateException("Empty price matrix");
+            }
+            this.snapshot.set(new PriceSnapshot(this.clock.instant(), matrix));
+            this.refreshSuccesses.incrementAndGet();
+        } catch (RuntimeException e) {
+            this.refreshFailures.incrementAndGet();
+            LOG.warn("Price snapshot refresh failed {}", e.getMessage());
+        } finally {
+            this.lastRefreshDurationMillis.set((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("price.snapshot.refresh", this.refreshSuccesses, AtomicLong::get)
+                .tag("result", "success")
+                .description("Price snapshot refreshes")
+                .register(registry);
+        FunctionCounter.builder("price.snapshot.refresh", this.refreshFailures, AtomicLong::get)
+                .tag("result", "failure")
+                .description("Price snapshot refreshes")
+                .register(registry);
+        Gauge.builder("price.snapshot.refresh.duration", this.lastRefreshDurationMillis, AtomicLong::get)
+                .description("Duration of the last price snapshot refresh in milliseconds")
+                .register(registry);
+        Gauge.builder("price.snapshot.age", this, service -> {
+            PriceSnapshot current = service.snapshot.get();
+            return current == null ? Double.NaN : current.age(service.clock.instant()).toMillis();
+        }).description("Age of the published price snapshot in milliseconds").register(registry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.sms.challenge.currencywalletapi.service;
+
+/**
+ * The enum Wallet lock mode.
+ */
+public enum WalletLockMode {
+    /**
+     * Wallets are read with a write lock held until the operation commits.
+     */
+    PESSIMISTIC,
+    /**
+     * Wallets are read without a lock; a concurrent update is detected by version on commit and the operation retried.
+     */
+    OPTIMISTIC
+}
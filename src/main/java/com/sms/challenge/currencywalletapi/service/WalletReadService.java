@@ -0,0 +1,126 @@
+package com.sms.challenge.currencywalletapi.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import com.sms.challenge.currencywalletapi.domain.CurrencyAmountDTO;
+import com.sms.challenge.currencywalletapi.domain.WalletDTO;
+import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.event.WalletChangedEvent;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The type Wallet read service.
+ * <p>
+ * Read model of the wallets: the {@link WalletDTO} form is kept in the Hazelcast map {@value #CACHE_WALLETS}, keyed
+ * by wallet id. Every committed write replaces the entry (a delete with a deleted marker), so steady state reads never
+ * reach the database. Entries are ordered by the version of the wallet: a write, or a miss loaded from the database,
+ * is only stored over an older version, so commits applied out of order, or a load racing a commit or a delete,
+ * cannot leave a stale wallet in the map.
+ */
+@Service
+public class WalletReadService {
+
+    /**
+     * The wallets map name.
+     */
+    public static final String CACHE_WALLETS = "wallets";
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private HazelcastInstance hazelcastInstance;
+
+    /**
+     * Find wallet dto.
+     *
+     * @param id the id
+     * @return the wallet dto
+     */
+    public WalletDTO find(Long id) {
+        // Input validations
+        if (id == null) {
+            throw new ValidationException("Id is required");
+        }
+        IMap<Long, WalletDTO> wallets = this.wallets();
+        WalletDTO cached = wallets.get(id);
+        if (cached == null) {
+            // Only stored if no newer state was written meanwhile, so it cannot overwrite a commit or revive a delete
+            cached = wallets.executeOnKey(id, new NewerVersion(toDTO(this.walletService.find(id))));
+        }
+        if (cached.isDeleted()) {
+            throw new NotFoundException("Wallet not found");
+        }
+        return cached;
+    }
+
+    /**
+     * Update the read model once the write is committed; a rolled back write leaves it untouched.
+     *
+     * @param event the event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWalletChanged(WalletChangedEvent event) {
+        // Listeners run after the locks are released, so commits of a wallet may get here out of order
+        WalletDTO dto = event.getWallet() == null ? WalletDTO.deleted(event.getWalletId()) : toDTO(event.getWallet());
+        this.wallets().executeOnKey(event.getWalletId(), new NewerVersion(dto));
+    }
+
+    /**
+     * Map a wallet to its dto.
+     *
+     * @param wallet the wallet
+     * @return the wallet dto
+     */
+    public static WalletDTO toDTO(Wallet wallet) {
+        List<CurrencyAmountDTO> currencyAmounts = wallet.getCurrencyAmounts() == null ? Collections.emptyList() :
+                wallet.getCurrencyAmounts().stream().map(item -> new CurrencyAmountDTO(
+                        item.getCurrency(),
+                        FixedPoint.toDecimal(item.getAmount(), item.getScale())
+                )).collect(Collectors.toList());
+        return WalletDTO.builder().id(wallet.getId()).name(wallet.getName()).currencyAmounts(currencyAmounts).version(wallet.getVersion()).build();
+    }
+
+    private IMap<Long, WalletDTO> wallets() {
+        return this.hazelcastInstance.getMap(CACHE_WALLETS);
+    }
+
+    /**
+     * Stores a wallet dto unless the entry already holds the same or a newer version, and returns the entry.
+     */
+    private static final class NewerVersion implements EntryProcessor<Long, WalletDTO, WalletDTO> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final WalletDTO candidate;
+
+        private NewerVersion(WalletDTO candidate) {
+            this.candidate = candidate;
+        }
+
+        @Override
+        public WalletDTO process(Map.Entry<Long, WalletDTO> entry) {
+            WalletDTO current = entry.getValue();
+            if (current == null || version(this.candidate) > version(current)) {
+                entry.setValue(this.candidate);
+                return this.candidate;
+            }
+            return current;
+        }
+
+        private static long version(WalletDTO dto) {
+            return dto.getVersion() == null ? -1L : dto.getVersion();
+        }
+    }
+}
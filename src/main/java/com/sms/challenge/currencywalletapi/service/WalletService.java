@@ -3,13 +3,20 @@ package com.sms.challenge.currencywalletapi.service;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
 import com.sms.challenge.currencywalletapi.exception.ValidationException;
 import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.event.WalletChangedEvent;
 import com.sms.challenge.currencywalletapi.repository.WalletRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
 
 /**
  * The type Wallet service.
@@ -21,6 +28,9 @@ public class WalletService {
     @Autowired
     private WalletRepository walletRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Find wallet.
      *
@@ -51,6 +61,36 @@ public class WalletService {
         return this.walletRepository.findByIdForWrite(id).orElseThrow(() -> new NotFoundException("Wallet not found"));
     }
 
+    /**
+     * Find all for write list. The wallets are locked in ascending id order; missing ids are left out.
+     *
+     * @param ids the ids
+     * @return the wallets, ordered by id
+     */
+    public List<Wallet> findAllForWrite(Collection<Long> ids) {
+        // Input validations
+        if (CollectionUtils.isEmpty(ids) || ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("Id is required");
+        }
+        // Find wallets
+        return this.walletRepository.findAllByIdForWrite(new TreeSet<>(ids));
+    }
+
+    /**
+     * Find all list. Missing ids are left out.
+     *
+     * @param ids the ids
+     * @return the wallets
+     */
+    public List<Wallet> findAll(Collection<Long> ids) {
+        // Input validations
+        if (CollectionUtils.isEmpty(ids) || ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("Id is required");
+        }
+        // Find wallets
+        return this.walletRepository.findAllById(ids);
+    }
+
     /**
      * Find for read wallet.
      *
@@ -83,14 +123,16 @@ public class WalletService {
         if (StringUtils.isEmpty(wallet.getName())) {
             throw new ValidationException("Name is required");
         }
-        if (!CollectionUtils.isEmpty(wallet.getCurrencyAmounts()) && wallet.getCurrencyAmounts().stream().anyMatch(item -> item.getAmount() == null)) {
-            throw new ValidationException("Amount is required in currency amounts");
+        if (!CollectionUtils.isEmpty(wallet.getCurrencyAmounts()) && wallet.getCurrencyAmounts().stream().anyMatch(item -> item.getAmount() < 0)) {
+            throw new ValidationException("Amount must not be negative in currency amounts");
         }
         if (!CollectionUtils.isEmpty(wallet.getCurrencyAmounts()) && wallet.getCurrencyAmounts().stream().anyMatch(item -> item.getCurrency() == null)) {
             throw new ValidationException("Currency is required in currency amounts");
         }
         // Save wallet
-        return walletRepository.save(wallet);
+        Wallet saved = walletRepository.save(wallet);
+        this.eventPublisher.publishEvent(new WalletChangedEvent(saved.getId(), saved));
+        return saved;
     }
 
     /**
@@ -112,8 +154,12 @@ public class WalletService {
             throw new ValidationException("Name is required");
         }
         persisted.setName(wallet.getName());
+        // Always dirty, so the version also counts the balance changes, which are made on the currency amounts
+        persisted.setUpdatedAt(LocalDateTime.now());
         // Update wallet
-        return walletRepository.save(persisted);
+        Wallet saved = walletRepository.save(persisted);
+        this.eventPublisher.publishEvent(new WalletChangedEvent(saved.getId(), saved));
+        return saved;
     }
 
     /**
@@ -129,5 +175,6 @@ public class WalletService {
         Wallet wallet = this.walletRepository.findById(id).orElseThrow(() -> new NotFoundException("Wallet not found"));
         // Delete wallet
         this.walletRepository.delete(wallet);
+        this.eventPublisher.publishEvent(new WalletChangedEvent(id, null));
     }
 }
@@ -0,0 +1,206 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The type Circuit breaker.
+ * <p>
+ * Tracks the outcome of the last calls in a sliding window and opens when the failure rate or the slow call rate
+ * reaches its threshold. While open, calls are rejected without waiting for the remote side; once the open duration
+ * elapses a single probe call is let through, and its outcome closes or reopens the circuit.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The enum State.
+     */
+    public enum State {
+        /**
+         * Calls go through.
+         */
+        CLOSED,
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+        /**
+         * A single probe call is in progress.
+         */
+        HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+
+    private final boolean[] failedCalls;
+    private final boolean[] slowCalls;
+    private int calls;
+    private int position;
+    private int failures;
+    private int slows;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+    private long rejected;
+
+    /**
+     * Instantiates a new Circuit breaker.
+     *
+     * @param windowSize            the number of calls evaluated
+     * @param minimumCalls          the minimum number of calls before the rates are evaluated
+     * @param failureRateThreshold  the failure rate opening the circuit
+     * @param slowCallRateThreshold the slow call rate opening the circuit
+     * @param slowCallMillis        the duration above which a call is slow
+     * @param openMillis            the time the circuit stays open before a probe
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                          long slowCallMillis, long openMillis) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallMillis, openMillis, System::nanoTime);
+    }
+
+    /**
+     * Instantiates a new Circuit breaker.
+     *
+     * @param windowSize            the number of calls evaluated
+     * @param minimumCalls          the minimum number of calls before the rates are evaluated
+     * @param failureRateThreshold  the failure rate opening the circuit
+     * @param slowCallRateThreshold the slow call rate opening the circuit
+     * @param slowCallMillis        the duration above which a call is slow
+     * @param openMillis            the time the circuit stays open before a probe
+     * @param nanoTime              the time source
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                          long slowCallMillis, long openMillis, LongSupplier nanoTime) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Invalid circuit breaker window");
+        }
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.nanoTime = nanoTime;
+        this.failedCalls = new boolean[windowSize];
+        this.slowCalls = new boolean[windowSize];
+    }
+
+    /**
+     * Try to acquire permission for a call.
+     *
+     * @return true if the call may proceed
+     */
+    public synchronized boolean tryAcquire() {
+        if (this.state == State.OPEN && this.nanoTime.getAsLong() - this.openedAt >= this.openNanos) {
+            this.state = State.HALF_OPEN;
+        }
+        if (this.state == State.CLOSED) {
+            return true;
+        }
+        if (this.state == State.HALF_OPEN && !this.probing) {
+            this.probing = true;
+            return true;
+        }
+        this.rejected++;
+        return false;
+    }
+
+    /**
+     * Record a successful call.
+     *
+     * @param durationNanos the call duration
+     */
+    public synchronized void onSuccess(long durationNanos) {
+        this.record(false, durationNanos >= this.slowCallNanos);
+    }
+
+    /**
+     * Record a failed call.
+     *
+     * @param durationNanos the call duration
+     */
+    public synchronized void onError(long durationNanos) {
+        this.record(true, durationNanos >= this.slowCallNanos);
+    }
+
+    /**
+     * Release a permitted call that was cancelled before completing.
+     */
+    public synchronized void onCancel() {
+        if (this.state == State.HALF_OPEN) {
+            this.probing = false;
+        }
+    }
+
+    /**
+     * Gets state.
+     *
+     * @return the state
+     */
+    public synchronized State getState() {
+        return this.state;
+    }
+
+    /**
+     * Gets the number of rejected calls.
+     *
+     * @return the rejected count
+     */
+    public synchronized long getRejected() {
+        return this.rejected;
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (this.state == State.HALF_OPEN) {
+            this.probing = false;
+            if (failed || slow) {
+                this.open();
+            } else {
+                this.close();
+            }
+            return;
+        }
+        if (this.state == State.OPEN) {
+            // Late outcome of a call started before the circuit opened
+            return;
+        }
+        if (this.calls == this.failedCalls.length) {
+            this.failures -= this.failedCalls[this.position] ? 1 : 0;
+            this.slows -= this.slowCalls[this.position] ? 1 : 0;
+        } else {
+            this.calls++;
+        }
+        this.failedCalls[this.position] = failed;
+        this.slowCalls[this.position] = slow;
+        this.failures += failed ? 1 : 0;
+        this.slows += slow ? 1 : 0;
+        this.position = (this.position + 1) % this.failedCalls.length;
+        if (this.calls >= this.minimumCalls && ((double) this.failures / this.calls >= this.failureRateThreshold
+                || (double) this.slows / this.calls >= this.slowCallRateThreshold)) {
+            this.open();
+        }
+    }
+
+    private void open() {
+        this.state = State.OPEN;
+        this.openedAt = this.nanoTime.getAsLong();
+        this.reset();
+    }
+
+    private void close() {
+        this.state = State.CLOSED;
+        this.reset();
+    }
+
+    private void reset() {
+        this.calls = 0;
+        this.position = 0;
+        this.failures = 0;
+        this.slows = 0;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import com.sms.challenge.currencywalletapi.entity.Conversion;
+import com.sms.challenge.currencywalletapi.entity.ConversionPath;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+
+/**
+ * The type Conversion engine.
+ * <p>
+ * Resolves the rate of any pair from a {@link PriceMatrix}: the direct rate, the reciprocal of the opposite pair,
+ * or the product of two legs through a pivot currency (e.g. BTC to ETH through USD, EUR to ARS through BTC).
+ * Among pivots, the one needing fewer reciprocal legs wins, then the lowest ordinal.
+ */
+public final class ConversionEngine {
+
+    private ConversionEngine() {
+    }
+
+    /**
+     * Resolve a conversion.
+     *
+     * @param matrix       the matrix
+     * @param currencyFrom the currency from
+     * @param currencyTo   the currency to
+     * @return the conversion, or null when no path exists in the matrix
+     */
+    public static Conversion resolve(PriceMatrix matrix, String currencyFrom, String currencyTo) {
+        if (currencyFrom.equals(currencyTo)) {
+            return new Conversion(currencyFrom, currencyTo, 1.0, ConversionPath.IDENTITY, null);
+        }
+        CurrencyIndex index = matrix.getIndex();
+        int from = index.ordinal(currencyFrom);
+        int to = index.ordinal(currencyTo);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        double direct = matrix.rate(from, to);
+        if (isRate(direct)) {
+            return new Conversion(currencyFrom, currencyTo, direct, ConversionPath.DIRECT, null);
+        }
+        double opposite = matrix.rate(to, from);
+        if (isRate(opposite)) {
+            return new Conversion(currencyFrom, currencyTo, 1.0 / opposite, ConversionPath.INVERSE, null);
+        }
+        int bestPivot = -1;
+        int bestInversions = Integer.MAX_VALUE;
+        double bestRate = Double.NaN;
+        for (int pivot = 0; pivot < index.size() && bestInversions > 0; pivot++) {
+            if (pivot == from || pivot == to) {
+                continue;
+            }
+            double firstDirect = matrix.rate(from, pivot);
+            double firstOpposite = matrix.rate(pivot, from);
+            double secondDirect = matrix.rate(pivot, to);
+            double secondOpposite = matrix.rate(to, pivot);
+            boolean firstInverse = !isRate(firstDirect);
+            boolean secondInverse = !isRate(secondDirect);
+            if ((firstInverse && !isRate(firstOpposite)) || (secondInverse && !isRate(secondOpposite))) {
+                continue;
+            }
+            int inversions = (firstInverse ? 1 : 0) + (secondInverse ? 1 : 0);
+            if (inversions < bestInversions) {
+                bestInversions = inversions;
+                bestPivot = pivot;
+                bestRate = (firstInverse ? 1.0 / firstOpposite : firstDirect) * (secondInverse ? 1.0 / secondOpposite : secondDirect);
+            }
+        }
+        if (bestPivot < 0) {
+            return null;
+        }
+        return new Conversion(currencyFrom, currencyTo, bestRate, ConversionPath.PIVOT, index.symbol(bestPivot));
+    }
+
+    private static boolean isRate(double rate) {
+        return !Double.isNaN(rate) && rate > 0;
+    }
+}
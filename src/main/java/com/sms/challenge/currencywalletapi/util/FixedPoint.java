@@ -0,0 +1,173 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The type Fixed point.
+ * <p>
+ * Amounts are stored as a {@code long} count of minor units at a per-currency scale: 2.5 BTC at scale 8 is
+ * 250000000. The arithmetic fails with an {@link ArithmeticException} instead of overflowing or silently rounding an
+ * amount. It works on primitives only, except for the {@link #convert(long, int, double, int) conversion} at a price,
+ * whose product exceeds the 53 bits a double holds exactly; otherwise {@link BigDecimal} is only used at the edges, to
+ * read and write the exact decimal amounts of the JSON API, through the {@link Serializer} and {@link Deserializer}.
+ */
+public final class FixedPoint {
+
+    /**
+     * The constant MAX_SCALE.
+     */
+    public static final int MAX_SCALE = 18;
+
+    private static final int MAX_DIGITS = 19;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private FixedPoint() {
+    }
+
+    /**
+     * Convert a decimal amount to minor units.
+     *
+     * @param amount the amount
+     * @param scale  the scale
+     * @return the minor units
+     * @throws ArithmeticException when the amount has more decimals than the scale or does not fit a long
+     */
+    public static long toMinorUnits(BigDecimal amount, int scale) {
+        if (!isRepresentable(amount)) {
+            throw new ArithmeticException("long overflow");
+        }
+        return amount.setScale(checkScale(scale), RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convert minor units to a decimal amount.
+     *
+     * @param minorUnits the minor units
+     * @param scale      the scale
+     * @return the amount
+     */
+    public static BigDecimal toDecimal(long minorUnits, int scale) {
+        return BigDecimal.valueOf(minorUnits, scale);
+    }
+
+    /**
+     * Express minor units at another scale.
+     *
+     * @param minorUnits the minor units
+     * @param scaleFrom  the scale from
+     * @param scaleTo    the scale to
+     * @return the minor units at the scale to
+     * @throws ArithmeticException when precision would be lost or the result does not fit a long
+     */
+    public static long rescale(long minorUnits, int scaleFrom, int scaleTo) {
+        if (scaleFrom == scaleTo) {
+            return minorUnits;
+        }
+        if (scaleTo > scaleFrom) {
+            return Math.multiplyExact(minorUnits, POWERS_OF_TEN[checkScale(scaleTo) - checkScale(scaleFrom)]);
+        }
+        long divisor = POWERS_OF_TEN[checkScale(scaleFrom) - checkScale(scaleTo)];
+        if (minorUnits % divisor != 0) {
+            throw new ArithmeticException("Rounding necessary");
+        }
+        return minorUnits / divisor;
+    }
+
+    /**
+     * Convert minor units of a currency to minor units of another at a price, rounding half even to the nearest
+     * minor unit of the target currency. The price is taken as its shortest decimal representation, and the product
+     * is exact whatever the amount.
+     *
+     * @param minorUnits the minor units
+     * @param scaleFrom  the scale from
+     * @param price      the price of one unit from in units to
+     * @param scaleTo    the scale to
+     * @return the minor units to
+     * @throws ArithmeticException when the price is not finite or the result does not fit a long
+     */
+    public static long convert(long minorUnits, int scaleFrom, double price, int scaleTo) {
+        if (Double.isNaN(price) || Double.isInfinite(price)) {
+            throw new ArithmeticException("Invalid price " + price);
+        }
+        return BigDecimal.valueOf(minorUnits, checkScale(scaleFrom))
+                .multiply(BigDecimal.valueOf(price))
+                .setScale(checkScale(scaleTo), RoundingMode.HALF_EVEN)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    /**
+     * Whether a decimal amount can be held in minor units at some scale up to {@link #MAX_SCALE}.
+     *
+     * @param amount the amount
+     * @return the boolean
+     */
+    public static boolean isRepresentable(BigDecimal amount) {
+        // Checked on the scale and precision alone, so a huge exponent is rejected without being expanded
+        return amount.scale() <= MAX_SCALE && amount.precision() - amount.scale() <= MAX_DIGITS;
+    }
+
+    private static int checkScale(int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new ArithmeticException("Unsupported scale " + scale);
+        }
+        return scale;
+    }
+
+    /**
+     * The type Serializer. Writes an amount as a plain JSON number, without exponent nor trailing zeros, so
+     * {@code 2.50000000} is still rendered as {@code 2.5}.
+     */
+    public static class Serializer extends JsonSerializer<BigDecimal> {
+
+        @Override
+        public void serialize(BigDecimal value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.stripTrailingZeros().toPlainString());
+        }
+    }
+
+    /**
+     * The type Deserializer. Reads an amount, given as a JSON number or string, without going through a double, and
+     * rejects the amounts that no scale could hold.
+     */
+    public static class Deserializer extends JsonDeserializer<BigDecimal> {
+
+        @Override
+        public BigDecimal deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            BigDecimal value;
+            switch (p.currentToken()) {
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    value = p.getDecimalValue();
+                    break;
+                case VALUE_STRING:
+                    try {
+                        value = new BigDecimal(p.getText().trim());
+                    } catch (NumberFormatException e) {
+                        return (BigDecimal) ctxt.handleWeirdStringValue(BigDecimal.class, p.getText(), "not a valid amount");
+                    }
+                    break;
+                default:
+                    return (BigDecimal) ctxt.handleUnexpectedToken(BigDecimal.class, p);
+            }
+            if (!isRepresentable(value)) {
+                throw InvalidFormatException.from(p, "Amount out of range", value, BigDecimal.class);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import java.util.Arrays;
+
+/**
+ * The type Latency window.
+ * <p>
+ * Keeps the last call durations in a ring buffer to estimate a latency percentile.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private int count;
+    private int position;
+
+    /**
+     * Instantiates a new Latency window.
+     *
+     * @param size the number of samples kept
+     */
+    public LatencyWindow(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid latency window size");
+        }
+        this.samples = new long[size];
+    }
+
+    /**
+     * Record a call duration.
+     *
+     * @param durationNanos the duration
+     */
+    public synchronized void record(long durationNanos) {
+        this.samples[this.position] = durationNanos;
+        this.position = (this.position + 1) % this.samples.length;
+        if (this.count < this.samples.length) {
+            this.count++;
+        }
+    }
+
+    /**
+     * Gets a percentile of the recorded durations.
+     *
+     * @param quantile the quantile, between 0 and 1
+     * @return the duration in nanoseconds, or -1 when nothing was recorded
+     */
+    public long percentile(double quantile) {
+        long[] sorted;
+        synchronized (this) {
+            if (this.count == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(this.samples, this.count);
+        }
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+}
@@ -0,0 +1,182 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The type Price multi decoder.
+ * <p>
+ * Token level decoder for CryptoCompare price responses. Rates are written straight into a {@link PriceMatrix}
+ * builder while the body is parsed, and the error envelope ({@code "Response": "Error"}, {@code "Message"}) is
+ * detected in the same pass, so no intermediate maps or boxed numbers are allocated.
+ * <p>
+ * Both the {@code pricemulti} shape ({@code {"BTC": {"USD": 1.0}}}) and the single {@code price} shape
+ * ({@code {"USD": 1.0}}, given the from currency) are supported. Symbols missing from the index are skipped.
+ */
+public final class PriceMultiDecoder {
+
+    private static final String RESPONSE = "Response";
+    private static final String MESSAGE = "Message";
+    private static final String ERROR = "Error";
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final JsonFactory jsonFactory;
+
+    /**
+     * Instantiates a new Price multi decoder.
+     */
+    public PriceMultiDecoder() {
+        this(new JsonFactory());
+    }
+
+    /**
+     * Instantiates a new Price multi decoder.
+     *
+     * @param jsonFactory the json factory
+     */
+    public PriceMultiDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Decode a pricemulti response.
+     *
+     * @param body  the body
+     * @param index the index
+     * @return the price matrix
+     */
+    public PriceMatrix decode(InputStream body, CurrencyIndex index) {
+        return this.decode(body, index, null);
+    }
+
+    /**
+     * Decode a pricemulti response, or a single price response when the from currency is given.
+     *
+     * @param body         the body
+     * @param index        the index
+     * @param currencyFrom the currency from of a single price response, or null for pricemulti
+     * @return the price matrix
+     */
+    public PriceMatrix decode(InputStream body, CurrencyIndex index, String currencyFrom) {
+        try (JsonParser parser = this.jsonFactory.createParser(body)) {
+            return this.decode(parser, index, currencyFrom);
+        } catch (IOException e) {
+            throw new ExternalServiceException("Invalid price response", e);
+        }
+    }
+
+    private PriceMatrix decode(JsonParser parser, CurrencyIndex index, String currencyFrom) throws IOException {
+        PriceMatrix.Builder builder = PriceMatrix.builder(index);
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new ExternalServiceException("Invalid price response");
+        }
+        int singleFrom = currencyFrom == null ? -1 : index.ordinal(currencyFrom);
+        boolean error = false;
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (value == null) {
+                throw new ExternalServiceException("Invalid price response");
+            } else if (value == JsonToken.VALUE_STRING) {
+                if (RESPONSE.equals(name)) {
+                    error = ERROR.equals(parser.getText());
+                } else if (MESSAGE.equals(name)) {
+                    message = parser.getText();
+                }
+            } else if (value == JsonToken.START_OBJECT) {
+                int from = currencyFrom == null ? index.ordinal(name) : -1;
+                if (from < 0) {
+                    parser.skipChildren();
+                } else {
+                    this.decodeRow(parser, index, builder, from);
+                }
+            } else if (value.isNumeric() && singleFrom >= 0) {
+                int to = index.ordinal(name);
+                if (to >= 0) {
+                    builder.set(singleFrom, to, this.readDouble(parser, value));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (error) {
+            if (message != null && message.contains("market does not exist for this coin pair")) {
+                throw new NotFoundException("Currency symbol not found");
+            }
+            throw new ExternalServiceException(message);
+        }
+        return builder.build();
+    }
+
+    private void decodeRow(JsonParser parser, CurrencyIndex index, PriceMatrix.Builder builder, int from) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int to = index.ordinal(parser.getCurrentName());
+            JsonToken value = parser.nextToken();
+            if (to >= 0 && value != null && value.isNumeric()) {
+                builder.set(from, to, this.readDouble(parser, value));
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads a float token from the parser buffer. Plain decimals of up to 15 significant digits (the usual shape of
+     * prices) are converted exactly with a single division by a power of ten; anything else goes through
+     * {@link JsonParser#getDoubleValue()}, which allocates a String per number.
+     */
+    private double readDouble(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int end = offset + parser.getTextLength();
+        int i = offset;
+        boolean negative = text[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = text[i];
+            if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (digits > 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                // Exponent notation
+                return parser.getDoubleValue();
+            }
+            if (digits > MAX_EXACT_DIGITS) {
+                return parser.getDoubleValue();
+            }
+        }
+        if (scale >= POWERS_OF_TEN.length) {
+            return parser.getDoubleValue();
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+}
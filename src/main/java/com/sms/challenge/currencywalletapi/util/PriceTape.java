@@ -0,0 +1,336 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The type Price tape.
+ * <p>
+ * A compact, append-only binary log of upstream price responses. The file starts with a magic number and a version;
+ * each record then holds the request time, the call latency, the requested fsyms and tsyms, the outcome and, for
+ * successful calls, the fsyms x tsyms rates as doubles (NaN for missing pairs). A truncated last record, e.g. after
+ * a crash while recording, is ignored on read.
+ */
+public final class PriceTape {
+
+    private static final int MAGIC = 0x50544150;
+    private static final byte VERSION = 1;
+
+    private PriceTape() {
+    }
+
+    /**
+     * The enum Outcome.
+     */
+    public enum Outcome {
+        /**
+         * Prices returned.
+         */
+        OK,
+        /**
+         * Unknown currency symbol.
+         */
+        NOT_FOUND,
+        /**
+         * Upstream failure.
+         */
+        ERROR
+    }
+
+    /**
+     * Read a tape.
+     *
+     * @param input the input
+     * @return the records in recording order
+     * @throws IOException the io exception
+     */
+    public static List<Record> read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+        if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+            throw new IOException("Not a price tape");
+        }
+        List<Record> records = new ArrayList<>();
+        try {
+            while (true) {
+                records.add(readRecord(data));
+            }
+        } catch (EOFException e) {
+            return records;
+        }
+    }
+
+    private static Record readRecord(DataInputStream data) throws IOException {
+        long timestamp = data.readLong();
+        int latencyMicros = data.readInt();
+        boolean single = data.readBoolean();
+        Outcome outcome = Outcome.values()[data.readByte()];
+        List<String> currenciesFrom = split(data.readUTF());
+        List<String> currenciesTo = split(data.readUTF());
+        if (outcome != Outcome.OK) {
+            return new Record(timestamp, latencyMicros, single, currenciesFrom, currenciesTo, outcome, data.readUTF(), null);
+        }
+        double[] rates = new double[currenciesFrom.size() * currenciesTo.size()];
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = data.readDouble();
+        }
+        return new Record(timestamp, latencyMicros, single, currenciesFrom, currenciesTo, outcome, null, rates);
+    }
+
+    private static List<String> split(String symbols) {
+        return symbols.isEmpty() ? Collections.emptyList() : Arrays.asList(symbols.split(","));
+    }
+
+    /**
+     * The type Record.
+     */
+    public static final class Record {
+
+        private final long timestamp;
+        private final int latencyMicros;
+        private final boolean single;
+        private final List<String> currenciesFrom;
+        private final List<String> currenciesTo;
+        private final Outcome outcome;
+        private final String message;
+        private final double[] rates;
+
+        private Record(long timestamp, int latencyMicros, boolean single, List<String> currenciesFrom,
+                       List<String> currenciesTo, Outcome outcome, String message, double[] rates) {
+            this.timestamp = timestamp;
+            this.latencyMicros = latencyMicros;
+            this.single = single;
+            this.currenciesFrom = currenciesFrom;
+            this.currenciesTo = currenciesTo;
+            this.outcome = outcome;
+            this.message = message;
+            this.rates = rates;
+        }
+
+        /**
+         * Record of a successful call.
+         *
+         * @param timestamp      the request time in epoch milliseconds
+         * @param latencyMicros  the call latency in microseconds
+         * @param single         true for a single currency call
+         * @param currenciesFrom the currencies from
+         * @param currenciesTo   the currencies to
+         * @param matrix         the price matrix returned
+         * @return the record
+         */
+        public static Record ok(long timestamp, int latencyMicros, boolean single, List<String> currenciesFrom,
+                                List<String> currenciesTo, PriceMatrix matrix) {
+            double[] rates = new double[currenciesFrom.size() * currenciesTo.size()];
+            for (int i = 0; i < currenciesFrom.size(); i++) {
+                for (int j = 0; j < currenciesTo.size(); j++) {
+                    rates[i * currenciesTo.size() + j] = matrix.rate(currenciesFrom.get(i), currenciesTo.get(j));
+                }
+            }
+            return new Record(timestamp, latencyMicros, single, currenciesFrom, currenciesTo, Outcome.OK, null, rates);
+        }
+
+        /**
+         * Record of a failed call.
+         *
+         * @param timestamp      the request time in epoch milliseconds
+         * @param latencyMicros  the call latency in microseconds
+         * @param single         true for a single currency call
+         * @param currenciesFrom the currencies from
+         * @param currenciesTo   the currencies to
+         * @param outcome        the outcome
+         * @param message        the error message
+         * @return the record
+         */
+        public static Record failed(long timestamp, int latencyMicros, boolean single, List<String> currenciesFrom,
+                                    List<String> currenciesTo, Outcome outcome, String message) {
+            return new Record(timestamp, latencyMicros, single, currenciesFrom, currenciesTo, outcome,
+                    message == null ? "" : message, null);
+        }
+
+        /**
+         * Gets timestamp.
+         *
+         * @return the timestamp in epoch milliseconds
+         */
+        public long getTimestamp() {
+            return this.timestamp;
+        }
+
+        /**
+         * Gets latency micros.
+         *
+         * @return the latency in microseconds
+         */
+        public int getLatencyMicros() {
+            return this.latencyMicros;
+        }
+
+        /**
+         * Is single boolean.
+         *
+         * @return true for a single currency call
+         */
+        public boolean isSingle() {
+            return this.single;
+        }
+
+        /**
+         * Gets currencies from.
+         *
+         * @return the currencies from
+         */
+        public List<String> getCurrenciesFrom() {
+            return this.currenciesFrom;
+        }
+
+        /**
+         * Gets currencies to.
+         *
+         * @return the currencies to
+         */
+        public List<String> getCurrenciesTo() {
+            return this.currenciesTo;
+        }
+
+        /**
+         * Gets outcome.
+         *
+         * @return the outcome
+         */
+        public Outcome getOutcome() {
+            return this.outcome;
+        }
+
+        /**
+         * Gets message.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return this.message;
+        }
+
+        /**
+         * Gets a recorded rate.
+         *
+         * @param currencyFrom the currency from
+         * @param currencyTo   the currency to
+         * @return the rate, NaN when not recorded
+         */
+        public double rate(String currencyFrom, String currencyTo) {
+            int from = this.currenciesFrom.indexOf(currencyFrom);
+            int to = this.currenciesTo.indexOf(currencyTo);
+            if (this.rates == null || from < 0 || to < 0) {
+                return Double.NaN;
+            }
+            return this.rates[from * this.currenciesTo.size() + to];
+        }
+
+        /**
+         * Rebuild the price matrix for an index.
+         *
+         * @param index the index
+         * @return the price matrix
+         */
+        public PriceMatrix toMatrix(CurrencyIndex index) {
+            PriceMatrix.Builder builder = PriceMatrix.builder(index);
+            for (int i = 0; i < this.currenciesFrom.size(); i++) {
+                int from = index.ordinal(this.currenciesFrom.get(i));
+                for (int j = 0; j < this.currenciesTo.size(); j++) {
+                    int to = index.ordinal(this.currenciesTo.get(j));
+                    double rate = this.rates[i * this.currenciesTo.size() + j];
+                    if (from >= 0 && to >= 0 && !Double.isNaN(rate)) {
+                        builder.set(from, to, rate);
+                    }
+                }
+            }
+            return builder.build();
+        }
+
+        private void write(DataOutputStream data) throws IOException {
+            data.writeLong(this.timestamp);
+            data.writeInt(this.latencyMicros);
+            data.writeBoolean(this.single);
+            data.writeByte(this.outcome.ordinal());
+            data.writeUTF(String.join(",", this.currenciesFrom));
+            data.writeUTF(String.join(",", this.currenciesTo));
+            if (this.outcome != Outcome.OK) {
+                data.writeUTF(this.message);
+                return;
+            }
+            for (double rate : this.rates) {
+                data.writeDouble(rate);
+            }
+        }
+    }
+
+    /**
+     * The type Writer.
+     * <p>
+     * Not thread safe, records are appended by a single thread. They are buffered until {@link #flush()} or
+     * {@link #close()}.
+     */
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream data;
+
+        /**
+         * Instantiates a new Writer, appending to the tape if it exists.
+         *
+         * @param path the path
+         * @throws IOException the io exception
+         */
+        public Writer(Path path) throws IOException {
+            boolean empty = !Files.exists(path) || Files.size(path) == 0;
+            this.data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    path,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND
+            )));
+            if (empty) {
+                this.data.writeInt(MAGIC);
+                this.data.writeByte(VERSION);
+                this.data.flush();
+            }
+        }
+
+        /**
+         * Append a record.
+         *
+         * @param record the record
+         * @throws IOException the io exception
+         */
+        public void append(Record record) throws IOException {
+            record.write(this.data);
+        }
+
+        /**
+         * Flush the appended records to the tape.
+         *
+         * @throws IOException the io exception
+         */
+        public void flush() throws IOException {
+            this.data.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.data.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * The type Single flight.
+ * <p>
+ * Coalesces concurrent identical requests: while a call for a key is pending, every other caller for the same key
+ * subscribes to that pending call and receives its result (or error) instead of starting a new one.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Execute mono.
+     *
+     * @param key    the key
+     * @param loader the loader, invoked only when no call for the key is pending
+     * @return the mono
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            boolean[] created = new boolean[1];
+            Mono<V> shared = this.inFlight.computeIfAbsent(key, k -> {
+                created[0] = true;
+                return loader.get().doFinally(signal -> this.inFlight.remove(k)).cache();
+            });
+            if (!created[0]) {
+                this.coalesced.incrementAndGet();
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * Gets the number of calls that joined a pending call instead of starting a new one.
+     *
+     * @return the coalesced count
+     */
+    public long getCoalesced() {
+        return this.coalesced.get();
+    }
+
+    /**
+     * Gets the number of calls currently pending.
+     *
+     * @return the in flight count
+     */
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+}
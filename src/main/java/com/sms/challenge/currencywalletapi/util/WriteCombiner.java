@@ -0,0 +1,169 @@
+package com.sms.challenge.currencywalletapi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The type Write combiner.
+ * <p>
+ * Group commit for hot keys: operations submitted for a key are queued, and a single drain task per key, run on the
+ * executor, takes up to {@code maxBatchSize} of them at a time and hands them to the handler as one batch. The handler
+ * reports a failure per operation, so each caller still gets its own result; a handler that throws fails the whole
+ * batch. Operations of a key are applied in submission order, and never by two batches at the same time. The queue of
+ * a key is dropped once drained, so only the keys with pending operations are held.
+ *
+ * @param <K> the key type
+ * @param <T> the operation type
+ */
+public class WriteCombiner<K, T> {
+
+    private final Map<K, Lane<T>> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final Handler<K, T> handler;
+
+    /**
+     * Instantiates a new Write combiner.
+     *
+     * @param executor     the executor running the drain tasks
+     * @param maxBatchSize the max batch size
+     * @param handler      the handler
+     */
+    public WriteCombiner(Executor executor, int maxBatchSize, Handler<K, T> handler) {
+        this.executor = executor;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.handler = handler;
+    }
+
+    /**
+     * Submit an operation.
+     *
+     * @param key       the key
+     * @param operation the operation
+     * @return the future, completed once the batch holding the operation is applied
+     */
+    public CompletableFuture<Void> submit(K key, T operation) {
+        Pending<T> pending = new Pending<>(operation);
+        this.queued.incrementAndGet();
+        // Queued atomically with the removal of an idle lane, so it is never added to a lane already dropped
+        Lane<T> lane = this.lanes.compute(key, (k, current) -> {
+            Lane<T> target = current == null ? new Lane<>() : current;
+            target.queue.add(pending);
+            return target;
+        });
+        this.schedule(key, lane);
+        return pending.result;
+    }
+
+    /**
+     * Gets the number of operations waiting for a batch.
+     *
+     * @return the queued count
+     */
+    public int getQueued() {
+        return this.queued.get();
+    }
+
+    private void schedule(K key, Lane<T> lane) {
+        if (lane.queue.isEmpty() || !lane.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.executor.execute(() -> this.drain(key, lane));
+        } catch (RejectedExecutionException e) {
+            lane.scheduled.set(false);
+            this.fail(this.poll(lane, Integer.MAX_VALUE), e);
+        }
+    }
+
+    private void drain(K key, Lane<T> lane) {
+        try {
+            List<Pending<T>> batch = this.poll(lane, this.maxBatchSize);
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<T> operations = new ArrayList<>(batch.size());
+            batch.forEach(pending -> operations.add(pending.operation));
+            List<? extends Throwable> failures;
+            try {
+                failures = this.handler.apply(key, operations);
+            } catch (RuntimeException | Error e) {
+                this.fail(batch, e);
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                Throwable failure = failures == null ? null : failures.get(i);
+                if (failure == null) {
+                    batch.get(i).result.complete(null);
+                } else {
+                    batch.get(i).result.completeExceptionally(failure);
+                }
+            }
+        } finally {
+            lane.scheduled.set(false);
+            // Dropped only when idle: a lane with a drain running, e.g. scheduled by a submission meanwhile, is
+            // dropped by that drain instead, so two lanes of a key never run at the same time
+            this.lanes.computeIfPresent(key, (k, current) ->
+                    current == lane && lane.queue.isEmpty() && !lane.scheduled.get() ? null : current);
+            // One batch per task, so the lanes sharing the executor take turns; anything queued meanwhile is next
+            this.schedule(key, lane);
+        }
+    }
+
+    private List<Pending<T>> poll(Lane<T> lane, int limit) {
+        List<Pending<T>> batch = new ArrayList<>();
+        Pending<T> pending;
+        while (batch.size() < limit && (pending = lane.queue.poll()) != null) {
+            batch.add(pending);
+        }
+        this.queued.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void fail(List<Pending<T>> batch, Throwable failure) {
+        batch.forEach(pending -> pending.result.completeExceptionally(failure));
+    }
+
+    /**
+     * The interface Handler.
+     *
+     * @param <K> the key type
+     * @param <T> the operation type
+     */
+    @FunctionalInterface
+    public interface Handler<K, T> {
+
+        /**
+         * Apply a batch.
+         *
+         * @param key        the key
+         * @param operations the operations, in submission order
+         * @return the failure of each operation, null when it succeeded
+         */
+        List<? extends Throwable> apply(K key, List<T> operations);
+    }
+
+    private static final class Lane<T> {
+        private final Queue<Pending<T>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private static final class Pending<T> {
+        private final T operation;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private Pending(T operation) {
+            this.operation = operation;
+        }
+    }
+}
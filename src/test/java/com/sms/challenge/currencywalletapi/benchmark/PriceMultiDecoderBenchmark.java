@@ -0,0 +1,107 @@
+package com.sms.challenge.currencywalletapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.util.PriceMultiDecoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Price multi decoder benchmark.
+ * <p>
+ * Compares the streaming decoder against the former path ({@code bodyToMono(Map.class)} followed by walking the
+ * nested maps). Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sms.challenge.currencywalletapi.benchmark.PriceMultiDecoderBenchmark}, adding
+ * {@code -prof gc} to the options to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceMultiDecoderBenchmark {
+
+    private static final String[] CRYPTO = {"BTC", "ETH", "CLAM", "GLX", "LTC", "XRP", "ADA", "DOT", "SOL", "DOGE"};
+    private static final String[] FIAT = {"USD", "EUR", "ARS", "GBP", "JPY", "BRL", "CLP", "MXN"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PriceMultiDecoder decoder = new PriceMultiDecoder();
+    private CurrencyIndex index;
+    private byte[] body;
+
+    /**
+     * Sets up.
+     */
+    @Setup
+    public void setUp() {
+        List<Currency> currencies = new ArrayList<>();
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < CRYPTO.length; i++) {
+            currencies.add(new Currency(CRYPTO[i], true));
+            json.append(i == 0 ? "" : ",").append('"').append(CRYPTO[i]).append("\":{");
+            for (int j = 0; j < FIAT.length; j++) {
+                // Prices as the API returns them: a few significant decimals
+                json.append(j == 0 ? "" : ",").append('"').append(FIAT[j]).append("\":").append(BigDecimal.valueOf(
+                        36150.42 / (i * 7 + 1) * (j + 1.37)).round(new MathContext(8)).toPlainString());
+            }
+            json.append('}');
+        }
+        json.append('}');
+        for (String fiat : FIAT) {
+            currencies.add(new Currency(fiat, false));
+        }
+        this.index = new CurrencyIndex(currencies);
+        this.body = json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Map based decoding.
+     *
+     * @return the price matrix
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public PriceMatrix mapBased() throws IOException {
+        Map<String, Object> data = this.objectMapper.readValue(this.body, Map.class);
+        if (data.get("Response") != null && String.valueOf(data.get("Response")).equals("Error")) {
+            throw new IllegalStateException(String.valueOf(data.get("Message")));
+        }
+        return PriceMatrix.from(this.index, (Map<String, Map<String, Number>>) (Map<String, ?>) data);
+    }
+
+    /**
+     * Streaming decoding.
+     *
+     * @return the price matrix
+     */
+    @Benchmark
+    public PriceMatrix streaming() {
+        return this.decoder.decode(new ByteArrayInputStream(this.body), this.index);
+    }
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     * @throws RunnerException the runner exception
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PriceMultiDecoderBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,139 @@
+package com.sms.challenge.currencywalletapi.benchmark;
+
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.sms.challenge.currencywalletapi.entity.CryptoCurrency;
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.entity.PriceSerializableFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The type Price serialization benchmark.
+ * <p>
+ * Compares Java serialization, which Hazelcast used for the cached price objects, against their
+ * {@code IdentifiedDataSerializable} form, for a whole {@code currencies} entry as rendered by {@link PriceMatrix}. Bytes per entry are printed before
+ * the run. Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.sms.challenge.currencywalletapi.benchmark.PriceSerializationBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceSerializationBenchmark {
+
+    private static final String[] CRYPTO = {"BTC", "ETH", "CLAM", "GLX", "LTC", "XRP", "ADA", "DOT", "SOL", "DOGE"};
+    private static final String[] FIAT = {"USD", "EUR", "ARS", "GBP", "JPY", "BRL", "CLP", "MXN"};
+
+    private SerializationService serializationService;
+    private List<CryptoCurrency> currencies;
+    private byte[] javaBytes;
+    private Data identifiedData;
+
+    /**
+     * Sets up.
+     *
+     * @throws IOException the io exception
+     */
+    @Setup
+    public void setUp() throws IOException {
+        this.serializationService = new DefaultSerializationServiceBuilder()
+                .addDataSerializableFactory(PriceSerializableFactory.FACTORY_ID, new PriceSerializableFactory())
+                .build();
+        List<Currency> symbols = new ArrayList<>();
+        Arrays.stream(CRYPTO).forEach(symbol -> symbols.add(new Currency(symbol, true)));
+        Arrays.stream(FIAT).forEach(symbol -> symbols.add(new Currency(symbol, false)));
+        CurrencyIndex index = new CurrencyIndex(symbols);
+        PriceMatrix.Builder builder = PriceMatrix.builder(index);
+        for (int i = 0; i < CRYPTO.length; i++) {
+            for (int j = 0; j < FIAT.length; j++) {
+                builder.set(index.ordinal(CRYPTO[i]), index.ordinal(FIAT[j]), 36150.42 / (i * 7 + 1) * (j + 1.37));
+            }
+        }
+        // The list the service puts in the currencies cache
+        this.currencies = builder.build().toCryptoCurrencies();
+        this.javaBytes = this.javaSerialize();
+        this.identifiedData = this.identifiedSerialize();
+    }
+
+    /**
+     * Java serialization.
+     *
+     * @return the bytes
+     * @throws IOException the io exception
+     */
+    @Benchmark
+    public byte[] javaSerialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(this.currencies);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Java deserialization.
+     *
+     * @return the object
+     * @throws IOException            the io exception
+     * @throws ClassNotFoundException the class not found exception
+     */
+    @Benchmark
+    public Object javaDeserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(this.javaBytes))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Identified data serialization.
+     *
+     * @return the data
+     */
+    @Benchmark
+    public Data identifiedSerialize() {
+        return this.serializationService.toData(this.currencies);
+    }
+
+    /**
+     * Identified data deserialization.
+     *
+     * @return the object
+     */
+    @Benchmark
+    public Object identifiedDeserialize() {
+        return this.serializationService.toObject(this.identifiedData);
+    }
+
+    /**
+     * The entry point of application.
+     *
+     * @param args the input arguments
+     * @throws RunnerException the runner exception
+     * @throws IOException     the io exception
+     */
+    public static void main(String[] args) throws RunnerException, IOException {
+        PriceSerializationBenchmark benchmark = new PriceSerializationBenchmark();
+        benchmark.setUp();
+        System.out.printf("currencies entry: java %d bytes, identified %d bytes%n",
+                benchmark.javaBytes.length, benchmark.identifiedData.totalSize());
+        new Runner(new OptionsBuilder().include(PriceSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
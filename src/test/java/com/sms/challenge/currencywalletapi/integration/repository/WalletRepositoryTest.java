@@ -39,9 +39,9 @@ class WalletRepositoryTest {
     @Test
     void testSave() {
         Set<CurrencyAmount> currencyAmounts = new HashSet<>();
-        currencyAmounts.add(new CurrencyAmount("BTC1", 98.69));
-        currencyAmounts.add(new CurrencyAmount("BTC2", 98.79));
-        currencyAmounts.add(new CurrencyAmount("BTC3", 98.69));
+        currencyAmounts.add(new CurrencyAmount("BTC1", 9869000000L, 8));
+        currencyAmounts.add(new CurrencyAmount("BTC2", 9879000000L, 8));
+        currencyAmounts.add(new CurrencyAmount("BTC3", 9869000000L, 8));
         Wallet wallet = new Wallet("MyWallet", currencyAmounts);
         repository.save(wallet);
         assertNotNull(wallet.getId());
@@ -57,17 +57,12 @@ class WalletRepositoryTest {
         assertTrue(exception.getMessage().contains("not-null property references a null or transient value"));
 
         Set<CurrencyAmount> currencyAmounts1 = new HashSet<>();
-        currencyAmounts1.add(new CurrencyAmount(null, 98.69));
+        currencyAmounts1.add(new CurrencyAmount(null, 9869000000L, 8));
         Wallet wallet1 = new Wallet("MyWallet", currencyAmounts1);
         assertThrows(DataIntegrityViolationException.class, () -> repository.save(wallet1));
 
-        Set<CurrencyAmount> currencyAmounts2 = new HashSet<>();
-        currencyAmounts2.add(new CurrencyAmount("BTC", null));
-        Wallet wallet2 = new Wallet("MyWallet", currencyAmounts2);
-        assertThrows(DataIntegrityViolationException.class, () -> repository.save(wallet2));
-
         Set<CurrencyAmount> currencyAmounts3 = new HashSet<>();
-        currencyAmounts3.add(new CurrencyAmount(null, null));
+        currencyAmounts3.add(new CurrencyAmount(null, 0L, 8));
         Wallet wallet3 = new Wallet("MyWallet", currencyAmounts3);
         assertThrows(DataIntegrityViolationException.class, () -> repository.save(wallet3));
     }
@@ -83,7 +78,7 @@ class WalletRepositoryTest {
         wallet = repository.findById(wallet.getId()).get();
         String newName = "Pedro";
         wallet.setName(newName);
-        wallet.getCurrencyAmounts().add(new CurrencyAmount("BTC", 98.69));
+        wallet.getCurrencyAmounts().add(new CurrencyAmount("BTC", 9869000000L, 8));
         repository.save(wallet);
         assertEquals(newName, wallet.getName());
         assertEquals(1, wallet.getCurrencyAmounts().size());
@@ -95,7 +90,7 @@ class WalletRepositoryTest {
     @Test
     void testDelete() {
         Set<CurrencyAmount> currencyAmounts = new HashSet<>();
-        currencyAmounts.add(new CurrencyAmount("BTC", 98.69));
+        currencyAmounts.add(new CurrencyAmount("BTC", 9869000000L, 8));
         Wallet wallet = new Wallet("MyWallet", currencyAmounts);
         repository.save(wallet);
         assertNotNull(wallet.getId());
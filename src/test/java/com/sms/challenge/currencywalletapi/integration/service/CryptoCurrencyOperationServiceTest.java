@@ -1,16 +1,27 @@
 package com.sms.challenge.currencywalletapi.integration.service;
 
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.domain.BatchMode;
+import com.sms.challenge.currencywalletapi.domain.BatchOperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationResultDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
 import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
 import com.sms.challenge.currencywalletapi.entity.Wallet;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyOperationService;
+import com.sms.challenge.currencywalletapi.service.CurrencyRegistry;
+import com.sms.challenge.currencywalletapi.service.WalletLockMode;
 import com.sms.challenge.currencywalletapi.service.WalletService;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -30,11 +41,11 @@ class CryptoCurrencyOperationServiceTest {
 
     private static final String CURRENCY_SYMBOL_FROM = "BTC";
     private static final String CURRENCY_SYMBOL_TO = "USD";
-    private static final Double CURRENCY_INITIAL_AMOUNT_TO = 100.0;
-    private static final Double CURRENCY_AMOUNT_TO_BUY = 5.0;
+    private static final BigDecimal CURRENCY_INITIAL_AMOUNT_TO = new BigDecimal("100");
+    private static final BigDecimal CURRENCY_AMOUNT_TO_BUY = new BigDecimal("5");
     private static final Double CURRENCY_PRICE = 20.0;
     private static final Integer THREAD_COUNT = 10;
-    private static final Double CURRENCY_INITIAL_AMOUNT_FROM = CURRENCY_AMOUNT_TO_BUY * THREAD_COUNT;
+    private static final BigDecimal CURRENCY_INITIAL_AMOUNT_FROM = CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(THREAD_COUNT));
 
     /**
      * The Service.
@@ -48,13 +59,25 @@ class CryptoCurrencyOperationServiceTest {
     @Autowired
     WalletService walletService;
 
+    /**
+     * The App config.
+     */
+    @Autowired
+    AppConfig appConfig;
+
+    /**
+     * The Currency registry.
+     */
+    @Autowired
+    CurrencyRegistry currencyRegistry;
+
     /**
      * Test buy fixed price.
      */
     @Test
     void testBuy_FixedPrice() {
-        CurrencyAmount ca1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
-        CurrencyAmount ca2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
+        CurrencyAmount ca1 = this.currencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
+        CurrencyAmount ca2 = this.currencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
         Set<CurrencyAmount> currencyAmounts = Stream.of(ca1, ca2).collect(Collectors.toSet());
         Wallet wallet = this.walletService.create(new Wallet("MyWallet", currencyAmounts));
 
@@ -69,22 +92,39 @@ class CryptoCurrencyOperationServiceTest {
         wallet = this.walletService.find(wallet.getId());
 
         assertEquals(
-                CURRENCY_INITIAL_AMOUNT_FROM - (CURRENCY_AMOUNT_TO_BUY * THREAD_COUNT),
-                wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get().getAmount()
+                CURRENCY_INITIAL_AMOUNT_FROM.subtract(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(THREAD_COUNT))).stripTrailingZeros(),
+                this.amountOf(wallet, CURRENCY_SYMBOL_FROM)
         );
         assertEquals(
-                (CURRENCY_INITIAL_AMOUNT_TO + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE) * THREAD_COUNT),
-                wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get().getAmount()
+                CURRENCY_INITIAL_AMOUNT_TO.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE)).multiply(BigDecimal.valueOf(THREAD_COUNT))).stripTrailingZeros(),
+                this.amountOf(wallet, CURRENCY_SYMBOL_TO)
         );
     }
 
+    /**
+     * Test buy fixed price in optimistic mode: every conflicting write is retried until it applies.
+     */
+    @Test
+    void testBuy_FixedPrice_Optimistic() {
+        WalletLockMode lockMode = this.appConfig.getWalletLockMode();
+        int maxAttempts = this.appConfig.getWalletRetryMaxAttempts();
+        this.appConfig.setWalletLockMode(WalletLockMode.OPTIMISTIC);
+        this.appConfig.setWalletRetryMaxAttempts(THREAD_COUNT * 5);
+        try {
+            this.testBuy_FixedPrice();
+        } finally {
+            this.appConfig.setWalletLockMode(lockMode);
+            this.appConfig.setWalletRetryMaxAttempts(maxAttempts);
+        }
+    }
+
     /**
      * Test buy without price.
      */
     @Test
     void testBuy_WithoutPrice() {
-        CurrencyAmount ca1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
-        CurrencyAmount ca2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
+        CurrencyAmount ca1 = this.currencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
+        CurrencyAmount ca2 = this.currencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
         Set<CurrencyAmount> currencyAmounts = Stream.of(ca1, ca2).collect(Collectors.toSet());
         Wallet wallet = this.walletService.create(new Wallet("MyWallet", currencyAmounts));
 
@@ -99,11 +139,11 @@ class CryptoCurrencyOperationServiceTest {
         wallet = this.walletService.find(wallet.getId());
 
         assertEquals(
-                CURRENCY_INITIAL_AMOUNT_FROM - (CURRENCY_AMOUNT_TO_BUY * THREAD_COUNT),
-                wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get().getAmount()
+                CURRENCY_INITIAL_AMOUNT_FROM.subtract(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(THREAD_COUNT))).stripTrailingZeros(),
+                this.amountOf(wallet, CURRENCY_SYMBOL_FROM)
         );
         assertTrue(
-                wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get().getAmount() > CURRENCY_INITIAL_AMOUNT_TO
+                this.amountOf(wallet, CURRENCY_SYMBOL_TO).compareTo(CURRENCY_INITIAL_AMOUNT_TO) > 0
         );
     }
 
@@ -112,13 +152,13 @@ class CryptoCurrencyOperationServiceTest {
      */
     @Test
     void testTransfer_FixedPrice() {
-        CurrencyAmount ca1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
-        CurrencyAmount ca2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
+        CurrencyAmount ca1 = this.currencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
+        CurrencyAmount ca2 = this.currencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
         Set<CurrencyAmount> currencyAmounts1 = Stream.of(ca1, ca2).collect(Collectors.toSet());
         Wallet wallet1 = this.walletService.create(new Wallet("MyWallet", currencyAmounts1));
 
-        CurrencyAmount ca3 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
-        CurrencyAmount ca4 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
+        CurrencyAmount ca3 = this.currencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
+        CurrencyAmount ca4 = this.currencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
         Set<CurrencyAmount> currencyAmounts2 = Stream.of(ca3, ca4).collect(Collectors.toSet());
         Wallet wallet2 = this.walletService.create(new Wallet("MyWallet", currencyAmounts2));
 
@@ -134,12 +174,12 @@ class CryptoCurrencyOperationServiceTest {
         wallet2 = this.walletService.find(wallet2.getId());
 
         assertEquals(
-                CURRENCY_INITIAL_AMOUNT_FROM - (CURRENCY_AMOUNT_TO_BUY * THREAD_COUNT),
-                wallet1.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get().getAmount()
+                CURRENCY_INITIAL_AMOUNT_FROM.subtract(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(THREAD_COUNT))).stripTrailingZeros(),
+                this.amountOf(wallet1, CURRENCY_SYMBOL_FROM)
         );
         assertEquals(
-                (CURRENCY_INITIAL_AMOUNT_TO + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE) * THREAD_COUNT),
-                wallet2.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get().getAmount()
+                CURRENCY_INITIAL_AMOUNT_TO.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE)).multiply(BigDecimal.valueOf(THREAD_COUNT))).stripTrailingZeros(),
+                this.amountOf(wallet2, CURRENCY_SYMBOL_TO)
         );
     }
 
@@ -148,13 +188,13 @@ class CryptoCurrencyOperationServiceTest {
      */
     @Test
     void testTransfer_WithoutPrice() {
-        CurrencyAmount ca1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
-        CurrencyAmount ca2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
+        CurrencyAmount ca1 = this.currencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
+        CurrencyAmount ca2 = this.currencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
         Set<CurrencyAmount> currencyAmounts1 = Stream.of(ca1, ca2).collect(Collectors.toSet());
         Wallet wallet1 = this.walletService.create(new Wallet("MyWallet", currencyAmounts1));
 
-        CurrencyAmount ca3 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
-        CurrencyAmount ca4 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
+        CurrencyAmount ca3 = this.currencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT_FROM);
+        CurrencyAmount ca4 = this.currencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO);
         Set<CurrencyAmount> currencyAmounts2 = Stream.of(ca3, ca4).collect(Collectors.toSet());
         Wallet wallet2 = this.walletService.create(new Wallet("MyWallet", currencyAmounts2));
 
@@ -170,14 +210,60 @@ class CryptoCurrencyOperationServiceTest {
         wallet2 = this.walletService.find(wallet2.getId());
 
         assertEquals(
-                CURRENCY_INITIAL_AMOUNT_FROM - (CURRENCY_AMOUNT_TO_BUY * THREAD_COUNT),
-                wallet1.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get().getAmount()
+                CURRENCY_INITIAL_AMOUNT_FROM.subtract(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(THREAD_COUNT))).stripTrailingZeros(),
+                this.amountOf(wallet1, CURRENCY_SYMBOL_FROM)
         );
         assertTrue(
-                wallet2.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get().getAmount() > CURRENCY_INITIAL_AMOUNT_TO
+                this.amountOf(wallet2, CURRENCY_SYMBOL_TO).compareTo(CURRENCY_INITIAL_AMOUNT_TO) > 0
         );
     }
 
+    /**
+     * Test a batch at fixed prices: an atomic batch with a failing operation rolls back the operations before it,
+     * a best-effort batch keeps them.
+     */
+    @Test
+    void testBatch_FixedPrice() {
+        Set<CurrencyAmount> currencyAmounts1 = Stream.of(this.currencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_AMOUNT_TO_BUY)).collect(Collectors.toSet());
+        Wallet wallet1 = this.walletService.create(new Wallet("MyWallet", currencyAmounts1));
+        Set<CurrencyAmount> currencyAmounts2 = Stream.of(this.currencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT_TO)).collect(Collectors.toSet());
+        Wallet wallet2 = this.walletService.create(new Wallet("MyWallet", currencyAmounts2));
+
+        BatchOperationDTO transfer = new BatchOperationDTO();
+        transfer.setType(OperationType.TRANSFER);
+        transfer.setWalletId(wallet1.getId());
+        transfer.setWalletIdTo(wallet2.getId());
+        transfer.setCurrencyFrom(CURRENCY_SYMBOL_FROM);
+        transfer.setCurrencyTo(CURRENCY_SYMBOL_TO);
+        transfer.setAmount(CURRENCY_AMOUNT_TO_BUY);
+        transfer.setPrice(CURRENCY_PRICE);
+        List<BatchOperationDTO> operations = Arrays.asList(transfer, transfer);
+
+        List<OperationResultDTO> atomic = this.service.batch(operations, BatchMode.ATOMIC);
+        assertEquals(OperationStatus.ABORTED, atomic.get(0).getStatus());
+        assertEquals(OperationStatus.FAILED, atomic.get(1).getStatus());
+        assertEquals(CURRENCY_AMOUNT_TO_BUY.stripTrailingZeros(), this.amountOf(this.walletService.find(wallet1.getId()), CURRENCY_SYMBOL_FROM));
+        assertEquals(CURRENCY_INITIAL_AMOUNT_TO.stripTrailingZeros(), this.amountOf(this.walletService.find(wallet2.getId()), CURRENCY_SYMBOL_TO));
+
+        List<OperationResultDTO> bestEffort = this.service.batch(operations, BatchMode.BEST_EFFORT);
+        assertEquals(OperationStatus.APPLIED, bestEffort.get(0).getStatus());
+        assertEquals(OperationStatus.FAILED, bestEffort.get(1).getStatus());
+        assertEquals(BigDecimal.ZERO, this.amountOf(this.walletService.find(wallet1.getId()), CURRENCY_SYMBOL_FROM));
+        assertEquals(
+                CURRENCY_INITIAL_AMOUNT_TO.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE))).stripTrailingZeros(),
+                this.amountOf(this.walletService.find(wallet2.getId()), CURRENCY_SYMBOL_TO)
+        );
+    }
+
+    private CurrencyAmount currencyAmount(String currency, BigDecimal amount) {
+        return CurrencyAmount.of(currency, amount, this.currencyRegistry.scale(currency));
+    }
+
+    private BigDecimal amountOf(Wallet wallet, String currency) {
+        CurrencyAmount currencyAmount = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(currency)).findFirst().get();
+        return FixedPoint.toDecimal(currencyAmount.getAmount(), currencyAmount.getScale()).stripTrailingZeros();
+    }
+
     private void collectFutures(List<Future<String>> futures) {
         futures.forEach(item -> {
             try {
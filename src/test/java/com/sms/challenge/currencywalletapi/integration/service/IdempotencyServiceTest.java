@@ -0,0 +1,317 @@
+package com.sms.challenge.currencywalletapi.integration.service;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.domain.OperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
+import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
+import com.sms.challenge.currencywalletapi.entity.IdempotencyKey;
+import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.exception.ConflictException;
+import com.sms.challenge.currencywalletapi.exception.TooManyRequestsException;
+import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import com.sms.challenge.currencywalletapi.repository.IdempotencyKeyRepository;
+import com.sms.challenge.currencywalletapi.service.IdempotencyService;
+import com.sms.challenge.currencywalletapi.service.OperationQueueService;
+import com.sms.challenge.currencywalletapi.service.WalletService;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Idempotency service test.
+ */
+@SpringBootTest
+class IdempotencyServiceTest {
+
+    private static final String CURRENCY_SYMBOL_FROM = "BTC";
+    private static final String CURRENCY_SYMBOL_TO = "USD";
+    private static final BigDecimal CURRENCY_INITIAL_AMOUNT = new BigDecimal("10");
+    private static final BigDecimal CURRENCY_AMOUNT_TO_BUY = new BigDecimal("1");
+    private static final Double CURRENCY_PRICE = 20.0;
+    private static final Integer THREAD_COUNT = 10;
+    private static final long WAIT_MS = 5000L;
+
+    /**
+     * The App config.
+     */
+    @Autowired
+    AppConfig appConfig;
+
+    /**
+     * The Wallet service.
+     */
+    @Autowired
+    WalletService walletService;
+
+    /**
+     * The Operation queue service.
+     */
+    @Autowired
+    OperationQueueService operationQueueService;
+
+    /**
+     * The Repository.
+     */
+    @Autowired
+    IdempotencyKeyRepository repository;
+
+    /**
+     * The Hazelcast instance.
+     */
+    @Autowired
+    HazelcastInstance hazelcastInstance;
+
+    /**
+     * The Service.
+     */
+    @Autowired
+    IdempotencyService service;
+
+    private final AtomicInteger submissions = new AtomicInteger();
+
+    private Long id;
+
+    /**
+     * Sets up.
+     */
+    @BeforeEach
+    void setUp() {
+        CurrencyAmount currencyAmount = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, 8);
+        this.id = this.walletService.create(new Wallet("MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet()))).getId();
+    }
+
+    /**
+     * Test a retry gets the operation of the first request, and its outcome once stored, without running it again.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testSubmit_Replayed() throws Exception {
+        String key = UUID.randomUUID().toString();
+        OperationDTO first = this.submitBuy(key);
+        assertEquals(OperationStatus.PENDING, first.getStatus());
+        assertEquals(OperationStatus.APPLIED, this.operationQueueService.await(first.getId(), WAIT_MS).block().getStatus());
+
+        OperationDTO retry = this.submitBuy(key);
+        assertEquals(first.getId(), retry.getId());
+        assertEquals(OperationType.BUY, retry.getType());
+        assertEquals(OperationStatus.APPLIED, retry.getStatus());
+
+        IdempotencyKey stored = this.awaitStored(key);
+        assertEquals(first.getId(), stored.getOperationId());
+        assertEquals(1, this.submissions.get());
+        assertEquals(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY).stripTrailingZeros(), this.amountOf(CURRENCY_SYMBOL_FROM));
+    }
+
+    /**
+     * Test concurrent requests with the same key share one operation.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testSubmit_Concurrent() throws Exception {
+        String key = UUID.randomUUID().toString();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<OperationDTO>> futures = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futures.add(executorService.submit(() -> {
+                    start.await();
+                    return this.submitBuy(key);
+                }));
+            }
+            start.countDown();
+            String operationId = futures.get(0).get().getId();
+            for (Future<OperationDTO> future : futures) {
+                assertEquals(operationId, future.get().getId());
+            }
+            this.operationQueueService.await(operationId, WAIT_MS).block();
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertEquals(1, this.submissions.get());
+        this.awaitStored(key);
+        assertEquals(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY).stripTrailingZeros(), this.amountOf(CURRENCY_SYMBOL_FROM));
+    }
+
+    /**
+     * Test a key reused for a different request is rejected.
+     */
+    @Test
+    void testSubmit_DifferentRequest() {
+        String key = UUID.randomUUID().toString();
+        this.submitBuy(key);
+        assertThrows(ValidationException.class, () -> this.service.submit(
+                key,
+                IdempotencyService.fingerprint(OperationType.BUY, this.id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, new BigDecimal("2"), CURRENCY_PRICE, false),
+                this.counting(() -> fail("A different request must not run"))
+        ));
+        assertThrows(ValidationException.class, () -> this.service.submit(" ", "", this.counting(() -> null)));
+        assertEquals(1, this.submissions.get());
+    }
+
+    /**
+     * Test a key whose operation was not queued is released, so a retry runs it.
+     */
+    @Test
+    void testSubmit_Released() {
+        String key = UUID.randomUUID().toString();
+        String fingerprint = IdempotencyService.fingerprint(OperationType.BUY, this.id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE, false);
+        assertThrows(ValidationException.class, () -> this.service.submit(key, fingerprint, this.counting(() -> {
+            throw new ValidationException("Amount must be positive");
+        })));
+        assertNull(this.repository.findByIdempotencyKey(key));
+
+        OperationDTO operation = this.submitBuy(key);
+        assertNotNull(operation.getId());
+        assertEquals(2, this.submissions.get());
+    }
+
+    /**
+     * Test a key released while concurrent requests wait on it is never cached as claimed, so they run it once.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testSubmit_ReleasedConcurrent() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String fingerprint = IdempotencyService.fingerprint(OperationType.BUY, this.id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE, false);
+        AtomicReference<Object> cached = new AtomicReference<>();
+        List<Future<OperationDTO>> futures = new ArrayList<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            assertThrows(TooManyRequestsException.class, () -> this.service.submit(key, fingerprint, this.counting(() -> {
+                // The others find the claim while it is being submitted, and wait on it
+                for (int i = 0; i < THREAD_COUNT; i++) {
+                    futures.add(executorService.submit(() -> this.submitBuy(key)));
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                cached.set(this.hazelcastInstance.getMap(IdempotencyService.CACHE_IDEMPOTENCY_KEYS).get(key));
+                throw new TooManyRequestsException("Too many pending operations, retry later");
+            })));
+            String operationId = futures.get(0).get().getId();
+            for (Future<OperationDTO> future : futures) {
+                assertEquals(operationId, future.get().getId());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertNull(cached.get());
+        assertEquals(2, this.submissions.get());
+        this.awaitStored(key);
+        assertEquals(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY).stripTrailingZeros(), this.amountOf(CURRENCY_SYMBOL_FROM));
+    }
+
+    /**
+     * Test a claim left without an operation blocks its key only until its lease is over, then is taken over.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testSubmit_Abandoned() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String fingerprint = IdempotencyService.fingerprint(OperationType.BUY, this.id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE, false);
+        // Claimed by a request that stopped before queueing its operation
+        IdempotencyKey claim = this.repository.saveAndFlush(new IdempotencyKey(key, fingerprint));
+        long waitMs = this.appConfig.getIdempotencyWaitMs();
+        long leaseMs = this.appConfig.getIdempotencyLeaseMs();
+        this.appConfig.setIdempotencyWaitMs(50L);
+        try {
+            assertThrows(ConflictException.class, () -> this.submitBuy(key));
+            assertEquals(0, this.submissions.get());
+
+            this.appConfig.setIdempotencyLeaseMs(0L);
+            Thread.sleep(10);
+            OperationDTO operation = this.submitBuy(key);
+            assertNotNull(operation.getId());
+            assertEquals(1, this.submissions.get());
+        } finally {
+            this.appConfig.setIdempotencyWaitMs(waitMs);
+            this.appConfig.setIdempotencyLeaseMs(leaseMs);
+        }
+
+        assertNotEquals(claim.getId(), this.awaitStored(key).getId());
+        assertEquals(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY).stripTrailingZeros(), this.amountOf(CURRENCY_SYMBOL_FROM));
+    }
+
+    /**
+     * Test equal amounts have the same fingerprint, whatever their scale.
+     */
+    @Test
+    void testFingerprint() {
+        assertEquals(
+                IdempotencyService.fingerprint(OperationType.BUY, 1L, new BigDecimal("1.50")),
+                IdempotencyService.fingerprint(OperationType.BUY, 1L, new BigDecimal("1.5"))
+        );
+        assertNotEquals(
+                IdempotencyService.fingerprint(OperationType.BUY, 1L, new BigDecimal("1.5")),
+                IdempotencyService.fingerprint(OperationType.TRANSFER, 1L, new BigDecimal("1.5"))
+        );
+    }
+
+    private OperationDTO submitBuy(String key) {
+        return this.service.submit(
+                key,
+                IdempotencyService.fingerprint(OperationType.BUY, this.id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE, false),
+                this.counting(() -> this.operationQueueService.submitBuy(
+                        this.id,
+                        CURRENCY_SYMBOL_FROM,
+                        CURRENCY_SYMBOL_TO,
+                        CURRENCY_AMOUNT_TO_BUY,
+                        CURRENCY_PRICE,
+                        false
+                ))
+        );
+    }
+
+    private Supplier<OperationDTO> counting(Supplier<OperationDTO> submit) {
+        return () -> {
+            this.submissions.incrementAndGet();
+            return submit.get();
+        };
+    }
+
+    private IdempotencyKey awaitStored(String key) throws InterruptedException {
+        // The outcome is stored by the worker right after the operation finishes
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        IdempotencyKey stored = this.repository.findByIdempotencyKey(key);
+        while (stored.getStatus() == OperationStatus.PENDING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            stored = this.repository.findByIdempotencyKey(key);
+        }
+        assertEquals(OperationStatus.APPLIED, stored.getStatus());
+        return stored;
+    }
+
+    private BigDecimal amountOf(String currency) {
+        CurrencyAmount currencyAmount = this.walletService.find(this.id).getCurrencyAmount(currency);
+        return FixedPoint.toDecimal(currencyAmount.getAmount(), currencyAmount.getScale()).stripTrailingZeros();
+    }
+}
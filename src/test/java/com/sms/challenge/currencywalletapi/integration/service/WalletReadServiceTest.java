@@ -0,0 +1,160 @@
+package com.sms.challenge.currencywalletapi.integration.service;
+
+import com.sms.challenge.currencywalletapi.domain.WalletDTO;
+import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
+import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.event.WalletChangedEvent;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import com.sms.challenge.currencywalletapi.repository.WalletRepository;
+import com.sms.challenge.currencywalletapi.service.CryptoCurrencyOperationService;
+import com.sms.challenge.currencywalletapi.service.WalletReadService;
+import com.sms.challenge.currencywalletapi.service.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Wallet read service test.
+ */
+@SpringBootTest
+class WalletReadServiceTest {
+
+    private static final String CURRENCY_SYMBOL_FROM = "BTC";
+    private static final String CURRENCY_SYMBOL_TO = "ETH";
+    private static final BigDecimal CURRENCY_INITIAL_AMOUNT = new BigDecimal("2.5");
+
+    /**
+     * The Repository.
+     */
+    @Autowired
+    WalletRepository repository;
+
+    /**
+     * The Wallet service.
+     */
+    @Autowired
+    WalletService walletService;
+
+    /**
+     * The Operation service.
+     */
+    @Autowired
+    CryptoCurrencyOperationService operationService;
+
+    /**
+     * The Transaction manager.
+     */
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /**
+     * The Service.
+     */
+    @Autowired
+    WalletReadService service;
+
+    private Long id;
+
+    /**
+     * Sets up.
+     */
+    @BeforeEach
+    void setUp() {
+        CurrencyAmount currencyAmount = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, 8);
+        this.id = this.walletService.create(new Wallet("MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet()))).getId();
+    }
+
+    /**
+     * Test reads are served without the database once cached.
+     */
+    @Test
+    void testFind() {
+        WalletDTO wallet = this.service.find(this.id);
+        assertEquals("MyWallet", wallet.getName());
+        // Removed behind the service back: the read model still answers
+        this.repository.deleteById(this.id);
+        assertEquals("MyWallet", this.service.find(this.id).getName());
+    }
+
+    /**
+     * Test validate find.
+     */
+    @Test
+    void testValidateFind() {
+        Exception exception1 = assertThrows(ValidationException.class, () -> this.service.find(null));
+        assertTrue(exception1.getMessage().contains("Id is required"));
+
+        Exception exception2 = assertThrows(NotFoundException.class, () -> this.service.find(2121212L));
+        assertTrue(exception2.getMessage().contains("Wallet not found"));
+    }
+
+    /**
+     * Test committed writes update the read model.
+     */
+    @Test
+    void testWrites() {
+        this.service.find(this.id);
+
+        Wallet wallet = this.walletService.find(this.id);
+        wallet.setName("NewWallet");
+        this.walletService.update(wallet);
+        assertEquals("NewWallet", this.service.find(this.id).getName());
+
+        this.operationService.buy(this.id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, BigDecimal.ONE, 0.5, Boolean.FALSE);
+        WalletDTO bought = this.service.find(this.id);
+        assertEquals(2, bought.getCurrencyAmounts().size());
+        assertEquals(new BigDecimal("1.5"), bought.getCurrencyAmounts().stream()
+                .filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get().getAmount().stripTrailingZeros());
+
+        this.walletService.delete(this.id);
+        assertThrows(NotFoundException.class, () -> this.service.find(this.id));
+    }
+
+    /**
+     * Test commits applied to the read model out of order, or after a delete, do not leave a stale wallet.
+     */
+    @Test
+    void testWrites_OutOfOrder() {
+        long version = this.service.find(this.id).getVersion();
+        this.operationService.buy(this.id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, BigDecimal.ONE, 0.5, Boolean.FALSE);
+        assertTrue(this.service.find(this.id).getVersion() > version);
+
+        Wallet older = this.walletService.find(this.id);
+        older.setName("OlderWallet");
+        Wallet newer = this.walletService.find(this.id);
+        newer.setName("NewerWallet");
+        newer.setVersion(older.getVersion() + 1);
+        this.service.onWalletChanged(new WalletChangedEvent(this.id, newer));
+        this.service.onWalletChanged(new WalletChangedEvent(this.id, older));
+        assertEquals("NewerWallet", this.service.find(this.id).getName());
+
+        this.service.onWalletChanged(new WalletChangedEvent(this.id, null));
+        this.service.onWalletChanged(new WalletChangedEvent(this.id, newer));
+        assertThrows(NotFoundException.class, () -> this.service.find(this.id));
+    }
+
+    /**
+     * Test a rolled back write leaves the read model untouched.
+     */
+    @Test
+    void testRollback() {
+        this.service.find(this.id);
+        new TransactionTemplate(this.transactionManager).executeWithoutResult(status -> {
+            Wallet wallet = this.walletService.find(this.id);
+            wallet.setName("NewWallet");
+            this.walletService.update(wallet);
+            status.setRollbackOnly();
+        });
+        assertEquals("MyWallet", this.service.find(this.id).getName());
+    }
+}
@@ -12,6 +12,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -41,7 +45,7 @@ class WalletServiceTest {
      */
     @BeforeEach
     void setUp() {
-        CurrencyAmount currencyAmount = new CurrencyAmount("BTC", 98.69);
+        CurrencyAmount currencyAmount = new CurrencyAmount("BTC", 9869000000L, 8);
         repository.save(new Wallet("MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet())));
     }
 
@@ -114,13 +118,26 @@ class WalletServiceTest {
         assertTrue(exception2.getMessage().contains("Wallet not found"));
     }
 
+    /**
+     * Test find all for write.
+     */
+    @Test
+    void testFindAllForWrite() {
+        List<Long> ids = repository.findAll().stream().map(Wallet::getId).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        List<Long> lockedIds = service.findAllForWrite(Arrays.asList(ids.get(0), 2121212L, ids.get(ids.size() - 1))).stream().map(Wallet::getId).collect(Collectors.toList());
+        assertEquals(ids.size() > 1 ? Arrays.asList(ids.get(ids.size() - 1), ids.get(0)) : Collections.singletonList(ids.get(0)), lockedIds);
+
+        Exception exception1 = assertThrows(ValidationException.class, () -> service.findAllForWrite(Collections.singletonList(null)));
+        assertTrue(exception1.getMessage().contains("Id is required"));
+    }
+
     /**
      * Test save.
      */
     @Test
     void testSave() {
-        CurrencyAmount ca1 = new CurrencyAmount("BTC", 98.69);
-        CurrencyAmount ca2 = new CurrencyAmount("BTCA", 98.79);
+        CurrencyAmount ca1 = new CurrencyAmount("BTC", 9869000000L, 8);
+        CurrencyAmount ca2 = new CurrencyAmount("BTCA", 9879000000L, 8);
         Set<CurrencyAmount> currencyAmounts = Stream.of(ca1, ca2).collect(Collectors.toSet());
         Wallet wallet = new Wallet("MyWallet", currencyAmounts);
         wallet = service.create(wallet);
@@ -133,8 +150,8 @@ class WalletServiceTest {
      */
     @Test
     void testValidateSave() {
-        CurrencyAmount ca1 = new CurrencyAmount("BTC", 98.69);
-        CurrencyAmount ca2 = new CurrencyAmount("BTC", 98.79);
+        CurrencyAmount ca1 = new CurrencyAmount("BTC", 9869000000L, 8);
+        CurrencyAmount ca2 = new CurrencyAmount("BTC", 9879000000L, 8);
         Set<CurrencyAmount> currencyAmounts1 = Stream.of(ca1, ca2).collect(Collectors.toSet());
         Wallet wallet = new Wallet("MyWallet", currencyAmounts1);
         Exception exception1 = assertThrows(DataIntegrityViolationException.class, () -> service.create(wallet));
@@ -149,13 +166,13 @@ class WalletServiceTest {
         Exception exception4 = assertThrows(ValidationException.class, () -> service.create(new Wallet(null, null)));
         assertTrue(exception4.getMessage().contains("Name is required"));
 
-        CurrencyAmount ca3 = new CurrencyAmount("BTC", null);
+        CurrencyAmount ca3 = new CurrencyAmount("BTC", -1L, 8);
         Set<CurrencyAmount> currencyAmounts2 = Stream.of(ca3).collect(Collectors.toSet());
 
         Exception exception5 = assertThrows(ValidationException.class, () -> service.create(new Wallet("MyWallet", currencyAmounts2)));
-        assertTrue(exception5.getMessage().contains("Amount is required in currency amounts"));
+        assertTrue(exception5.getMessage().contains("Amount must not be negative in currency amounts"));
 
-        CurrencyAmount ca4 = new CurrencyAmount(null, 98.79);
+        CurrencyAmount ca4 = new CurrencyAmount(null, 9879000000L, 8);
         Set<CurrencyAmount> currencyAmounts3 = Stream.of(ca4).collect(Collectors.toSet());
 
         Exception exception6 = assertThrows(ValidationException.class, () -> service.create(new Wallet("MyWallet", currencyAmounts3)));
@@ -0,0 +1,222 @@
+package com.sms.challenge.currencywalletapi.integration.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
+import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.lock.StripedWalletLockManager;
+import com.sms.challenge.currencywalletapi.service.CryptoCurrencyOperationService;
+import com.sms.challenge.currencywalletapi.service.WalletService;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The type Wallet transfer stress test.
+ * <p>
+ * Runs thousands of transfers in both directions between the same pair of wallets. With the locks taken in a global
+ * order, none of them deadlocks or waits for the lock timeout, and the total amount is conserved. Run with the
+ * database row locks and with the in-process striped locks. Also runs transfers from many wallets to a single hot
+ * wallet through the write combiner.
+ */
+@SpringBootTest
+class WalletTransferStressTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WalletTransferStressTest.class);
+
+    private static final String CURRENCY_SYMBOL = "BTC";
+    private static final int CURRENCY_SCALE = 8;
+    private static final BigDecimal CURRENCY_INITIAL_AMOUNT = new BigDecimal("1000000");
+    private static final BigDecimal CURRENCY_AMOUNT_TO_TRANSFER = BigDecimal.ONE;
+    private static final Double CURRENCY_PRICE = 1.0;
+    private static final Integer THREAD_COUNT = 8;
+    private static final Integer TRANSFER_COUNT = 2000;
+
+    /**
+     * The Service.
+     */
+    @Autowired
+    CryptoCurrencyOperationService service;
+
+    /**
+     * The Wallet service.
+     */
+    @Autowired
+    WalletService walletService;
+
+    /**
+     * The Meter registry.
+     */
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /**
+     * The App config.
+     */
+    @Autowired
+    AppConfig appConfig;
+
+    /**
+     * Test bidirectional transfers.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    void testBidirectionalTransfers() throws InterruptedException {
+        this.transfers();
+    }
+
+    /**
+     * Test bidirectional transfers with the in-process striped locks.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    void testBidirectionalTransfers_Striped() throws InterruptedException {
+        String lockManager = this.appConfig.getWalletLockManager();
+        this.appConfig.setWalletLockManager(StripedWalletLockManager.NAME);
+        try {
+            this.transfers();
+        } finally {
+            this.appConfig.setWalletLockManager(lockManager);
+        }
+    }
+
+    /**
+     * Test transfers from many wallets to a hot wallet, combined in batches.
+     *
+     * @throws InterruptedException the interrupted exception
+     */
+    @Test
+    void testHotWalletCredits_Combined() throws InterruptedException {
+        Long hotWalletId = this.createWallet();
+        List<Long> walletIds = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            walletIds.add(this.createWallet());
+        }
+        Set<Long> combineIds = this.appConfig.getWalletCombineIds();
+        this.appConfig.setWalletCombineIds(Collections.singleton(hotWalletId));
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT * 4);
+        AtomicInteger failures = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < TRANSFER_COUNT; i++) {
+                Long walletId = walletIds.get(i % walletIds.size());
+                futures.add(executorService.submit(() -> this.service.transfer(
+                        walletId,
+                        hotWalletId,
+                        CURRENCY_SYMBOL,
+                        CURRENCY_SYMBOL,
+                        CURRENCY_AMOUNT_TO_TRANSFER,
+                        CURRENCY_PRICE
+                )));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failures.incrementAndGet();
+                    LOG.error(e.getMessage());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            DistributionSummary batchSize = this.meterRegistry.find("wallet.combine.batch.size").summary();
+            LOG.info("{} transfers to a hot wallet in {} ms: {} transfers/s, {} batches of up to {} operations, {} failures",
+                    TRANSFER_COUNT, TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(TRANSFER_COUNT / (elapsed / 1e9)),
+                    batchSize == null ? 0 : batchSize.count(), batchSize == null ? 0 : (long) batchSize.max(), failures.get());
+        } finally {
+            this.appConfig.setWalletCombineIds(combineIds);
+            executorService.shutdown();
+            executorService.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        assertEquals(0, failures.get());
+        long total = FixedPoint.toMinorUnits(CURRENCY_AMOUNT_TO_TRANSFER.multiply(BigDecimal.valueOf(TRANSFER_COUNT)), CURRENCY_SCALE);
+        assertEquals(this.initialAmount() + total, this.amount(hotWalletId));
+        long transferred = walletIds.stream().mapToLong(walletId -> this.initialAmount() - this.amount(walletId)).sum();
+        assertEquals(total, transferred);
+    }
+
+    private void transfers() throws InterruptedException {
+        Long id1 = this.createWallet();
+        Long id2 = this.createWallet();
+        double lockTimeoutsBefore = this.lockTimeouts();
+
+        ExecutorService executorService = Executors.newFixedThreadPool(THREAD_COUNT);
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSFER_COUNT; i++) {
+            boolean forward = i % 2 == 0;
+            futures.add(executorService.submit(() -> this.service.transfer(
+                    forward ? id1 : id2,
+                    forward ? id2 : id1,
+                    CURRENCY_SYMBOL,
+                    CURRENCY_SYMBOL,
+                    CURRENCY_AMOUNT_TO_TRANSFER,
+                    CURRENCY_PRICE
+            )));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                failures.incrementAndGet();
+                LOG.error(e.getMessage());
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+        double lockTimeouts = this.lockTimeouts() - lockTimeoutsBefore;
+        LOG.info("{} bidirectional transfers with {} locks on {} threads in {} ms: {} transfers/s, {} lock timeouts, {} failures",
+                TRANSFER_COUNT, this.appConfig.getWalletLockManager(), THREAD_COUNT, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                Math.round(TRANSFER_COUNT / (elapsed / 1e9)), (long) lockTimeouts, failures.get());
+
+        assertEquals(0, failures.get());
+        assertEquals(0.0, lockTimeouts);
+        assertEquals(this.initialAmount(), this.amount(id1));
+        assertEquals(this.initialAmount(), this.amount(id2));
+    }
+
+    private Long createWallet() {
+        CurrencyAmount currencyAmount = CurrencyAmount.of(CURRENCY_SYMBOL, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        return this.walletService.create(new Wallet("MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet()))).getId();
+    }
+
+    private long initialAmount() {
+        return FixedPoint.toMinorUnits(CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+    }
+
+    private long amount(Long walletId) {
+        return this.walletService.find(walletId).getCurrencyAmounts().stream()
+                .filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL)).findFirst().get().getAmount();
+    }
+
+    private double lockTimeouts() {
+        FunctionCounter counter = this.meterRegistry.find("wallet.write.lock.timeouts").functionCounter();
+        return counter == null ? 0 : counter.count();
+    }
+}
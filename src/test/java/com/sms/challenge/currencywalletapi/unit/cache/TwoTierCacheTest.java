@@ -0,0 +1,61 @@
+package com.sms.challenge.currencywalletapi.unit.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sms.challenge.currencywalletapi.cache.TwoTierCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Two tier cache test.
+ */
+class TwoTierCacheTest {
+
+    private static final String CACHE = "conversion";
+
+    /**
+     * Test L2 hits are promoted to L1 and remote changes invalidate L1.
+     */
+    @Test
+    void testBoth() {
+        ConcurrentMapCache l2 = new ConcurrentMapCache(CACHE);
+        TwoTierCache cache = new TwoTierCache(CACHE, Caffeine.newBuilder().maximumSize(10).build(), l2);
+        l2.put("BTC-USD", 36000.0);
+
+        assertEquals(36000.0, cache.get("BTC-USD").get());
+        assertEquals(36000.0, cache.get("BTC-USD").get());
+        assertEquals(1, cache.getL2Hits());
+        assertEquals(1, cache.getL1Hits());
+
+        // Another member updates L2, its entry listener then invalidates L1
+        l2.put("BTC-USD", 37000.0);
+        assertEquals(36000.0, cache.get("BTC-USD").get());
+        cache.invalidateLocal("BTC-USD");
+        assertEquals(37000.0, cache.get("BTC-USD").get());
+
+        cache.evict("BTC-USD");
+        assertNull(cache.get("BTC-USD"));
+        assertNull(l2.get("BTC-USD"));
+        assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * Test single tier caches.
+     */
+    @Test
+    void testSingleTier() {
+        TwoTierCache l1Only = new TwoTierCache(CACHE, Caffeine.newBuilder().maximumSize(10).build(), null);
+        l1Only.put("BTC-USD", 36000.0);
+        assertEquals(36000.0, l1Only.get("BTC-USD", Double.class));
+        assertNotNull(l1Only.putIfAbsent("BTC-USD", 37000.0));
+        assertEquals(36000.0, l1Only.get("BTC-USD", Double.class));
+
+        ConcurrentMapCache l2 = new ConcurrentMapCache(CACHE);
+        TwoTierCache l2Only = new TwoTierCache(CACHE, null, l2);
+        assertEquals(1200.0, l2Only.get("ETH-USD", () -> 1200.0));
+        assertEquals(1200.0, l2.get("ETH-USD").get());
+        l2Only.clear();
+        assertNull(l2Only.get("ETH-USD"));
+    }
+}
@@ -3,6 +3,7 @@ package com.sms.challenge.currencywalletapi.unit.controller;
 import com.sms.challenge.currencywalletapi.controller.CryptoCurrencyController;
 import com.sms.challenge.currencywalletapi.entity.CryptoCurrency;
 import com.sms.challenge.currencywalletapi.entity.CryptoCurrencyPrice;
+import com.sms.challenge.currencywalletapi.entity.Priced;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyFetcherService;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyService;
@@ -12,17 +13,24 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -74,10 +82,13 @@ class CryptoCurrencyControllerTest {
         ).collect(Collectors.toList());
         CryptoCurrency cryptoCurrency = new CryptoCurrency(CRYPTO_CURRENCY_SYMBOL, prices);
         List<CryptoCurrency> cryptoCurrencies = Stream.of(cryptoCurrency).collect(Collectors.toList());
-        when(this.service.findAll()).thenReturn(cryptoCurrencies);
+        when(this.service.findAllAsync()).thenReturn(Mono.just(Priced.live(cryptoCurrencies)));
 
-        mockMvc.perform(get("/crypto-currencies")
+        MvcResult result = mockMvc.perform(get("/crypto-currencies")
                 .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andDo(print())
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").exists())
@@ -98,18 +109,49 @@ class CryptoCurrencyControllerTest {
                 new CryptoCurrencyPrice(NOT_CRYPTO_CURRENCY_SYMBOL_2, NOT_CRYPTO_CURRENCY_PRICE_2)
         ).collect(Collectors.toList());
         CryptoCurrency cryptoCurrency = new CryptoCurrency(CRYPTO_CURRENCY_SYMBOL, prices);
-        when(this.service.find(Mockito.anyString())).thenReturn(cryptoCurrency);
+        when(this.service.findAsync(Mockito.anyString())).thenReturn(Mono.just(Priced.live(cryptoCurrency)));
 
-        mockMvc.perform(get("/crypto-currencies/{currency}", "BTC")
+        MvcResult result = mockMvc.perform(get("/crypto-currencies/{currency}", "BTC")
                 .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andDo(print())
                 .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.WARNING))
                 .andExpect(jsonPath("$").exists())
                 .andExpect(jsonPath("$.currency").isNotEmpty())
                 .andExpect(jsonPath("$.prices").isNotEmpty());
 
     }
 
+    /**
+     * Test find stale.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testFindStale() throws Exception {
+        List<CryptoCurrencyPrice> prices = Stream.of(
+                new CryptoCurrencyPrice(NOT_CRYPTO_CURRENCY_SYMBOL_1, NOT_CRYPTO_CURRENCY_PRICE_1)
+        ).collect(Collectors.toList());
+        CryptoCurrency cryptoCurrency = new CryptoCurrency(CRYPTO_CURRENCY_SYMBOL, prices);
+        when(this.service.findAsync(Mockito.anyString())).thenReturn(Mono.just(Priced.stale(
+                cryptoCurrency,
+                Instant.now().minusSeconds(30)
+        )));
+
+        MvcResult result = mockMvc.perform(get("/crypto-currencies/{currency}", "BTC")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.WARNING, "110 - \"Response is Stale\""))
+                .andExpect(header().exists(HttpHeaders.AGE))
+                .andExpect(jsonPath("$.currency").value(CRYPTO_CURRENCY_SYMBOL));
+    }
+
     /**
      * Test find not found.
      *
@@ -117,7 +159,10 @@ class CryptoCurrencyControllerTest {
      */
     @Test
     void testFindNotFound() throws Exception {
-        when(this.service.find(Mockito.anyString())).thenThrow(NotFoundException.class);
-        mockMvc.perform(get("/crypto-currencies/{currency}", "BTC")).andExpect(status().isNotFound());
+        when(this.service.findAsync(Mockito.anyString())).thenReturn(Mono.error(new NotFoundException()));
+        MvcResult result = mockMvc.perform(get("/crypto-currencies/{currency}", "BTC"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotFound());
     }
 }
@@ -0,0 +1,98 @@
+package com.sms.challenge.currencywalletapi.unit.controller;
+
+import com.sms.challenge.currencywalletapi.controller.OperationController;
+import com.sms.challenge.currencywalletapi.domain.OperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.service.OperationQueueService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The type Operation controller test.
+ */
+@WebMvcTest(OperationController.class)
+class OperationControllerTest {
+
+    private static final String OPERATION_ID = "0b7c5a8e-3f8e-4c55-9d0a-6f4e2b1c9a10";
+
+    /**
+     * The Service.
+     */
+    @MockBean
+    OperationQueueService service;
+
+    /**
+     * The Mock mvc.
+     */
+    @Autowired
+    MockMvc mockMvc;
+
+    /**
+     * Test find.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testFind() throws Exception {
+        when(this.service.await(OPERATION_ID, 0L)).thenReturn(Mono.just(
+                new OperationDTO(OPERATION_ID, OperationType.BUY, 1L, OperationStatus.PENDING, null)));
+
+        MvcResult result = mockMvc.perform(get("/operations/{id}", OPERATION_ID)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(OPERATION_ID))
+                .andExpect(jsonPath("$.status").value(OperationStatus.PENDING.name()));
+    }
+
+    /**
+     * Test find long poll.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testFindLongPoll() throws Exception {
+        when(this.service.await(OPERATION_ID, 2000L)).thenReturn(Mono.just(
+                new OperationDTO(OPERATION_ID, OperationType.TRANSFER, 1L, OperationStatus.FAILED, "Not enough funds")));
+
+        MvcResult result = mockMvc.perform(get("/operations/{id}", OPERATION_ID)
+                .param("waitMs", "2000")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value(OperationStatus.FAILED.name()))
+                .andExpect(jsonPath("$.error").value("Not enough funds"));
+    }
+
+    /**
+     * Test find not found.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testFindNotFound() throws Exception {
+        when(this.service.await(Mockito.anyString(), Mockito.anyLong())).thenThrow(new NotFoundException("Operation not found"));
+        mockMvc.perform(get("/operations/{id}", OPERATION_ID))
+                .andExpect(status().isNotFound());
+    }
+}
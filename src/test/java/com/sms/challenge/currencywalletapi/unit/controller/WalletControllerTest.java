@@ -5,28 +5,41 @@ import com.sms.challenge.currencywalletapi.controller.WalletController;
 import com.sms.challenge.currencywalletapi.domain.*;
 import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
 import com.sms.challenge.currencywalletapi.entity.Wallet;
-import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.ConflictException;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.exception.TooManyRequestsException;
 import com.sms.challenge.currencywalletapi.exception.ValidationException;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyOperationService;
+import com.sms.challenge.currencywalletapi.service.CurrencyRegistry;
+import com.sms.challenge.currencywalletapi.service.IdempotencyService;
+import com.sms.challenge.currencywalletapi.service.OperationQueueService;
+import com.sms.challenge.currencywalletapi.service.WalletReadService;
 import com.sms.challenge.currencywalletapi.service.WalletService;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -38,7 +51,9 @@ class WalletControllerTest {
 
     private static final String CURRENCY_SYMBOL_FROM = "BTC";
     private static final String CURRENCY_SYMBOL_TO = "USD";
-    private static final Double CURRENCY_INITIAL_AMOUNT = 2.5;
+    private static final BigDecimal CURRENCY_INITIAL_AMOUNT = new BigDecimal("2.5");
+    private static final int CURRENCY_SCALE = 8;
+    private static final String OPERATION_ID = "0b7c5a8e-3f8e-4c55-9d0a-6f4e2b1c9a10";
 
     /**
      * The Service.
@@ -46,18 +61,50 @@ class WalletControllerTest {
     @MockBean
     WalletService service;
 
+    /**
+     * The Read service.
+     */
+    @MockBean
+    WalletReadService readService;
+
     /**
      * The Operation service.
      */
     @MockBean
     CryptoCurrencyOperationService operationService;
 
+    /**
+     * The Operation queue service.
+     */
+    @MockBean
+    OperationQueueService operationQueueService;
+
+    /**
+     * The Idempotency service.
+     */
+    @MockBean
+    IdempotencyService idempotencyService;
+
+    /**
+     * The Currency registry.
+     */
+    @MockBean
+    CurrencyRegistry currencyRegistry;
+
     /**
      * The Mock mvc.
      */
     @Autowired
     MockMvc mockMvc;
 
+    /**
+     * Sets mock output.
+     */
+    @BeforeEach
+    void setMockOutput() {
+        when(this.currencyRegistry.scale(anyString())).thenReturn(CURRENCY_SCALE);
+    }
+
     /**
      * Test find.
      *
@@ -65,15 +112,15 @@ class WalletControllerTest {
      */
     @Test
     void testFind() throws Exception {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(
                 id,
                 "MyWallet",
                 Stream.of(currencyAmount1, currencyAmount2).collect(Collectors.toSet())
         );
-        when(this.service.find(anyLong())).thenReturn(wallet);
+        when(this.readService.find(anyLong())).thenReturn(WalletReadService.toDTO(wallet));
 
         mockMvc.perform(get("/wallets/{id}", id)
                 .accept(MediaType.APPLICATION_JSON))
@@ -90,7 +137,7 @@ class WalletControllerTest {
     @Test
     void testFindNotFound() throws Exception {
         final long id = 1L;
-        when(this.service.find(anyLong())).thenThrow(NotFoundException.class);
+        when(this.readService.find(anyLong())).thenThrow(NotFoundException.class);
         mockMvc.perform(get("/wallets/{1}", id)).andExpect(status().isNotFound());
     }
 
@@ -102,7 +149,7 @@ class WalletControllerTest {
     @Test
     void testFindValidate() throws Exception {
         final long id = 1L;
-        when(this.service.find(anyLong())).thenThrow(ValidationException.class);
+        when(this.readService.find(anyLong())).thenThrow(ValidationException.class);
         mockMvc.perform(get("/wallets/{id}", id)).andExpect(status().isBadRequest());
     }
 
@@ -113,8 +160,8 @@ class WalletControllerTest {
      */
     @Test
     void testCreate() throws Exception {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(
                 id,
@@ -127,7 +174,7 @@ class WalletControllerTest {
         dto.setName(wallet.getName());
         dto.setCurrencyAmounts(wallet.getCurrencyAmounts().stream().map(item -> new CurrencyAmountDTO(
                 item.getCurrency(),
-                item.getAmount()
+                FixedPoint.toDecimal(item.getAmount(), item.getScale())
         )).collect(Collectors.toList()));
 
         mockMvc.perform(post("/wallets")
@@ -153,6 +200,40 @@ class WalletControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    /**
+     * Test amounts are read and written as exact decimals, and rejected when the currency cannot hold them.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testCreateAmounts() throws Exception {
+        final long id = 1L;
+        when(this.service.create(Mockito.any())).thenAnswer(invocation -> {
+            Wallet wallet = invocation.getArgument(0);
+            wallet.setId(id);
+            return wallet;
+        });
+
+        mockMvc.perform(post("/wallets")
+                .content("{\"name\":\"MyWallet\",\"currencyAmounts\":[{\"currency\":\"BTC\",\"amount\":0.10000001}]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(content().string(containsString("\"amount\":0.10000001")));
+
+        mockMvc.perform(post("/wallets")
+                .content("{\"name\":\"MyWallet\",\"currencyAmounts\":[{\"currency\":\"BTC\",\"amount\":\"0.000000001\"}]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/wallets")
+                .content("{\"name\":\"MyWallet\",\"currencyAmounts\":[{\"currency\":\"BTC\",\"amount\":1e1000000}]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * Test update.
      *
@@ -160,8 +241,8 @@ class WalletControllerTest {
      */
     @Test
     void testUpdate() throws Exception {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(
                 id,
@@ -189,8 +270,8 @@ class WalletControllerTest {
      */
     @Test
     void testUpdateNotFound() throws Exception {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(
                 id,
@@ -216,8 +297,8 @@ class WalletControllerTest {
      */
     @Test
     void testUpdateValidate() throws Exception {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(
                 id,
@@ -281,22 +362,20 @@ class WalletControllerTest {
      */
     @Test
     void testBuy() throws Exception {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
         final long id = 1L;
-        Wallet wallet = new Wallet(
-                id,
-                "MyWallet",
-                Stream.of(currencyAmount1, currencyAmount2).collect(Collectors.toSet())
-        );
-        when(this.service.find(anyLong())).thenReturn(wallet);
+        OperationDTO operation = new OperationDTO(OPERATION_ID, OperationType.BUY, id, OperationStatus.PENDING, null);
+        when(this.operationQueueService.submitBuy(eq(id), any(), any(), any(), any(), any())).thenReturn(operation);
 
         mockMvc.perform(post("/wallets/{id}/buy", id)
                 .content(asJsonString(new BuyOperationDTO()))
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isAccepted())
-                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(id));
+                .andExpect(header().string(HttpHeaders.LOCATION, "/operations/" + OPERATION_ID))
+                .andExpect(jsonPath("$.id").value(OPERATION_ID))
+                .andExpect(jsonPath("$.type").value(OperationType.BUY.name()))
+                .andExpect(jsonPath("$.walletId").value(id))
+                .andExpect(jsonPath("$.status").value(OperationStatus.PENDING.name()));
     }
 
     /**
@@ -307,18 +386,18 @@ class WalletControllerTest {
     @Test
     void testBuyNotFound() throws Exception {
         final long id = 1L;
-        doThrow(NotFoundException.class).when(this.operationService).buy(
+        doThrow(NotFoundException.class).when(this.operationQueueService).submitBuy(
                 anyLong(),
                 anyString(),
                 anyString(),
-                anyDouble(),
+                any(BigDecimal.class),
                 anyDouble(),
                 anyBoolean()
         );
         BuyOperationDTO dto = new BuyOperationDTO();
         dto.setCurrencyFrom("BTC");
         dto.setCurrencyTo("USD");
-        dto.setAmount(65.32);
+        dto.setAmount(new BigDecimal("65.32"));
         dto.setPrice(32.3);
         dto.setValidatePrice(Boolean.FALSE);
         mockMvc.perform(post("/wallets/{id}/buy", id)
@@ -336,18 +415,18 @@ class WalletControllerTest {
     @Test
     void testBuyValidate() throws Exception {
         final long id = 1L;
-        doThrow(ValidationException.class).when(this.operationService).buy(
+        doThrow(ValidationException.class).when(this.operationQueueService).submitBuy(
                 anyLong(),
                 anyString(),
                 anyString(),
-                anyDouble(),
+                any(BigDecimal.class),
                 anyDouble(),
                 anyBoolean()
         );
         BuyOperationDTO dto = new BuyOperationDTO();
         dto.setCurrencyFrom("BTC");
         dto.setCurrencyTo("USD");
-        dto.setAmount(65.32);
+        dto.setAmount(new BigDecimal("65.32"));
         dto.setPrice(32.3);
         dto.setValidatePrice(Boolean.FALSE);
         mockMvc.perform(post("/wallets/{id}/buy", id)
@@ -358,32 +437,33 @@ class WalletControllerTest {
     }
 
     /**
-     * Test buy service unavailable.
+     * Test buy too many requests.
      *
      * @throws Exception the exception
      */
     @Test
-    void testBuyServiceUnavailable() throws Exception {
+    void testBuyTooManyRequests() throws Exception {
         final long id = 1L;
-        doThrow(ExternalServiceException.class).when(this.operationService).buy(
+        doThrow(TooManyRequestsException.class).when(this.operationQueueService).submitBuy(
                 anyLong(),
                 anyString(),
                 anyString(),
-                anyDouble(),
+                any(BigDecimal.class),
                 anyDouble(),
                 anyBoolean()
         );
         BuyOperationDTO dto = new BuyOperationDTO();
         dto.setCurrencyFrom("BTC");
         dto.setCurrencyTo("USD");
-        dto.setAmount(65.32);
+        dto.setAmount(new BigDecimal("65.32"));
         dto.setPrice(32.3);
         dto.setValidatePrice(Boolean.FALSE);
         mockMvc.perform(post("/wallets/{id}/buy", id)
                 .content(asJsonString(dto))
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isServiceUnavailable());
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
     }
 
     /**
@@ -393,31 +473,76 @@ class WalletControllerTest {
      */
     @Test
     void testTransfer() throws Exception {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
         final long id1 = 1L;
-        Wallet wallet1 = new Wallet(
-                id1,
-                "MyWallet",
-                Stream.of(currencyAmount1, currencyAmount2).collect(Collectors.toSet())
-        );
-        when(this.service.find(id1)).thenReturn(wallet1);
+        final long id2 = 2L;
+        OperationDTO operation = new OperationDTO(OPERATION_ID, OperationType.TRANSFER, id1, OperationStatus.PENDING, null);
+        when(this.operationQueueService.submitTransfer(eq(id1), eq(id2), any(), any(), any(), any(), any())).thenReturn(operation);
+        TransferOperationDTO dto = new TransferOperationDTO();
+        dto.setWalletId(id2);
 
-        CurrencyAmount currencyAmount3 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount4 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
-        final long id2 = 1L;
-        Wallet wallet2 = new Wallet(
-                id2,
-                "MyWallet",
-                Stream.of(currencyAmount3, currencyAmount4).collect(Collectors.toSet())
-        );
-        when(this.service.find(id2)).thenReturn(wallet2);
+        mockMvc.perform(post("/wallets/{id}/transfer", id1)
+                .content(asJsonString(dto))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/operations/" + OPERATION_ID))
+                .andExpect(jsonPath("$.id").value(OPERATION_ID))
+                .andExpect(jsonPath("$.type").value(OperationType.TRANSFER.name()));
+    }
+
+    /**
+     * Test a transfer with an idempotency key is submitted through the idempotency service.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testTransferIdempotent() throws Exception {
+        final long id1 = 1L;
+        final long id2 = 2L;
+        final String key = "8d3c2f4e-transfer";
+        OperationDTO operation = new OperationDTO(OPERATION_ID, OperationType.TRANSFER, id1, OperationStatus.APPLIED, null);
+        when(this.idempotencyService.submit(eq(key), anyString(), any())).thenReturn(operation);
+        TransferOperationDTO dto = new TransferOperationDTO();
+        dto.setWalletId(id2);
+        dto.setCurrencyFrom("BTC");
+        dto.setCurrencyTo("USD");
+        dto.setAmount(new BigDecimal("65.32"));
 
         mockMvc.perform(post("/wallets/{id}/transfer", id1)
-                .content(asJsonString(new TransferOperationDTO()))
+                .header(WalletController.IDEMPOTENCY_KEY, key)
+                .content(asJsonString(dto))
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "/operations/" + OPERATION_ID))
+                .andExpect(jsonPath("$.status").value(OperationStatus.APPLIED.name()));
+        Mockito.verify(this.idempotencyService).submit(
+                eq(key),
+                eq(IdempotencyService.fingerprint(OperationType.TRANSFER, id1, id2, "BTC", "USD", new BigDecimal("65.32"), null, null)),
+                any()
+        );
+        Mockito.verifyNoInteractions(this.operationQueueService);
+    }
+
+    /**
+     * Test a transfer whose idempotency key is in use by a request in progress is a conflict.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testTransferIdempotentInProgress() throws Exception {
+        final long id = 1L;
+        doThrow(new ConflictException("A request with the same idempotency key is in progress"))
+                .when(this.idempotencyService).submit(anyString(), anyString(), any());
+        TransferOperationDTO dto = new TransferOperationDTO();
+        dto.setWalletId(id);
+
+        mockMvc.perform(post("/wallets/{id}/transfer", id)
+                .header(WalletController.IDEMPOTENCY_KEY, "8d3c2f4e-transfer")
+                .content(asJsonString(dto))
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isAccepted());
+                .andExpect(status().isConflict());
     }
 
     /**
@@ -428,12 +553,12 @@ class WalletControllerTest {
     @Test
     void testTransferNotFound() throws Exception {
         final long id = 1L;
-        doThrow(NotFoundException.class).when(this.operationService).transfer(
+        doThrow(NotFoundException.class).when(this.operationQueueService).submitTransfer(
                 anyLong(),
                 anyLong(),
                 anyString(),
                 anyString(),
-                anyDouble(),
+                any(BigDecimal.class),
                 anyDouble(),
                 anyBoolean()
         );
@@ -441,7 +566,7 @@ class WalletControllerTest {
         dto.setWalletId(id);
         dto.setCurrencyFrom("BTC");
         dto.setCurrencyTo("USD");
-        dto.setAmount(65.32);
+        dto.setAmount(new BigDecimal("65.32"));
         dto.setPrice(32.3);
         dto.setValidatePrice(Boolean.FALSE);
         mockMvc.perform(post("/wallets/{id}/transfer", id)
@@ -452,19 +577,19 @@ class WalletControllerTest {
     }
 
     /**
-     * Test transfer service unavailable.
+     * Test transfer too many requests.
      *
      * @throws Exception the exception
      */
     @Test
-    void testTransferServiceUnavailable() throws Exception {
+    void testTransferTooManyRequests() throws Exception {
         final long id = 1L;
-        doThrow(ExternalServiceException.class).when(this.operationService).transfer(
+        doThrow(TooManyRequestsException.class).when(this.operationQueueService).submitTransfer(
                 anyLong(),
                 anyLong(),
                 anyString(),
                 anyString(),
-                anyDouble(),
+                any(BigDecimal.class),
                 anyDouble(),
                 anyBoolean()
         );
@@ -472,14 +597,14 @@ class WalletControllerTest {
         dto.setWalletId(id);
         dto.setCurrencyFrom("BTC");
         dto.setCurrencyTo("USD");
-        dto.setAmount(65.32);
+        dto.setAmount(new BigDecimal("65.32"));
         dto.setPrice(32.3);
         dto.setValidatePrice(Boolean.FALSE);
         mockMvc.perform(post("/wallets/{id}/transfer", id)
                 .content(asJsonString(dto))
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isServiceUnavailable());
+                .andExpect(status().isTooManyRequests());
     }
 
     /**
@@ -490,12 +615,12 @@ class WalletControllerTest {
     @Test
     void testTransferValidate() throws Exception {
         final long id = 1L;
-        doThrow(ValidationException.class).when(this.operationService).transfer(
+        doThrow(ValidationException.class).when(this.operationQueueService).submitTransfer(
                 anyLong(),
                 anyLong(),
                 anyString(),
                 anyString(),
-                anyDouble(),
+                any(BigDecimal.class),
                 anyDouble(),
                 anyBoolean()
         );
@@ -503,7 +628,7 @@ class WalletControllerTest {
         dto.setWalletId(id);
         dto.setCurrencyFrom("BTC");
         dto.setCurrencyTo("USD");
-        dto.setAmount(65.32);
+        dto.setAmount(new BigDecimal("65.32"));
         dto.setPrice(32.3);
         dto.setValidatePrice(Boolean.FALSE);
         mockMvc.perform(post("/wallets/{id}/transfer", id)
@@ -513,6 +638,43 @@ class WalletControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    /**
+     * Test batch.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testBatch() throws Exception {
+        when(this.operationService.batch(anyList(), eq(BatchMode.ATOMIC))).thenReturn(Arrays.asList(
+                new OperationResultDTO(0, OperationStatus.ABORTED, null),
+                new OperationResultDTO(1, OperationStatus.FAILED, "The amount exceeds the available")
+        ));
+        mockMvc.perform(post("/wallets/operations:batch")
+                .content("{\"operations\":[{\"type\":\"BUY\",\"walletId\":1,\"currencyFrom\":\"BTC\",\"currencyTo\":\"USD\",\"amount\":1.5},"
+                        + "{\"type\":\"TRANSFER\",\"walletId\":1,\"walletIdTo\":2,\"currencyFrom\":\"BTC\",\"currencyTo\":\"USD\",\"amount\":2}]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.mode").value("ATOMIC"))
+                .andExpect(jsonPath("$.applied").value(0))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].error").value("The amount exceeds the available"));
+    }
+
+    /**
+     * Test batch validate.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testBatchValidate() throws Exception {
+        when(this.operationService.batch(any(), any())).thenThrow(ValidationException.class);
+        mockMvc.perform(post("/wallets/operations:batch")
+                .content("{\"mode\":\"BEST_EFFORT\",\"operations\":[]}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
 
     private static String asJsonString(final Object obj) {
         try {
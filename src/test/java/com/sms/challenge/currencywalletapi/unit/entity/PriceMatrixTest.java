@@ -0,0 +1,72 @@
+package com.sms.challenge.currencywalletapi.unit.entity;
+
+import com.sms.challenge.currencywalletapi.entity.CryptoCurrency;
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Price matrix test.
+ */
+class PriceMatrixTest {
+
+    private static final CurrencyIndex INDEX = new CurrencyIndex(Stream.of(
+            currency(1L, "BTC", true),
+            currency(2L, "ETH", true),
+            currency(3L, "USD", false),
+            currency(4L, "EUR", false)
+    ).collect(Collectors.toList()));
+
+    private static Currency currency(Long id, String symbol, boolean crypto) {
+        Currency currency = new Currency(symbol, crypto);
+        currency.setId(id);
+        return currency;
+    }
+
+    /**
+     * Test from map.
+     */
+    @Test
+    void testFrom() {
+        Map<String, Number> btc = new HashMap<>();
+        btc.put("USD", 36000.0);
+        btc.put("EUR", 30000);
+        btc.put("XYZ", 1.0);
+        Map<String, Map<String, Number>> data = new HashMap<>();
+        data.put("BTC", btc);
+
+        PriceMatrix matrix = PriceMatrix.from(INDEX, data);
+
+        assertEquals(36000.0, matrix.rate("BTC", "USD"));
+        assertEquals(30000.0, matrix.rate(INDEX.ordinal("BTC"), INDEX.ordinal("EUR")));
+        assertTrue(Double.isNaN(matrix.rate("ETH", "USD")));
+        assertTrue(Double.isNaN(matrix.rate("BTC", "XYZ")));
+    }
+
+    /**
+     * Test rendering only includes crypto rows with rates.
+     */
+    @Test
+    void testToCryptoCurrencies() {
+        PriceMatrix matrix = PriceMatrix.builder(INDEX)
+                .set(INDEX.ordinal("BTC"), INDEX.ordinal("USD"), 36000.0)
+                .set(INDEX.ordinal("BTC"), INDEX.ordinal("EUR"), 30000.0)
+                .build();
+
+        List<CryptoCurrency> cryptoCurrencies = matrix.toCryptoCurrencies();
+
+        assertEquals(1, cryptoCurrencies.size());
+        assertEquals("BTC", cryptoCurrencies.get(0).getCurrency());
+        assertEquals(2, cryptoCurrencies.get(0).getPrices().size());
+        assertSame(cryptoCurrencies, matrix.toCryptoCurrencies());
+    }
+}
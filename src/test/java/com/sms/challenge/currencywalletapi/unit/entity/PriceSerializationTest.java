@@ -0,0 +1,60 @@
+package com.sms.challenge.currencywalletapi.unit.entity;
+
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.internal.serialization.impl.SerializationConstants;
+import com.sms.challenge.currencywalletapi.entity.CryptoCurrency;
+import com.sms.challenge.currencywalletapi.entity.CryptoCurrencyPrice;
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.entity.PriceSerializableFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Price serialization test.
+ */
+class PriceSerializationTest {
+
+    private final SerializationService serializationService = new DefaultSerializationServiceBuilder()
+            .addDataSerializableFactory(PriceSerializableFactory.FACTORY_ID, new PriceSerializableFactory())
+            .build();
+
+    /**
+     * Test a currencies entry round trip, with the list the service puts in the cache.
+     */
+    @Test
+    void testRoundTrip() {
+        CurrencyIndex index = new CurrencyIndex(Arrays.asList(
+                new Currency("BTC", true),
+                new Currency("ETH", true),
+                new Currency("USD", false),
+                new Currency("EUR", false)
+        ));
+        List<CryptoCurrency> currencies = PriceMatrix.builder(index)
+                .set(index.ordinal("BTC"), index.ordinal("USD"), 36000.5)
+                .set(index.ordinal("BTC"), index.ordinal("EUR"), 30000.25)
+                .set(index.ordinal("ETH"), index.ordinal("USD"), 2400.0)
+                .build()
+                .toCryptoCurrencies();
+
+        Data data = this.serializationService.toData(currencies);
+        List<CryptoCurrency> result = this.serializationService.toObject(data);
+
+        // Written by the ArrayList serializer, with the elements in their identified form, not with Java serialization
+        assertEquals(SerializationConstants.JAVA_DEFAULT_TYPE_ARRAY_LIST, data.getType());
+        assertEquals(currencies, result);
+        List<CryptoCurrency> again = this.serializationService.toObject(data);
+        assertSame(result.get(0).getPrices().get(0).getCurrency(), again.get(0).getPrices().get(0).getCurrency());
+        assertEquals(new CryptoCurrencyPrice("USD", 36000.5), this.serializationService.toObject(
+                this.serializationService.toData(new CryptoCurrencyPrice("USD", 36000.5))));
+        assertEquals(new CryptoCurrency("ETH"), this.serializationService.toObject(
+                this.serializationService.toData(new CryptoCurrency("ETH"))));
+    }
+}
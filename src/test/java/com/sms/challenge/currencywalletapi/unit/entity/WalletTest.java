@@ -0,0 +1,79 @@
+package com.sms.challenge.currencywalletapi.unit.entity;
+
+import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
+import com.sms.challenge.currencywalletapi.entity.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Wallet test.
+ */
+class WalletTest {
+
+    /**
+     * Test currency amounts are found by currency, and added once when missing.
+     */
+    @Test
+    void testGetOrCreateCurrencyAmount() {
+        CurrencyAmount btc = new CurrencyAmount("BTC", 250_000_000L, 8);
+        Wallet wallet = new Wallet("MyWallet", Stream.of(btc).collect(Collectors.toSet()));
+
+        assertSame(btc, wallet.getCurrencyAmount("BTC"));
+        assertNull(wallet.getCurrencyAmount("USD"));
+
+        CurrencyAmount usd = wallet.getOrCreateCurrencyAmount("USD", 2);
+        assertEquals(0L, usd.getAmount());
+        assertEquals(2, usd.getScale());
+        assertSame(usd, wallet.getOrCreateCurrencyAmount("USD", 2));
+        assertSame(usd, wallet.getCurrencyAmount("USD"));
+        assertEquals(2, wallet.getCurrencyAmounts().size());
+
+        Wallet empty = new Wallet("MyWallet");
+        assertNull(empty.getCurrencyAmount("BTC"));
+        assertSame(empty.getOrCreateCurrencyAmount("BTC", 8), empty.getCurrencyAmount("BTC"));
+    }
+
+    /**
+     * Test the index follows a replaced or resized set.
+     */
+    @Test
+    void testGetCurrencyAmount_Reindexed() {
+        Wallet wallet = new Wallet("MyWallet", new HashSet<>());
+        assertNull(wallet.getCurrencyAmount("BTC"));
+
+        CurrencyAmount btc = new CurrencyAmount("BTC", 1L, 8);
+        wallet.getCurrencyAmounts().add(btc);
+        assertSame(btc, wallet.getCurrencyAmount("BTC"));
+
+        CurrencyAmount eth = new CurrencyAmount("ETH", 1L, 8);
+        wallet.setCurrencyAmounts(Stream.of(eth).collect(Collectors.toSet()));
+        assertNull(wallet.getCurrencyAmount("BTC"));
+        assertSame(eth, wallet.getCurrencyAmount("ETH"));
+    }
+
+    /**
+     * Test a currency amount keeps its place in the set while its amount changes.
+     */
+    @Test
+    void testCurrencyAmount_StableHash() {
+        CurrencyAmount btc = new CurrencyAmount("BTC", 1L, 8);
+        Set<CurrencyAmount> currencyAmounts = Stream.of(btc).collect(Collectors.toSet());
+        btc.setAmount(2L);
+        btc.setVersion(1L);
+        assertTrue(currencyAmounts.contains(btc));
+        assertTrue(currencyAmounts.remove(btc));
+
+        CurrencyAmount persisted = new CurrencyAmount("BTC", 1L, 8);
+        persisted.setId(1L);
+        CurrencyAmount loaded = new CurrencyAmount("BTC", 2L, 8);
+        loaded.setId(1L);
+        assertEquals(persisted, loaded);
+        assertNotEquals(new CurrencyAmount("BTC", 1L, 8), new CurrencyAmount("BTC", 1L, 8));
+    }
+}
@@ -0,0 +1,158 @@
+package com.sms.challenge.currencywalletapi.unit.lock;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.lock.StripedWalletLockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * The type Striped wallet lock manager test.
+ */
+@SpringBootTest
+class StripedWalletLockManagerTest {
+
+    /**
+     * The App config.
+     */
+    @Mock
+    AppConfig appConfig;
+
+    /**
+     * The Lock manager.
+     */
+    @InjectMocks
+    StripedWalletLockManager lockManager;
+
+    /**
+     * Sets mock output.
+     */
+    @BeforeEach
+    void setMockOutput() {
+        when(this.appConfig.getWalletLockStripes()).thenReturn(1000);
+        when(this.appConfig.getWalletLockTimeoutMs()).thenReturn(5000L);
+        this.lockManager.init();
+    }
+
+    /**
+     * Test the stripes are rounded up to a power of two.
+     */
+    @Test
+    void testInit_PowerOfTwo() {
+        assertEquals(1024, this.lockManager.getStripes());
+        when(this.appConfig.getWalletLockStripes()).thenReturn(0);
+        this.lockManager.init();
+        assertEquals(1, this.lockManager.getStripes());
+    }
+
+    /**
+     * Test writes to the same wallet are serialized.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testExecute_MutualExclusion() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < 200; j++) {
+                        this.lockManager.execute(Collections.singletonList(1L), () -> {
+                            if (inside.incrementAndGet() > 1) {
+                                overlaps.incrementAndGet();
+                            }
+                            inside.decrementAndGet();
+                        });
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, overlaps.get());
+    }
+
+    /**
+     * Test opposite transfers lock the wallets in the same order and cannot deadlock.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testExecute_OppositeOrder() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicInteger completed = new AtomicInteger();
+        try {
+            Future<?> forward = executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    this.lockManager.execute(Arrays.asList(1L, 2L), completed::incrementAndGet);
+                }
+            });
+            Future<?> backward = executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    this.lockManager.execute(Arrays.asList(2L, 1L), completed::incrementAndGet);
+                }
+            });
+            forward.get(10, TimeUnit.SECONDS);
+            backward.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1000, completed.get());
+    }
+
+    /**
+     * Test a lock held for longer than the timeout is reported as a lock failure.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testExecute_Timeout() throws Exception {
+        when(this.appConfig.getWalletLockTimeoutMs()).thenReturn(50L);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<?> holder = executor.submit(() -> this.lockManager.execute(Collections.singletonList(1L), () -> {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+            Exception exception = assertThrows(CannotAcquireLockException.class, () -> this.lockManager.execute(Collections.singletonList(1L), () -> fail("Lock acquired")));
+            assertTrue(exception.getMessage().contains("Timeout trying to lock wallet"));
+
+            release.countDown();
+            holder.get(5, TimeUnit.SECONDS);
+            AtomicInteger runs = new AtomicInteger();
+            this.lockManager.execute(Collections.singletonList(1L), runs::incrementAndGet);
+            assertEquals(1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.sms.challenge.currencywalletapi.unit.provider;
+
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.provider.PriceProvider;
+import com.sms.challenge.currencywalletapi.provider.RecordingPriceProvider;
+import com.sms.challenge.currencywalletapi.util.PriceTape;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * The type Recording price provider test.
+ */
+class RecordingPriceProviderTest {
+
+    private static final CurrencyIndex INDEX = CurrencyIndex.of("BTC", "USD");
+    private static final List<String> USD = Collections.singletonList("USD");
+
+    /**
+     * Test the responses are written by the background writer, in order, and all of them once closed.
+     *
+     * @param directory the directory
+     * @throws IOException the io exception
+     */
+    @Test
+    void testRecord(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("tape.bin");
+        PriceProvider delegate = Mockito.mock(PriceProvider.class);
+        PriceMatrix matrix = PriceMatrix.builder(INDEX).set(INDEX.ordinal("BTC"), INDEX.ordinal("USD"), 36000.0).build();
+        when(delegate.fetch(INDEX, "BTC", USD)).thenReturn(Mono.just(matrix));
+        when(delegate.fetch(INDEX, "XYZ", USD)).thenReturn(Mono.error(new NotFoundException("Currency symbol not found")));
+
+        RecordingPriceProvider provider = new RecordingPriceProvider(delegate, new PriceTape.Writer(path), 10);
+        assertEquals(36000.0, provider.fetch(INDEX, "BTC", USD).block().rate("BTC", "USD"));
+        assertThrows(NotFoundException.class, () -> provider.fetch(INDEX, "XYZ", USD).block());
+        provider.close();
+
+        List<PriceTape.Record> records;
+        try (InputStream input = Files.newInputStream(path)) {
+            records = PriceTape.read(input);
+        }
+        assertEquals(2, records.size());
+        assertEquals(PriceTape.Outcome.OK, records.get(0).getOutcome());
+        assertEquals(36000.0, records.get(0).rate("BTC", "USD"));
+        assertEquals(PriceTape.Outcome.NOT_FOUND, records.get(1).getOutcome());
+        assertEquals("Currency symbol not found", records.get(1).getMessage());
+    }
+}
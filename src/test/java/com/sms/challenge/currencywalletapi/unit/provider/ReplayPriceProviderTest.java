@@ -0,0 +1,120 @@
+package com.sms.challenge.currencywalletapi.unit.provider;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.provider.ReplayPriceProvider;
+import com.sms.challenge.currencywalletapi.util.PriceTape;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * The type Replay price provider test.
+ */
+@SpringBootTest
+class ReplayPriceProviderTest {
+
+    private static final CurrencyIndex INDEX = CurrencyIndex.of("BTC", "ETH", "USD");
+    private static final List<String> USD = Collections.singletonList("USD");
+
+    /**
+     * The App config.
+     */
+    @Mock
+    AppConfig appConfig;
+
+    /**
+     * The Clock.
+     */
+    @Mock
+    Clock clock;
+
+    /**
+     * The Provider.
+     */
+    @InjectMocks
+    ReplayPriceProvider provider;
+
+    /**
+     * The Directory.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Sets mock output.
+     *
+     * @throws IOException the io exception
+     */
+    @BeforeEach
+    void setMockOutput() throws IOException {
+        when(this.appConfig.getPriceReplayTimeCompression()).thenReturn(10.0);
+        when(this.appConfig.getPriceReplayLatencyMode()).thenReturn("none");
+        when(this.appConfig.getPriceReplaySeed()).thenReturn(42L);
+        Path path = this.directory.resolve("tape.bin");
+        try (PriceTape.Writer writer = new PriceTape.Writer(path)) {
+            writer.append(PriceTape.Record.ok(0L, 100, true, Collections.singletonList("BTC"), USD, this.matrix("BTC", 36000.0)));
+            writer.append(PriceTape.Record.ok(10000L, 100, true, Collections.singletonList("BTC"), USD, this.matrix("BTC", 37000.0)));
+            writer.append(PriceTape.Record.ok(5000L, 100, true, Collections.singletonList("ETH"), USD, this.matrix("ETH", 1200.0)));
+            writer.append(PriceTape.Record.failed(5000L, 100, true, Collections.singletonList("XYZ"), USD,
+                    PriceTape.Outcome.NOT_FOUND, "Currency symbol not found"));
+        }
+        when(this.clock.millis()).thenReturn(0L);
+        try (InputStream input = Files.newInputStream(path)) {
+            this.provider.load(input);
+        }
+    }
+
+    private PriceMatrix matrix(String currencyFrom, double price) {
+        return PriceMatrix.builder(INDEX).set(INDEX.ordinal(currencyFrom), INDEX.ordinal("USD"), price).build();
+    }
+
+    /**
+     * Test the tape clock runs compressed.
+     */
+    @Test
+    void testTimeCompression() {
+        assertEquals(36000.0, this.provider.fetch(INDEX, "BTC", USD).block().rate("BTC", "USD"));
+
+        when(this.clock.millis()).thenReturn(1000L);
+
+        assertEquals(37000.0, this.provider.fetch(INDEX, "BTC", USD).block().rate("BTC", "USD"));
+    }
+
+    /**
+     * Test requests never recorded as such are answered from the latest recorded pairs.
+     */
+    @Test
+    void testMerged() {
+        when(this.clock.millis()).thenReturn(600L);
+
+        PriceMatrix matrix = this.provider.fetch(INDEX, INDEX.symbols(false), USD).block();
+
+        assertEquals(36000.0, matrix.rate("BTC", "USD"));
+        assertEquals(1200.0, matrix.rate("ETH", "USD"));
+    }
+
+    /**
+     * Test recorded errors are replayed.
+     */
+    @Test
+    void testNotFound() {
+        assertThrows(NotFoundException.class, () -> this.provider.fetch(INDEX, "XYZ", USD).block());
+    }
+}
@@ -0,0 +1,133 @@
+package com.sms.challenge.currencywalletapi.unit.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.provider.PriceProvider;
+import com.sms.challenge.currencywalletapi.service.CryptoCurrencyFetcherService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The type Crypto currency fetcher service test.
+ */
+@SpringBootTest
+class CryptoCurrencyFetcherServiceTest {
+
+    private static final CurrencyIndex INDEX = CurrencyIndex.of("BTC", "USD");
+    private static final PriceMatrix PRIMARY_MATRIX = PriceMatrix.builder(INDEX).set(0, 1, 36000.0).build();
+    private static final PriceMatrix SECONDARY_MATRIX = PriceMatrix.builder(INDEX).set(0, 1, 36001.0).build();
+
+    /**
+     * The App config.
+     */
+    @Mock
+    AppConfig appConfig;
+
+    /**
+     * The Primary provider.
+     */
+    @Mock
+    PriceProvider primary;
+
+    /**
+     * The Secondary provider.
+     */
+    @Mock
+    PriceProvider secondary;
+
+    /**
+     * The Providers.
+     */
+    @Mock
+    List<PriceProvider> providers;
+
+    /**
+     * The Service.
+     */
+    @InjectMocks
+    CryptoCurrencyFetcherService service;
+
+    /**
+     * Sets mock output.
+     */
+    @BeforeEach
+    void setMockOutput() {
+        when(this.primary.getName()).thenReturn("primary");
+        when(this.secondary.getName()).thenReturn("secondary");
+        when(this.providers.stream()).thenAnswer(invocation -> Stream.of(this.primary, this.secondary));
+        when(this.appConfig.getPriceProvider()).thenReturn("primary");
+        when(this.appConfig.getPriceSecondaryProvider()).thenReturn("secondary");
+        when(this.appConfig.getPriceCircuitWindowSize()).thenReturn(20);
+        when(this.appConfig.getPriceCircuitMinimumCalls()).thenReturn(10);
+        when(this.appConfig.getPriceCircuitFailureRateThreshold()).thenReturn(0.5);
+        when(this.appConfig.getPriceCircuitSlowCallRateThreshold()).thenReturn(0.8);
+        when(this.appConfig.getPriceCircuitSlowCallMs()).thenReturn(800L);
+        when(this.appConfig.getPriceCircuitOpenMs()).thenReturn(5000L);
+        when(this.appConfig.getPriceHedgeWindowSize()).thenReturn(10);
+        when(this.appConfig.getPriceHedgePercentile()).thenReturn(0.95);
+        when(this.appConfig.getPriceHedgeMinDelayMs()).thenReturn(20L);
+        when(this.secondary.fetch(Mockito.any(), Mockito.anyString(), Mockito.anyList())).thenReturn(Mono.just(SECONDARY_MATRIX));
+        this.service.init();
+    }
+
+    /**
+     * Test a failed primary call fails over to the secondary.
+     */
+    @Test
+    void testFailover() {
+        when(this.primary.fetch(Mockito.any(), Mockito.anyString(), Mockito.anyList())).thenReturn(Mono.error(new ExternalServiceException("Down")));
+
+        assertSame(SECONDARY_MATRIX, this.service.fetchAsync(INDEX, "BTC", Collections.singletonList("USD")).block());
+    }
+
+    /**
+     * Test an unknown symbol is not failed over.
+     */
+    @Test
+    void testNotFound() {
+        when(this.primary.fetch(Mockito.any(), Mockito.anyString(), Mockito.anyList())).thenReturn(Mono.error(new NotFoundException("Currency symbol not found")));
+
+        assertThrows(NotFoundException.class, () -> this.service.fetchAsync(INDEX, "XYZ", Collections.singletonList("USD")).block());
+        verify(this.secondary, never()).fetch(Mockito.any(), Mockito.anyString(), Mockito.anyList());
+    }
+
+    /**
+     * Test a slow primary is hedged and the first answer wins.
+     */
+    @Test
+    void testHedge() {
+        when(this.appConfig.isPriceHedgeEnabled()).thenReturn(true);
+        when(this.primary.fetch(Mockito.any(), Mockito.anyString(), Mockito.anyList())).thenReturn(
+                Mono.just(PRIMARY_MATRIX).delayElement(Duration.ofSeconds(2)));
+
+        assertSame(SECONDARY_MATRIX, this.service.fetchAsync(INDEX, "BTC", Collections.singletonList("USD")).block(Duration.ofSeconds(1)));
+    }
+
+    /**
+     * Test a fast primary is not hedged.
+     */
+    @Test
+    void testHedge_FastPrimary() {
+        when(this.appConfig.isPriceHedgeEnabled()).thenReturn(true);
+        when(this.primary.fetch(Mockito.any(), Mockito.anyString(), Mockito.anyList())).thenReturn(Mono.just(PRIMARY_MATRIX));
+
+        assertSame(PRIMARY_MATRIX, this.service.fetchAsync(INDEX, "BTC", Collections.singletonList("USD")).block());
+        verify(this.secondary, never()).fetch(Mockito.any(), Mockito.anyString(), Mockito.anyList());
+    }
+}
@@ -1,23 +1,51 @@
 package com.sms.challenge.currencywalletapi.unit.service;
 
 import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.domain.BatchMode;
+import com.sms.challenge.currencywalletapi.domain.BatchOperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationResultDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
 import com.sms.challenge.currencywalletapi.exception.ValidationException;
-import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.Conversion;
+import com.sms.challenge.currencywalletapi.entity.ConversionPath;
 import com.sms.challenge.currencywalletapi.entity.CurrencyAmount;
 import com.sms.challenge.currencywalletapi.entity.Wallet;
+import com.sms.challenge.currencywalletapi.lock.WalletLockManager;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyOperationService;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyService;
-import com.sms.challenge.currencywalletapi.service.CurrencyService;
+import com.sms.challenge.currencywalletapi.service.CurrencyRegistry;
+import com.sms.challenge.currencywalletapi.service.WalletLockMode;
 import com.sms.challenge.currencywalletapi.service.WalletService;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
-
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.util.Pair;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionOperations;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -32,8 +60,9 @@ class CryptoCurrencyOperationServiceTest {
 
     private static final String CURRENCY_SYMBOL_FROM = "BTC";
     private static final String CURRENCY_SYMBOL_TO = "USD";
-    private static final Double CURRENCY_INITIAL_AMOUNT = 2.5;
-    private static final Double CURRENCY_AMOUNT_TO_BUY = 1.2;
+    private static final int CURRENCY_SCALE = 8;
+    private static final BigDecimal CURRENCY_INITIAL_AMOUNT = new BigDecimal("2.5");
+    private static final BigDecimal CURRENCY_AMOUNT_TO_BUY = new BigDecimal("1.2");
     private static final Double CURRENCY_PRICE = 36000.0;
     private static final Double CURRENCY_PRICE_DIFF_GREATER = 36000.004;
     private static final Double CURRENCY_PRICE_DIFF_GREATER_INVALID = 36051.54;
@@ -41,10 +70,10 @@ class CryptoCurrencyOperationServiceTest {
     private static final String CURRENCY_SYMBOL_NON_EXISTENT = "non-existent";
 
     /**
-     * The Currency service.
+     * The Currency registry.
      */
     @Mock
-    CurrencyService currencyService;
+    CurrencyRegistry currencyRegistry;
 
     /**
      * The Crypto currency service.
@@ -64,6 +93,24 @@ class CryptoCurrencyOperationServiceTest {
     @Mock
     AppConfig appConfig;
 
+    /**
+     * The Transaction operations.
+     */
+    @Mock
+    TransactionOperations transactionOperations;
+
+    /**
+     * The Wallet lock manager.
+     */
+    @Mock
+    WalletLockManager lockManager;
+
+    /**
+     * The Wallet lock managers.
+     */
+    @Mock
+    List<WalletLockManager> lockManagers;
+
     /**
      * The Service.
      */
@@ -76,10 +123,28 @@ class CryptoCurrencyOperationServiceTest {
     @BeforeEach
     void setMockOutput() {
         when(this.walletService.update(Mockito.any())).thenReturn(new Wallet());
-        when(this.currencyService.findBySymbol(Mockito.anyString())).thenReturn(new Currency());
-        when(this.currencyService.findBySymbol(CURRENCY_SYMBOL_NON_EXISTENT)).thenReturn(null);
+        when(this.currencyRegistry.contains(Mockito.anyString())).thenReturn(true);
+        when(this.currencyRegistry.contains(CURRENCY_SYMBOL_NON_EXISTENT)).thenReturn(false);
+        when(this.currencyRegistry.scale(Mockito.anyString())).thenReturn(CURRENCY_SCALE);
         when(this.cryptoCurrencyService.convert(Mockito.anyString(), Mockito.anyString())).thenReturn(CURRENCY_PRICE);
         when(this.appConfig.getPriceTolerance()).thenReturn(0.00005);
+        Mockito.doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(new SimpleTransactionStatus());
+            return null;
+        }).when(this.transactionOperations).executeWithoutResult(Mockito.any());
+        when(this.appConfig.getWalletLockMode()).thenReturn(WalletLockMode.PESSIMISTIC);
+        when(this.appConfig.getWalletRetryMaxAttempts()).thenReturn(3);
+        when(this.appConfig.getWalletRetryBaseDelayMs()).thenReturn(1L);
+        when(this.appConfig.getWalletRetryMaxDelayMs()).thenReturn(5L);
+        when(this.appConfig.getWalletLockManager()).thenReturn("database");
+        when(this.lockManager.getName()).thenReturn("database");
+        when(this.lockManager.isDatabaseLock()).thenReturn(true);
+        Mockito.doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return null;
+        }).when(this.lockManager).execute(Mockito.anyCollection(), Mockito.any());
+        when(this.lockManagers.stream()).thenAnswer(invocation -> Stream.of(this.lockManager));
+        this.service.init();
     }
 
     /**
@@ -87,16 +152,16 @@ class CryptoCurrencyOperationServiceTest {
      */
     @Test
     void testBuy_CurrencyTo_Exists() {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(id, "MyWallet", Stream.of(currencyAmount1, currencyAmount2).collect(Collectors.toSet()));
         when(this.walletService.findForWrite(id)).thenReturn(wallet);
         this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
         CurrencyAmount currencyAmountFrom = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_INITIAL_AMOUNT + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE), currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE)))), currencyAmountTo.getAmount());
     }
 
     /**
@@ -104,15 +169,15 @@ class CryptoCurrencyOperationServiceTest {
      */
     @Test
     void testBuy_CurrencyTo_NotExists() {
-        CurrencyAmount currencyAmount = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(id, "MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet()));
         when(this.walletService.findForWrite(id)).thenReturn(wallet);
         this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
         CurrencyAmount currencyAmountFrom = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE, currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE))), currencyAmountTo.getAmount());
     }
 
     /**
@@ -120,16 +185,16 @@ class CryptoCurrencyOperationServiceTest {
      */
     @Test
     void testBuy_WithPrice_WithoutValidation() {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(id, "MyWallet", Stream.of(currencyAmount1, currencyAmount2).collect(Collectors.toSet()));
         when(this.walletService.findForWrite(id)).thenReturn(wallet);
         this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE_DIFF_GREATER);
         CurrencyAmount currencyAmountFrom = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_INITIAL_AMOUNT + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE_DIFF_GREATER), currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE_DIFF_GREATER)))), currencyAmountTo.getAmount());
     }
 
     /**
@@ -137,16 +202,16 @@ class CryptoCurrencyOperationServiceTest {
      */
     @Test
     void testBuy_WithPrice_WithValidation() {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(id, "MyWallet", Stream.of(currencyAmount1, currencyAmount2).collect(Collectors.toSet()));
         when(this.walletService.findForWrite(id)).thenReturn(wallet);
         this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE_DIFF_GREATER, Boolean.TRUE);
         CurrencyAmount currencyAmountFrom = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_INITIAL_AMOUNT + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE_DIFF_GREATER), currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE_DIFF_GREATER)))), currencyAmountTo.getAmount());
     }
 
     /**
@@ -154,8 +219,8 @@ class CryptoCurrencyOperationServiceTest {
      */
     @Test
     void testBuy_WithPrice_Invalid() {
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(id, "MyWallet", Stream.of(currencyAmount1, currencyAmount2).collect(Collectors.toSet()));
         when(this.walletService.findForWrite(id)).thenReturn(wallet);
@@ -178,7 +243,7 @@ class CryptoCurrencyOperationServiceTest {
         Exception exception2 = assertThrows(NotFoundException.class, () -> service.buy(212121L, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
         assertTrue(exception2.getMessage().contains("Wallet not found"));
 
-        CurrencyAmount currencyAmount = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         final long id = 1L;
         Wallet wallet = new Wallet(id, "MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet()));
         when(this.walletService.findForWrite(id)).thenReturn(wallet);
@@ -192,7 +257,7 @@ class CryptoCurrencyOperationServiceTest {
         Exception exception5 = assertThrows(ValidationException.class, () -> service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, null));
         assertTrue(exception5.getMessage().contains("Amount is required"));
 
-        Exception exception6 = assertThrows(ValidationException.class, () -> service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, 0.0));
+        Exception exception6 = assertThrows(ValidationException.class, () -> service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, BigDecimal.ZERO));
         assertTrue(exception6.getMessage().contains("Amount must be greater than zero"));
 
         Exception exception7 = assertThrows(NotFoundException.class, () -> service.buy(id, CURRENCY_SYMBOL_NON_EXISTENT, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
@@ -204,8 +269,11 @@ class CryptoCurrencyOperationServiceTest {
         Exception exception9 = assertThrows(ValidationException.class, () -> service.buy(id, CURRENCY_SYMBOL_TO, CURRENCY_SYMBOL_FROM, CURRENCY_AMOUNT_TO_BUY));
         assertTrue(exception9.getMessage().contains("Wallet does not contain the currency from"));
 
-        Exception exception10 = assertThrows(ValidationException.class, () -> service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT + 0.1));
+        Exception exception10 = assertThrows(ValidationException.class, () -> service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT.add(new BigDecimal("0.1"))));
         assertTrue(exception10.getMessage().contains("The amount exceeds the available"));
+
+        Exception exception11 = assertThrows(ValidationException.class, () -> service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, new BigDecimal("0.000000001")));
+        assertTrue(exception11.getMessage().contains("Amount has more decimals than the currency allows"));
     }
 
     /**
@@ -215,17 +283,16 @@ class CryptoCurrencyOperationServiceTest {
     void testTransfer_CurrencyTo_Exists() {
         final long id1 = 1L;
         final long id2 = 2L;
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(currencyAmount1).collect(Collectors.toSet()));
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet2 = new Wallet(id2, "MyWallet", Stream.of(currencyAmount2).collect(Collectors.toSet()));
-        when(this.walletService.findForWrite(id1)).thenReturn(wallet1);
-        when(this.walletService.findForWrite(id2)).thenReturn(wallet2);
+        this.stubWallets(wallet1, wallet2);
         this.service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
         CurrencyAmount currencyAmountFrom = wallet1.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet2.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_INITIAL_AMOUNT + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE), currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE)))), currencyAmountTo.getAmount());
     }
 
     /**
@@ -235,62 +302,58 @@ class CryptoCurrencyOperationServiceTest {
     void testTransfer_CurrencyTo_NotExists() {
         final long id1 = 1L;
         final long id2 = 2L;
-        CurrencyAmount currencyAmount = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet()));
         Wallet wallet2 = new Wallet(id2, "MyWallet", new HashSet<>());
-        when(this.walletService.findForWrite(id1)).thenReturn(wallet1);
-        when(this.walletService.findForWrite(id2)).thenReturn(wallet2);
+        this.stubWallets(wallet1, wallet2);
         this.service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
         CurrencyAmount currencyAmountFrom = wallet1.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet2.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE, currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE))), currencyAmountTo.getAmount());
     }
 
     @Test
     void testTransfer_WithPrice_WithoutValidation() {
         final long id1 = 1L;
         final long id2 = 2L;
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(currencyAmount1).collect(Collectors.toSet()));
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet2 = new Wallet(id2, "MyWallet", Stream.of(currencyAmount2).collect(Collectors.toSet()));
-        when(this.walletService.findForWrite(id1)).thenReturn(wallet1);
-        when(this.walletService.findForWrite(id2)).thenReturn(wallet2);
+        this.stubWallets(wallet1, wallet2);
         this.service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE_DIFF_GREATER);
         CurrencyAmount currencyAmountFrom = wallet1.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet2.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_INITIAL_AMOUNT + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE_DIFF_GREATER), currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE_DIFF_GREATER)))), currencyAmountTo.getAmount());
     }
 
     @Test
     void testTransfer_WithPrice_WithValidation() {
         final long id1 = 1L;
         final long id2 = 2L;
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(currencyAmount1).collect(Collectors.toSet()));
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet2 = new Wallet(id2, "MyWallet", Stream.of(currencyAmount2).collect(Collectors.toSet()));
-        when(this.walletService.findForWrite(id1)).thenReturn(wallet1);
-        when(this.walletService.findForWrite(id2)).thenReturn(wallet2);
+        this.stubWallets(wallet1, wallet2);
         this.service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE_DIFF_GREATER, Boolean.TRUE);
         CurrencyAmount currencyAmountFrom = wallet1.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
         CurrencyAmount currencyAmountTo = wallet2.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
-        assertEquals(CURRENCY_INITIAL_AMOUNT - CURRENCY_AMOUNT_TO_BUY, currencyAmountFrom.getAmount());
-        assertEquals(CURRENCY_INITIAL_AMOUNT + (CURRENCY_AMOUNT_TO_BUY * CURRENCY_PRICE_DIFF_GREATER), currencyAmountTo.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.add(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE_DIFF_GREATER)))), currencyAmountTo.getAmount());
     }
 
     @Test
     void testTransfer_WithPrice_Invalid() {
         final long id1 = 1L;
         final long id2 = 2L;
-        CurrencyAmount currencyAmount1 = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount1 = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(currencyAmount1).collect(Collectors.toSet()));
-        CurrencyAmount currencyAmount2 = new CurrencyAmount(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount2 = CurrencyAmount.of(CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet2 = new Wallet(id2, "MyWallet", Stream.of(currencyAmount2).collect(Collectors.toSet()));
-        when(this.walletService.findForWrite(id1)).thenReturn(wallet1);
-        when(this.walletService.findForWrite(id2)).thenReturn(wallet2);
+        this.stubWallets(wallet1, wallet2);
 
         Exception exception1 = assertThrows(ValidationException.class, () -> this.service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY, CURRENCY_PRICE_DIFF_GREATER_INVALID, Boolean.TRUE));
         assertTrue(exception1.getMessage().contains("The price is different from the official"));
@@ -313,19 +376,18 @@ class CryptoCurrencyOperationServiceTest {
         Exception exception2 = assertThrows(ValidationException.class, () -> service.transfer(id1, null, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
         assertTrue(exception2.getMessage().contains("Wallet id to is required"));
 
-        when(this.walletService.findForWrite(id2)).thenReturn(new Wallet());
+        this.stubWallets(new Wallet(id2, "MyWallet", new HashSet<>()));
         Exception exception3 = assertThrows(NotFoundException.class, () -> service.transfer(212121L, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
         assertTrue(exception3.getMessage().contains("Wallet from not found"));
 
-        when(this.walletService.findForWrite(id1)).thenReturn(new Wallet());
+        this.stubWallets(new Wallet(id1, "MyWallet", new HashSet<>()));
         Exception exception4 = assertThrows(NotFoundException.class, () -> service.transfer(id1, 212121L, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
         assertTrue(exception4.getMessage().contains("Wallet to not found"));
 
-        CurrencyAmount currencyAmount = new CurrencyAmount(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT);
+        CurrencyAmount currencyAmount = CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE);
         Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(currencyAmount).collect(Collectors.toSet()));
         Wallet wallet2 = new Wallet(id2, "MyWallet", new HashSet<>());
-        when(this.walletService.findForWrite(id1)).thenReturn(wallet1);
-        when(this.walletService.findForWrite(id2)).thenReturn(wallet2);
+        this.stubWallets(wallet1, wallet2);
 
         Exception exception5 = assertThrows(ValidationException.class, () -> service.transfer(id1, id2, null, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
         assertTrue(exception5.getMessage().contains("Currency from is required"));
@@ -336,7 +398,7 @@ class CryptoCurrencyOperationServiceTest {
         Exception exception7 = assertThrows(ValidationException.class, () -> service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, null));
         assertTrue(exception7.getMessage().contains("Amount is required"));
 
-        Exception exception8 = assertThrows(ValidationException.class, () -> service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, 0.0));
+        Exception exception8 = assertThrows(ValidationException.class, () -> service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, BigDecimal.ZERO));
         assertTrue(exception8.getMessage().contains("Amount must be greater than zero"));
 
         Exception exception9 = assertThrows(NotFoundException.class, () -> service.transfer(id1, id2, CURRENCY_SYMBOL_NON_EXISTENT, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
@@ -348,7 +410,311 @@ class CryptoCurrencyOperationServiceTest {
         Exception exception11 = assertThrows(ValidationException.class, () -> service.transfer(id1, id2, CURRENCY_SYMBOL_TO, CURRENCY_SYMBOL_FROM, CURRENCY_AMOUNT_TO_BUY));
         assertTrue(exception11.getMessage().contains("Wallet from does not contain the currency from"));
 
-        Exception exception12 = assertThrows(ValidationException.class, () -> service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT + 0.1));
+        Exception exception12 = assertThrows(ValidationException.class, () -> service.transfer(id1, id2, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT.add(new BigDecimal("0.1"))));
         assertTrue(exception12.getMessage().contains("The amount exceeds the available"));
     }
+
+    /**
+     * Test the optimistic mode reads without a lock and retries a conflicting write on fresh data.
+     */
+    @Test
+    void testBuy_Optimistic_Retry() {
+        when(this.appConfig.getWalletLockMode()).thenReturn(WalletLockMode.OPTIMISTIC);
+        final long id = 1L;
+        Wallet stale = new Wallet(id, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        Wallet fresh = new Wallet(id, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        when(this.walletService.find(id)).thenReturn(stale, fresh);
+        when(this.walletService.update(stale)).thenThrow(new ObjectOptimisticLockingFailureException(Wallet.class, id));
+
+        this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
+
+        Mockito.verify(this.walletService, Mockito.never()).findForWrite(Mockito.anyLong());
+        Mockito.verify(this.walletService).update(fresh);
+        Mockito.verify(this.transactionOperations, Mockito.times(2)).executeWithoutResult(Mockito.any());
+        CurrencyAmount currencyAmountTo = fresh.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_TO)).findFirst().get();
+        assertEquals(units(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE))), currencyAmountTo.getAmount());
+    }
+
+    /**
+     * Test the optimistic mode gives up after the configured attempts.
+     */
+    @Test
+    void testBuy_Optimistic_RetriesExhausted() {
+        when(this.appConfig.getWalletLockMode()).thenReturn(WalletLockMode.OPTIMISTIC);
+        final long id = 1L;
+        when(this.walletService.find(id)).thenAnswer(invocation -> new Wallet(id, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet())));
+        when(this.walletService.update(Mockito.any())).thenThrow(new ObjectOptimisticLockingFailureException(Wallet.class, id));
+
+        assertThrows(ConcurrencyFailureException.class, () -> this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
+        Mockito.verify(this.walletService, Mockito.times(3)).update(Mockito.any());
+    }
+
+    /**
+     * Test the pessimistic mode retries lock timeouts but not version conflicts.
+     */
+    @Test
+    void testBuy_Pessimistic_Retry() {
+        final long id = 1L;
+        when(this.walletService.findForWrite(id)).thenAnswer(invocation -> new Wallet(id, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet())));
+        when(this.walletService.update(Mockito.any())).thenThrow(new PessimisticLockingFailureException("Timeout trying to lock table"));
+        assertThrows(ConcurrencyFailureException.class, () -> this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
+        Mockito.verify(this.walletService, Mockito.times(3)).update(Mockito.any());
+
+        Mockito.clearInvocations(this.walletService);
+        Mockito.doThrow(new ObjectOptimisticLockingFailureException(Wallet.class, id)).when(this.walletService).update(Mockito.any());
+        assertThrows(ConcurrencyFailureException.class, () -> this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
+        Mockito.verify(this.walletService, Mockito.times(1)).update(Mockito.any());
+    }
+
+    /**
+     * Test both transfer wallets are locked by a single query, whatever the transfer direction.
+     */
+    @Test
+    void testTransfer_LocksBothWalletsAtOnce() {
+        final long id1 = 1L;
+        final long id2 = 2L;
+        Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        Wallet wallet2 = new Wallet(id2, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        this.stubWallets(wallet1, wallet2);
+
+        this.service.transfer(id2, id1, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
+
+        Mockito.verify(this.walletService).findAllForWrite(Arrays.asList(id2, id1));
+        Mockito.verify(this.walletService, Mockito.never()).findForWrite(Mockito.anyLong());
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), wallet2.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get().getAmount());
+    }
+
+    /**
+     * Test the price is quoted before the wallet is locked, and a failed quote never opens a transaction.
+     */
+    @Test
+    void testBuy_QuoteBeforeLock() {
+        final long id = 1L;
+        Wallet wallet = new Wallet(id, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        when(this.walletService.findForWrite(id)).thenReturn(wallet);
+
+        this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
+        InOrder inOrder = Mockito.inOrder(this.cryptoCurrencyService, this.transactionOperations, this.walletService);
+        inOrder.verify(this.cryptoCurrencyService).convert(CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO);
+        inOrder.verify(this.transactionOperations).executeWithoutResult(Mockito.any());
+        inOrder.verify(this.walletService).findForWrite(id);
+
+        Mockito.clearInvocations(this.transactionOperations);
+        when(this.cryptoCurrencyService.convert(Mockito.anyString(), Mockito.anyString())).thenThrow(new ExternalServiceException("Price service unavailable"));
+        assertThrows(ExternalServiceException.class, () -> this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY));
+        Mockito.verifyNoInteractions(this.transactionOperations);
+    }
+
+    /**
+     * Test an in-process lock manager locks the wallets before the transaction, which then reads them without a row lock.
+     */
+    @Test
+    void testTransfer_InProcessLockBeforeTransaction() {
+        when(this.lockManager.isDatabaseLock()).thenReturn(false);
+        final long id1 = 1L;
+        final long id2 = 2L;
+        Wallet wallet1 = new Wallet(id1, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        Wallet wallet2 = new Wallet(id2, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        when(this.walletService.findAll(Mockito.anyCollection())).thenReturn(Arrays.asList(wallet1, wallet2));
+
+        this.service.transfer(id2, id1, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
+
+        InOrder inOrder = Mockito.inOrder(this.lockManager, this.transactionOperations, this.walletService);
+        inOrder.verify(this.lockManager).execute(Mockito.eq(Arrays.asList(id2, id1)), Mockito.any());
+        inOrder.verify(this.transactionOperations).executeWithoutResult(Mockito.any());
+        inOrder.verify(this.walletService).findAll(Arrays.asList(id2, id1));
+        Mockito.verify(this.walletService, Mockito.never()).findAllForWrite(Mockito.anyCollection());
+    }
+
+    /**
+     * Test the optimistic mode does not go through the lock manager.
+     */
+    @Test
+    void testBuy_Optimistic_WithoutLockManager() {
+        when(this.appConfig.getWalletLockMode()).thenReturn(WalletLockMode.OPTIMISTIC);
+        final long id = 1L;
+        when(this.walletService.find(id)).thenReturn(new Wallet(id, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet())));
+
+        this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
+
+        Mockito.verify(this.lockManager, Mockito.never()).execute(Mockito.anyCollection(), Mockito.any());
+    }
+
+    /**
+     * Test an unknown lock manager is rejected on startup.
+     */
+    @Test
+    void testInit_UnknownLockManager() {
+        when(this.appConfig.getWalletLockManager()).thenReturn("non-existent");
+        Exception exception = assertThrows(IllegalStateException.class, () -> this.service.init());
+        assertTrue(exception.getMessage().contains("Unknown wallet lock manager"));
+    }
+
+    /**
+     * Test the operations on a hot wallet are applied by the write combiner, each caller getting its own result.
+     */
+    @Test
+    void testBuy_Combined() {
+        final long id = 1L;
+        when(this.appConfig.getWalletCombineIds()).thenReturn(Collections.singleton(id));
+        Wallet wallet = new Wallet(id, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        this.stubWallets(wallet);
+
+        this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT_TO_BUY);
+        Exception exception = assertThrows(ValidationException.class, () -> this.service.buy(id, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_INITIAL_AMOUNT));
+        assertTrue(exception.getMessage().contains("The amount exceeds the available"));
+
+        Mockito.verify(this.walletService, Mockito.never()).findForWrite(Mockito.anyLong());
+        Mockito.verify(this.walletService, Mockito.times(1)).update(wallet);
+        CurrencyAmount currencyAmountFrom = wallet.getCurrencyAmounts().stream().filter(item -> item.getCurrency().equals(CURRENCY_SYMBOL_FROM)).findFirst().get();
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), currencyAmountFrom.getAmount());
+    }
+
+    /**
+     * Test a best-effort batch applies the operations passing their checks, quoting the prices once for the batch
+     * and locking its wallets once.
+     */
+    @Test
+    void testBatch_BestEffort() {
+        Wallet wallet1 = new Wallet(1L, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        Wallet wallet2 = new Wallet(2L, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        this.stubWallets(wallet1, wallet2);
+        this.stubQuotes();
+
+        List<OperationResultDTO> results = this.service.batch(this.batchOperations(), BatchMode.BEST_EFFORT);
+
+        assertEquals(Arrays.asList(OperationStatus.APPLIED, OperationStatus.APPLIED, OperationStatus.FAILED, OperationStatus.FAILED),
+                results.stream().map(OperationResultDTO::getStatus).collect(Collectors.toList()));
+        assertTrue(results.get(2).getError().contains("The amount exceeds the available"));
+        assertTrue(results.get(3).getError().contains("Currency to not found"));
+        Mockito.verify(this.cryptoCurrencyService, Mockito.times(1)).quoteAll(Mockito.anyCollection());
+        Mockito.verify(this.cryptoCurrencyService, Mockito.never()).convert(Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(this.lockManager, Mockito.times(1)).execute(Mockito.eq(new TreeSet<>(Arrays.asList(1L, 2L))), Mockito.any());
+        Mockito.verify(this.walletService, Mockito.times(1)).findAllForWrite(Mockito.anyCollection());
+        Mockito.verify(this.walletService, Mockito.times(1)).update(wallet1);
+        Mockito.verify(this.walletService, Mockito.times(1)).update(wallet2);
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY).subtract(CURRENCY_AMOUNT_TO_BUY)), wallet1.getCurrencyAmount(CURRENCY_SYMBOL_FROM).getAmount());
+        assertEquals(units(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE))), wallet1.getCurrencyAmount(CURRENCY_SYMBOL_TO).getAmount());
+        assertEquals(units(CURRENCY_AMOUNT_TO_BUY.multiply(BigDecimal.valueOf(CURRENCY_PRICE))), wallet2.getCurrencyAmount(CURRENCY_SYMBOL_TO).getAmount());
+    }
+
+    /**
+     * Test a best-effort batch fails alone an operation whose pair has no price or whose price lookup failed.
+     */
+    @Test
+    void testBatch_BestEffort_Unpriceable() {
+        Wallet wallet1 = new Wallet(1L, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        this.stubWallets(wallet1);
+        when(this.appConfig.getWalletBatchMaxOperations()).thenReturn(100);
+        when(this.cryptoCurrencyService.quoteAll(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Map<Pair<String, String>, Mono<Conversion>> quotes = new HashMap<>();
+            quotes.put(Pair.of(CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO), Mono.just(new Conversion(CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_PRICE, ConversionPath.DIRECT, null)));
+            quotes.put(Pair.of(CURRENCY_SYMBOL_FROM, "XRP"), Mono.empty());
+            quotes.put(Pair.of(CURRENCY_SYMBOL_FROM, "ETH"), Mono.error(new IllegalStateException("Connection reset")));
+            return quotes;
+        });
+        BatchOperationDTO unpriced = this.batchOperation(OperationType.BUY, 1L, null, CURRENCY_AMOUNT_TO_BUY);
+        unpriced.setCurrencyTo("XRP");
+        BatchOperationDTO unavailable = this.batchOperation(OperationType.BUY, 1L, null, CURRENCY_AMOUNT_TO_BUY);
+        unavailable.setCurrencyTo("ETH");
+        List<BatchOperationDTO> operations = Arrays.asList(this.batchOperation(OperationType.BUY, 1L, null, CURRENCY_AMOUNT_TO_BUY), unpriced, unavailable);
+
+        List<OperationResultDTO> results = this.service.batch(operations, BatchMode.BEST_EFFORT);
+
+        assertEquals(Arrays.asList(OperationStatus.APPLIED, OperationStatus.FAILED, OperationStatus.FAILED),
+                results.stream().map(OperationResultDTO::getStatus).collect(Collectors.toList()));
+        assertTrue(results.get(1).getError().contains("Price not available"));
+        assertTrue(results.get(2).getError().contains("Price service unavailable"));
+        assertEquals(units(CURRENCY_INITIAL_AMOUNT.subtract(CURRENCY_AMOUNT_TO_BUY)), wallet1.getCurrencyAmount(CURRENCY_SYMBOL_FROM).getAmount());
+    }
+
+    /**
+     * Test an atomic batch applies nothing when one of its operations fails.
+     */
+    @Test
+    void testBatch_Atomic() {
+        Wallet wallet1 = new Wallet(1L, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        Wallet wallet2 = new Wallet(2L, "MyWallet", Stream.of(CurrencyAmount.of(CURRENCY_SYMBOL_FROM, CURRENCY_INITIAL_AMOUNT, CURRENCY_SCALE)).collect(Collectors.toSet()));
+        this.stubWallets(wallet1, wallet2);
+        this.stubQuotes();
+        List<BatchOperationDTO> operations = this.batchOperations().subList(0, 3);
+
+        List<OperationResultDTO> results = this.service.batch(operations, BatchMode.ATOMIC);
+
+        assertEquals(Arrays.asList(OperationStatus.ABORTED, OperationStatus.ABORTED, OperationStatus.FAILED),
+                results.stream().map(OperationResultDTO::getStatus).collect(Collectors.toList()));
+        assertTrue(results.get(2).getError().contains("The amount exceeds the available"));
+        Mockito.verify(this.walletService, Mockito.never()).update(Mockito.any());
+
+        // A failed check is found before any wallet is locked
+        List<OperationResultDTO> rejected = this.service.batch(this.batchOperations(), BatchMode.ATOMIC);
+        assertEquals(OperationStatus.FAILED, rejected.get(3).getStatus());
+        assertEquals(OperationStatus.ABORTED, rejected.get(0).getStatus());
+        Mockito.verify(this.walletService, Mockito.times(1)).findAllForWrite(Mockito.anyCollection());
+    }
+
+    /**
+     * Test validate batch.
+     */
+    @Test
+    void testValidateBatch() {
+        when(this.appConfig.getWalletBatchMaxOperations()).thenReturn(3);
+
+        Exception exception1 = assertThrows(ValidationException.class, () -> this.service.batch(null, BatchMode.ATOMIC));
+        assertTrue(exception1.getMessage().contains("Operations are required"));
+
+        Exception exception2 = assertThrows(ValidationException.class, () -> this.service.batch(this.batchOperations(), BatchMode.ATOMIC));
+        assertTrue(exception2.getMessage().contains("Too many operations"));
+
+        BatchOperationDTO operation = new BatchOperationDTO();
+        operation.setWalletId(1L);
+        List<OperationResultDTO> results = this.service.batch(Collections.singletonList(operation), BatchMode.BEST_EFFORT);
+        assertEquals(OperationStatus.FAILED, results.get(0).getStatus());
+        assertTrue(results.get(0).getError().contains("Operation type is required"));
+    }
+
+    /**
+     * A buy and a transfer that fit the wallet 1 balance, a transfer that exceeds it, and a buy of an unknown currency.
+     */
+    private List<BatchOperationDTO> batchOperations() {
+        BatchOperationDTO buy = this.batchOperation(OperationType.BUY, 1L, null, CURRENCY_AMOUNT_TO_BUY);
+        BatchOperationDTO transfer = this.batchOperation(OperationType.TRANSFER, 1L, 2L, CURRENCY_AMOUNT_TO_BUY);
+        transfer.setPrice(CURRENCY_PRICE);
+        BatchOperationDTO overdraft = this.batchOperation(OperationType.TRANSFER, 1L, 2L, CURRENCY_AMOUNT_TO_BUY);
+        BatchOperationDTO unknown = this.batchOperation(OperationType.BUY, 2L, null, CURRENCY_AMOUNT_TO_BUY);
+        unknown.setCurrencyTo(CURRENCY_SYMBOL_NON_EXISTENT);
+        return Arrays.asList(buy, transfer, overdraft, unknown);
+    }
+
+    private BatchOperationDTO batchOperation(OperationType type, Long walletId, Long walletIdTo, BigDecimal amount) {
+        BatchOperationDTO operation = new BatchOperationDTO();
+        operation.setType(type);
+        operation.setWalletId(walletId);
+        operation.setWalletIdTo(walletIdTo);
+        operation.setCurrencyFrom(CURRENCY_SYMBOL_FROM);
+        operation.setCurrencyTo(CURRENCY_SYMBOL_TO);
+        operation.setAmount(amount);
+        return operation;
+    }
+
+    private void stubQuotes() {
+        when(this.appConfig.getWalletBatchMaxOperations()).thenReturn(100);
+        when(this.cryptoCurrencyService.quoteAll(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Pair<String, String>> pairs = invocation.getArgument(0);
+            Map<Pair<String, String>, Mono<Conversion>> quotes = new HashMap<>();
+            pairs.forEach(pair -> quotes.put(pair, Mono.just(new Conversion(pair.getFirst(), pair.getSecond(), CURRENCY_PRICE, ConversionPath.DIRECT, null))));
+            return quotes;
+        });
+    }
+
+    private void stubWallets(Wallet... wallets) {
+        when(this.walletService.findAllForWrite(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return Stream.of(wallets).filter(wallet -> ids.contains(wallet.getId())).collect(Collectors.toList());
+        });
+    }
+
+    private static long units(BigDecimal amount) {
+        return FixedPoint.toMinorUnits(amount, CURRENCY_SCALE);
+    }
 }
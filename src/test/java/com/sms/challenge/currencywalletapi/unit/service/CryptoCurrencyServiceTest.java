@@ -1,21 +1,34 @@
 package com.sms.challenge.currencywalletapi.unit.service;
 
+import com.sms.challenge.currencywalletapi.entity.Conversion;
+import com.sms.challenge.currencywalletapi.entity.ConversionPath;
 import com.sms.challenge.currencywalletapi.entity.CryptoCurrency;
 import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.entity.PriceSnapshot;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
 import com.sms.challenge.currencywalletapi.exception.NotFoundException;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyFetcherService;
 import com.sms.challenge.currencywalletapi.service.CryptoCurrencyService;
-import com.sms.challenge.currencywalletapi.service.CurrencyService;
+import com.sms.challenge.currencywalletapi.service.CurrencyRegistry;
+import com.sms.challenge.currencywalletapi.service.PriceBatchService;
+import com.sms.challenge.currencywalletapi.service.PriceSnapshotService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -41,10 +54,28 @@ class CryptoCurrencyServiceTest {
     CryptoCurrencyFetcherService fetcherService;
 
     /**
-     * The Currency service.
+     * The Currency registry.
      */
     @Mock
-    CurrencyService currencyService;
+    CurrencyRegistry currencyRegistry;
+
+    /**
+     * The Cache manager.
+     */
+    @Mock
+    CacheManager cacheManager;
+
+    /**
+     * The Price snapshot service.
+     */
+    @Mock
+    PriceSnapshotService priceSnapshotService;
+
+    /**
+     * The Price batch service.
+     */
+    @Mock
+    PriceBatchService priceBatchService;
 
     /**
      * The Service.
@@ -60,15 +91,17 @@ class CryptoCurrencyServiceTest {
         Currency c1 = new Currency(CRYPTO_CURRENCY_SYMBOL, true);
         Currency c2 = new Currency(NOT_CRYPTO_CURRENCY_SYMBOL_1, false);
         Currency c3 = new Currency(NOT_CRYPTO_CURRENCY_SYMBOL_2, false);
-        when(this.currencyService.findAllByCrypto()).thenReturn(Stream.of(c1).collect(Collectors.toList()));
-        when(this.currencyService.findAllByNotCrypto()).thenReturn(Stream.of(c2, c3).collect(Collectors.toList()));
+        when(this.currencyRegistry.getIndex()).thenReturn(new CurrencyIndex(Stream.of(c1, c2, c3).collect(Collectors.toList())));
         Map<String, Map<String, Number>> currencies = new HashMap<>();
         Map<String, Number> prices = new HashMap<>();
         prices.put(NOT_CRYPTO_CURRENCY_SYMBOL_1, NOT_CRYPTO_CURRENCY_PRICE_1);
         prices.put(NOT_CRYPTO_CURRENCY_SYMBOL_2, NOT_CRYPTO_CURRENCY_PRICE_2);
         currencies.put(CRYPTO_CURRENCY_SYMBOL, prices);
-        when(this.fetcherService.fetch(Mockito.anyList(), Mockito.anyList())).thenReturn(currencies);
-        when(this.fetcherService.fetch(Mockito.anyString(), Mockito.anyString())).thenReturn(prices);
+        when(this.fetcherService.fetchAsync(Mockito.any(), Mockito.anyList(), Mockito.anyList())).thenAnswer(
+                invocation -> Mono.just(PriceMatrix.from(invocation.getArgument(0), currencies)));
+        when(this.fetcherService.fetchAsync(Mockito.any(), Mockito.anyString(), Mockito.anyList())).thenAnswer(
+                invocation -> Mono.just(PriceMatrix.from(invocation.getArgument(0), currencies)));
+        when(this.priceBatchService.price(CRYPTO_CURRENCY_SYMBOL, NOT_CRYPTO_CURRENCY_SYMBOL_1)).thenReturn(Mono.just(NOT_CRYPTO_CURRENCY_PRICE_1));
     }
 
     /**
@@ -95,8 +128,7 @@ class CryptoCurrencyServiceTest {
      */
     @Test
     void testValidateFind() {
-        when(this.fetcherService.fetch(Mockito.anyList(), Mockito.anyList())).thenThrow(new NotFoundException(
-                "Currency symbol not found"));
+        Mockito.doReturn(Mono.error(new NotFoundException("Currency symbol not found"))).when(this.fetcherService).fetchAsync(Mockito.any(), Mockito.anyList(), Mockito.anyList());
         Exception exception = assertThrows(NotFoundException.class, () -> this.service.find(CRYPTO_CURRENCY_SYMBOL));
         assertTrue(exception.getMessage().contains("Currency symbol not found"));
     }
@@ -111,13 +143,79 @@ class CryptoCurrencyServiceTest {
         assertEquals(NOT_CRYPTO_CURRENCY_PRICE_1, value);
     }
 
+    /**
+     * Test find all async.
+     */
+    @Test
+    void testFindAllAsync() {
+        StepVerifier.create(this.service.findAllAsync())
+                .assertNext(priced -> {
+                    assertFalse(priced.isStale());
+                    assertEquals(CRYPTO_CURRENCY_SYMBOL, priced.getValue().get(0).getCurrency());
+                })
+                .verifyComplete();
+    }
+
+    /**
+     * Test the last known good snapshot is served when the upstream API is unavailable.
+     */
+    @Test
+    void testStaleFallback() {
+        CurrencyIndex index = this.currencyRegistry.getIndex();
+        PriceMatrix matrix = PriceMatrix.builder(index).set(
+                index.ordinal(CRYPTO_CURRENCY_SYMBOL),
+                index.ordinal(NOT_CRYPTO_CURRENCY_SYMBOL_1),
+                NOT_CRYPTO_CURRENCY_PRICE_1
+        ).build();
+        Instant refreshedAt = Instant.now().minusSeconds(60);
+        when(this.priceSnapshotService.current()).thenReturn(Optional.empty());
+        when(this.priceSnapshotService.latest()).thenReturn(Optional.of(new PriceSnapshot(refreshedAt, matrix)));
+        Mockito.doReturn(Mono.error(new ExternalServiceException("Price service unavailable"))).when(this.fetcherService).fetchAsync(Mockito.any(), Mockito.anyList(), Mockito.anyList());
+
+        StepVerifier.create(this.service.findAsync(CRYPTO_CURRENCY_SYMBOL))
+                .assertNext(priced -> {
+                    assertTrue(priced.isStale());
+                    assertEquals(refreshedAt, priced.getAsOf());
+                    assertEquals(CRYPTO_CURRENCY_SYMBOL, priced.getValue().getCurrency());
+                })
+                .verifyComplete();
+
+        when(this.priceSnapshotService.latest()).thenReturn(Optional.empty());
+        assertThrows(ExternalServiceException.class, () -> this.service.findAll());
+    }
+
+    /**
+     * Test reads are served from a fresh snapshot.
+     */
+    @Test
+    void testSnapshotReads() {
+        CurrencyIndex index = new CurrencyIndex(Stream.of(
+                new Currency(CRYPTO_CURRENCY_SYMBOL, true),
+                new Currency(NOT_CRYPTO_CURRENCY_SYMBOL_1, false)
+        ).collect(Collectors.toList()));
+        PriceMatrix matrix = PriceMatrix.builder(index).set(
+                index.ordinal(CRYPTO_CURRENCY_SYMBOL),
+                index.ordinal(NOT_CRYPTO_CURRENCY_SYMBOL_1),
+                NOT_CRYPTO_CURRENCY_PRICE_1
+        ).build();
+        PriceSnapshot snapshot = new PriceSnapshot(Instant.now(), matrix);
+        when(this.priceSnapshotService.current()).thenReturn(Optional.of(snapshot));
+
+        assertEquals(snapshot.getCryptoCurrencies(), this.service.findAll());
+        assertEquals(CRYPTO_CURRENCY_SYMBOL, this.service.find("btc").getCurrency());
+        assertEquals(NOT_CRYPTO_CURRENCY_PRICE_1, this.service.convert(CRYPTO_CURRENCY_SYMBOL, NOT_CRYPTO_CURRENCY_SYMBOL_1));
+        Conversion inverse = this.service.quote(NOT_CRYPTO_CURRENCY_SYMBOL_1, CRYPTO_CURRENCY_SYMBOL);
+        assertEquals(ConversionPath.INVERSE, inverse.getPath());
+        assertEquals(1 / NOT_CRYPTO_CURRENCY_PRICE_1.doubleValue(), inverse.getRate(), 1e-12);
+        Mockito.verifyNoInteractions(this.fetcherService, this.priceBatchService);
+    }
+
     /**
      * Test validate convert.
      */
     @Test
     void testValidateConvert() {
-        when(this.fetcherService.fetch(Mockito.anyString(), Mockito.anyString())).thenThrow(new NotFoundException(
-                "Currency symbol not found"));
+        when(this.priceBatchService.price(CRYPTO_CURRENCY_SYMBOL, NOT_CRYPTO_CURRENCY_SYMBOL_1)).thenReturn(Mono.error(new NotFoundException("Currency symbol not found")));
         Exception exception = assertThrows(NotFoundException.class, () -> this.service.convert("BTC", "USD"));
         assertTrue(exception.getMessage().contains("Currency symbol not found"));
     }
@@ -0,0 +1,92 @@
+package com.sms.challenge.currencywalletapi.unit.service;
+
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.event.CurrenciesChangedEvent;
+import com.sms.challenge.currencywalletapi.service.CurrencyRegistry;
+import com.sms.challenge.currencywalletapi.service.CurrencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * The type Currency registry test.
+ */
+@SpringBootTest
+class CurrencyRegistryTest {
+
+    private static final String CRYPTO_CURRENCY_SYMBOL = "BTC";
+    private static final String NOT_CRYPTO_CURRENCY_SYMBOL = "USD";
+    private static final String NEW_CURRENCY_SYMBOL = "EUR";
+
+    /**
+     * The Currency service.
+     */
+    @Mock
+    CurrencyService currencyService;
+
+    /**
+     * The Registry.
+     */
+    @InjectMocks
+    CurrencyRegistry registry;
+
+    private final List<Currency> currencies = new ArrayList<>();
+
+    /**
+     * Sets mock output.
+     */
+    @BeforeEach
+    void setMockOutput() {
+        this.currencies.clear();
+        this.currencies.add(this.currency(2L, NOT_CRYPTO_CURRENCY_SYMBOL, false));
+        this.currencies.add(this.currency(1L, CRYPTO_CURRENCY_SYMBOL, true));
+        when(this.currencyService.findAll()).thenAnswer(invocation -> new ArrayList<>(this.currencies));
+    }
+
+    /**
+     * Test the index is loaded once and then served from memory.
+     */
+    @Test
+    void testGetIndex() {
+        CurrencyIndex index = this.registry.getIndex();
+        assertSame(index, this.registry.getIndex());
+        assertTrue(this.registry.contains(CRYPTO_CURRENCY_SYMBOL));
+        assertFalse(this.registry.contains(NEW_CURRENCY_SYMBOL));
+        assertFalse(this.registry.contains(null));
+        int ordinal = index.ordinal(CRYPTO_CURRENCY_SYMBOL);
+        assertEquals(0, ordinal);
+        assertEquals(1L, index.id(ordinal));
+        assertTrue(index.isCrypto(ordinal));
+        assertFalse(index.isCrypto(index.ordinal(NOT_CRYPTO_CURRENCY_SYMBOL)));
+        Mockito.verify(this.currencyService, Mockito.times(1)).findAll();
+    }
+
+    /**
+     * Test a change event swaps the index.
+     */
+    @Test
+    void testOnCurrenciesChanged() {
+        CurrencyIndex before = this.registry.getIndex();
+        this.currencies.add(this.currency(3L, NEW_CURRENCY_SYMBOL, false));
+        this.registry.onCurrenciesChanged(new CurrenciesChangedEvent());
+        assertNotSame(before, this.registry.getIndex());
+        assertTrue(this.registry.contains(NEW_CURRENCY_SYMBOL));
+        assertEquals(-1, before.ordinal(NEW_CURRENCY_SYMBOL));
+    }
+
+    private Currency currency(Long id, String symbol, boolean crypto) {
+        Currency currency = new Currency(symbol, crypto);
+        currency.setId(id);
+        return currency;
+    }
+}
@@ -0,0 +1,200 @@
+package com.sms.challenge.currencywalletapi.unit.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.domain.OperationDTO;
+import com.sms.challenge.currencywalletapi.domain.OperationStatus;
+import com.sms.challenge.currencywalletapi.domain.OperationType;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.exception.TooManyRequestsException;
+import com.sms.challenge.currencywalletapi.exception.ValidationException;
+import com.sms.challenge.currencywalletapi.service.CryptoCurrencyOperationService;
+import com.sms.challenge.currencywalletapi.service.OperationQueueService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * The type Operation queue service test.
+ */
+@SpringBootTest
+class OperationQueueServiceTest {
+
+    private static final long WALLET_ID_FROM = 1L;
+    private static final long WALLET_ID_TO = 2L;
+    private static final String CURRENCY_SYMBOL_FROM = "BTC";
+    private static final String CURRENCY_SYMBOL_TO = "USD";
+    private static final BigDecimal CURRENCY_AMOUNT = new BigDecimal("1.2");
+    private static final long WAIT_MS = 5000L;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * The Operation service.
+     */
+    @Mock
+    CryptoCurrencyOperationService operationService;
+
+    /**
+     * The App config.
+     */
+    @Mock
+    AppConfig appConfig;
+
+    /**
+     * The Service.
+     */
+    @InjectMocks
+    OperationQueueService service;
+
+    /**
+     * Sets mock output.
+     */
+    @BeforeEach
+    void setMockOutput() {
+        when(this.appConfig.getOperationQueuePartitions()).thenReturn(1);
+        when(this.appConfig.getOperationQueueCapacity()).thenReturn(1);
+        when(this.appConfig.getOperationPollMaxWaitMs()).thenReturn(WAIT_MS);
+        when(this.appConfig.getOperationRetentionMs()).thenReturn(0L);
+        this.service.init();
+    }
+
+    /**
+     * Tear down.
+     */
+    @AfterEach
+    void tearDown() {
+        this.release.countDown();
+        this.service.destroy();
+    }
+
+    /**
+     * Test a buy is pending when submitted, and applied in the background.
+     */
+    @Test
+    void testSubmitBuy_Applied() {
+        OperationDTO operation = this.submitBuy();
+        assertNotNull(operation.getId());
+        assertEquals(OperationType.BUY, operation.getType());
+        assertEquals(WALLET_ID_FROM, operation.getWalletId());
+        assertEquals(OperationStatus.PENDING, operation.getStatus());
+
+        OperationDTO result = this.service.await(operation.getId(), WAIT_MS).block();
+        assertEquals(OperationStatus.APPLIED, result.getStatus());
+        assertNull(result.getError());
+        assertEquals(OperationStatus.APPLIED, this.service.find(operation.getId()).getStatus());
+        Mockito.verify(this.operationService).buy(WALLET_ID_FROM, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT, null, null);
+    }
+
+    /**
+     * Test a transfer failing in the background is reported in its status.
+     */
+    @Test
+    void testSubmitTransfer_Failed() {
+        Mockito.doThrow(new ExternalServiceException("Prices unavailable")).when(this.operationService).transfer(
+                WALLET_ID_FROM, WALLET_ID_TO, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT, null, null);
+        OperationDTO operation = this.service.submitTransfer(
+                WALLET_ID_FROM, WALLET_ID_TO, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT, null, null);
+        assertEquals(OperationType.TRANSFER, operation.getType());
+
+        OperationDTO result = this.service.await(operation.getId(), WAIT_MS).block();
+        assertEquals(OperationStatus.FAILED, result.getStatus());
+        assertEquals("Prices unavailable", result.getError());
+    }
+
+    /**
+     * Test an operation ending in an error is failed, and the partition keeps running.
+     */
+    @Test
+    void testSubmitBuy_Error() {
+        Mockito.doThrow(new StackOverflowError()).doNothing().when(this.operationService).buy(
+                WALLET_ID_FROM, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT, null, null);
+        OperationDTO operation = this.submitBuy();
+
+        OperationDTO result = this.service.await(operation.getId(), WAIT_MS).block();
+        assertEquals(OperationStatus.FAILED, result.getStatus());
+        assertEquals("StackOverflowError", result.getError());
+        assertEquals(OperationStatus.APPLIED, this.service.await(this.submitBuy().getId(), WAIT_MS).block().getStatus());
+    }
+
+    /**
+     * Test an invalid operation is rejected when submitted, and not queued.
+     */
+    @Test
+    void testSubmit_Validate() {
+        Mockito.doThrow(new ValidationException("Amount must be positive")).when(this.operationService).validateBuy(
+                WALLET_ID_FROM, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT);
+        assertThrows(ValidationException.class, this::submitBuy);
+        Mockito.verify(this.operationService, Mockito.never()).buy(
+                Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * Test operations are rejected once the queue of their partition is full.
+     */
+    @Test
+    void testSubmit_TooManyRequests() {
+        this.blockBuys();
+        // The first one is running and the second one fills the queue
+        OperationDTO running = this.submitBuy();
+        OperationDTO queued = this.submitBuy();
+        assertThrows(TooManyRequestsException.class, this::submitBuy);
+
+        this.release.countDown();
+        assertEquals(OperationStatus.APPLIED, this.service.await(running.getId(), WAIT_MS).block().getStatus());
+        assertEquals(OperationStatus.APPLIED, this.service.await(queued.getId(), WAIT_MS).block().getStatus());
+        assertEquals(OperationStatus.APPLIED, this.service.await(this.submitBuy().getId(), WAIT_MS).block().getStatus());
+    }
+
+    /**
+     * Test a poll gives up once the wait is over, without cancelling the operation.
+     */
+    @Test
+    void testAwait_Pending() {
+        this.blockBuys();
+        OperationDTO operation = this.submitBuy();
+
+        assertEquals(OperationStatus.PENDING, this.service.await(operation.getId(), 50L).block().getStatus());
+        assertEquals(OperationStatus.PENDING, this.service.await(operation.getId(), 0L).block().getStatus());
+
+        this.release.countDown();
+        assertEquals(OperationStatus.APPLIED, this.service.await(operation.getId(), WAIT_MS).block().getStatus());
+    }
+
+    /**
+     * Test unknown and evicted operations are not found.
+     */
+    @Test
+    void testFind_NotFound() {
+        assertThrows(NotFoundException.class, () -> this.service.find("non-existent"));
+        assertThrows(NotFoundException.class, () -> this.service.await("non-existent", WAIT_MS));
+        assertThrows(ValidationException.class, () -> this.service.find(null));
+
+        OperationDTO operation = this.submitBuy();
+        this.service.await(operation.getId(), WAIT_MS).block();
+        this.service.evict();
+        assertThrows(NotFoundException.class, () -> this.service.find(operation.getId()));
+    }
+
+    private OperationDTO submitBuy() {
+        return this.service.submitBuy(WALLET_ID_FROM, CURRENCY_SYMBOL_FROM, CURRENCY_SYMBOL_TO, CURRENCY_AMOUNT, null, null);
+    }
+
+    private void blockBuys() {
+        Mockito.doAnswer(invocation -> {
+            this.release.await();
+            return null;
+        }).when(this.operationService).buy(
+                Mockito.anyLong(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+}
@@ -0,0 +1,113 @@
+package com.sms.challenge.currencywalletapi.unit.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.service.CryptoCurrencyFetcherService;
+import com.sms.challenge.currencywalletapi.service.PriceBatchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The type Price batch service test.
+ */
+@SpringBootTest
+class PriceBatchServiceTest {
+
+    /**
+     * The App config.
+     */
+    @Mock
+    AppConfig appConfig;
+
+    /**
+     * The Fetcher service.
+     */
+    @Mock
+    CryptoCurrencyFetcherService fetcherService;
+
+    /**
+     * The Service.
+     */
+    @InjectMocks
+    PriceBatchService service;
+
+    /**
+     * Sets mock output.
+     */
+    @BeforeEach
+    void setMockOutput() {
+        when(this.appConfig.getPriceBatchWindowMs()).thenReturn(50L);
+        when(this.appConfig.getPriceBatchMaxSize()).thenReturn(3);
+        Map<String, Map<String, Number>> prices = new HashMap<>();
+        Map<String, Number> btc = new HashMap<>();
+        btc.put("USD", 36000.0);
+        btc.put("EUR", 30000.0);
+        Map<String, Number> eth = new HashMap<>();
+        eth.put("USD", 1200.0);
+        prices.put("BTC", btc);
+        prices.put("ETH", eth);
+        when(this.fetcherService.fetchAsync(Mockito.any(), Mockito.anyList(), Mockito.anyList())).thenAnswer(
+                invocation -> Mono.just(PriceMatrix.from(invocation.getArgument(0), prices)));
+        when(this.fetcherService.fetchAsync(Mockito.any(), Mockito.anyString(), Mockito.anyList())).thenAnswer(
+                invocation -> Mono.just(PriceMatrix.builder(invocation.getArgument(0, CurrencyIndex.class)).build()));
+    }
+
+    /**
+     * Test a full batch is answered by a single multi call.
+     */
+    @Test
+    void testPrice_FullBatch() {
+        Mono<Double> first = this.service.price("BTC", "USD").cache();
+        Mono<Double> second = this.service.price("BTC", "EUR").cache();
+        Mono<Double> third = this.service.price("ETH", "USD").cache();
+        first.subscribe();
+        second.subscribe();
+        third.subscribe();
+
+        assertEquals(36000.0, first.block());
+        assertEquals(30000.0, second.block());
+        assertEquals(1200.0, third.block());
+        verify(this.fetcherService, times(1)).fetchAsync(Mockito.any(), eq(Arrays.asList("BTC", "ETH")), eq(Arrays.asList("USD", "EUR")));
+        verify(this.fetcherService, never()).fetchAsync(Mockito.any(), Mockito.anyString(), Mockito.anyList());
+    }
+
+    /**
+     * Test a partial batch is flushed when the window expires, and missing pairs are retried on their own.
+     */
+    @Test
+    void testPrice_WindowExpired() {
+        Mono<Double> known = this.service.price("BTC", "USD").cache();
+        Mono<Double> unknown = this.service.price("ETH", "EUR").cache();
+        known.subscribe();
+        unknown.subscribe();
+
+        assertEquals(36000.0, known.block());
+        assertNull(unknown.block());
+        verify(this.fetcherService, times(1)).fetchAsync(Mockito.any(), Mockito.anyList(), Mockito.anyList());
+        verify(this.fetcherService, times(1)).fetchAsync(Mockito.any(), eq("ETH"), eq(Arrays.asList("EUR")));
+    }
+
+    /**
+     * Test batching disabled.
+     */
+    @Test
+    void testPrice_Disabled() {
+        when(this.appConfig.getPriceBatchWindowMs()).thenReturn(0L);
+
+        assertNull(this.service.price("BTC", "USD").block());
+        verify(this.fetcherService, never()).fetchAsync(Mockito.any(), Mockito.anyList(), Mockito.anyList());
+    }
+}
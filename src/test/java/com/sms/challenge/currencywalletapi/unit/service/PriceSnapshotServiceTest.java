@@ -0,0 +1,120 @@
+package com.sms.challenge.currencywalletapi.unit.service;
+
+import com.sms.challenge.currencywalletapi.config.AppConfig;
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.service.CryptoCurrencyFetcherService;
+import com.sms.challenge.currencywalletapi.service.CurrencyRegistry;
+import com.sms.challenge.currencywalletapi.service.PriceSnapshotService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * The type Price snapshot service test.
+ */
+@SpringBootTest
+class PriceSnapshotServiceTest {
+
+    private static final String CRYPTO_CURRENCY_SYMBOL = "BTC";
+    private static final String NOT_CRYPTO_CURRENCY_SYMBOL = "USD";
+    private static final Double NOT_CRYPTO_CURRENCY_PRICE = 65.32;
+    private static final Instant NOW = Instant.parse("2021-06-01T10:00:00Z");
+
+    /**
+     * The App config.
+     */
+    @Mock
+    AppConfig appConfig;
+
+    /**
+     * The Currency registry.
+     */
+    @Mock
+    CurrencyRegistry currencyRegistry;
+
+    /**
+     * The Fetcher service.
+     */
+    @Mock
+    CryptoCurrencyFetcherService fetcherService;
+
+    /**
+     * The Clock.
+     */
+    @Mock
+    Clock clock;
+
+    /**
+     * The Service.
+     */
+    @InjectMocks
+    PriceSnapshotService service;
+
+    /**
+     * Sets mock output.
+     */
+    @BeforeEach
+    void setMockOutput() {
+        when(this.appConfig.getPriceMaxStalenessMs()).thenReturn(10000L);
+        when(this.currencyRegistry.getIndex()).thenReturn(new CurrencyIndex(Stream.of(
+                new Currency(CRYPTO_CURRENCY_SYMBOL, true),
+                new Currency(NOT_CRYPTO_CURRENCY_SYMBOL, false)
+        ).collect(Collectors.toList())));
+        Map<String, Number> prices = new HashMap<>();
+        prices.put(NOT_CRYPTO_CURRENCY_SYMBOL, NOT_CRYPTO_CURRENCY_PRICE);
+        Map<String, Map<String, Number>> data = new HashMap<>();
+        data.put(CRYPTO_CURRENCY_SYMBOL, prices);
+        when(this.fetcherService.fetch(Mockito.any(), Mockito.anyList(), Mockito.anyList())).thenAnswer(
+                invocation -> PriceMatrix.from(invocation.getArgument(0), data));
+        when(this.clock.instant()).thenReturn(NOW);
+    }
+
+    /**
+     * Test refresh publishes a snapshot.
+     */
+    @Test
+    void testRefresh() {
+        assertFalse(this.service.current().isPresent());
+        this.service.refresh();
+        assertEquals(
+                NOT_CRYPTO_CURRENCY_PRICE,
+                this.service.current().get().price(CRYPTO_CURRENCY_SYMBOL, NOT_CRYPTO_CURRENCY_SYMBOL)
+        );
+    }
+
+    /**
+     * Test a failed refresh keeps the previous snapshot until it is stale.
+     */
+    @Test
+    void testRefresh_FailureKeepsSnapshotUntilStale() {
+        this.service.refresh();
+        Mockito.doThrow(new ExternalServiceException("down")).when(this.fetcherService).fetch(
+                Mockito.any(),
+                Mockito.anyList(),
+                Mockito.anyList()
+        );
+
+        when(this.clock.instant()).thenReturn(NOW.plusMillis(5000));
+        this.service.refresh();
+        assertTrue(this.service.current().isPresent());
+
+        when(this.clock.instant()).thenReturn(NOW.plusMillis(10001));
+        assertFalse(this.service.current().isPresent());
+    }
+}
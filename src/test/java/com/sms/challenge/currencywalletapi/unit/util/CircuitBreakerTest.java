@@ -0,0 +1,83 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.sms.challenge.currencywalletapi.util.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Circuit breaker test.
+ */
+class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(900);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker(4, 4, 0.5, 0.75, 800, 5000, this.now::get);
+    }
+
+    /**
+     * Test the circuit opens on error rate and a single probe closes it.
+     */
+    @Test
+    void testOpenOnErrorRate() {
+        CircuitBreaker breaker = this.breaker();
+        breaker.onSuccess(FAST);
+        breaker.onError(FAST);
+        breaker.onSuccess(FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onError(FAST);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.getRejected());
+
+        breaker.onSuccess(FAST);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    /**
+     * Test the circuit opens on slow calls and a failed probe reopens it.
+     */
+    @Test
+    void testOpenOnLatency() {
+        CircuitBreaker breaker = this.breaker();
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(SLOW);
+        breaker.onSuccess(FAST);
+        breaker.onSuccess(SLOW);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(SLOW);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    /**
+     * Test a cancelled probe lets the next call probe.
+     */
+    @Test
+    void testCancelledProbe() {
+        CircuitBreaker breaker = this.breaker();
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+        this.now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertTrue(breaker.tryAcquire());
+        breaker.onCancel();
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,72 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.sms.challenge.currencywalletapi.entity.Conversion;
+import com.sms.challenge.currencywalletapi.entity.ConversionPath;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.util.ConversionEngine;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Conversion engine test.
+ */
+class ConversionEngineTest {
+
+    private static final CurrencyIndex INDEX = CurrencyIndex.of("BTC", "ETH", "USD", "EUR", "ARS", "XYZ");
+
+    private static final PriceMatrix MATRIX = PriceMatrix.builder(INDEX)
+            .set(INDEX.ordinal("BTC"), INDEX.ordinal("USD"), 36000.0)
+            .set(INDEX.ordinal("BTC"), INDEX.ordinal("EUR"), 30000.0)
+            .set(INDEX.ordinal("BTC"), INDEX.ordinal("ARS"), 3600000.0)
+            .set(INDEX.ordinal("ETH"), INDEX.ordinal("USD"), 1200.0)
+            .build();
+
+    /**
+     * Test identity and direct paths.
+     */
+    @Test
+    void testDirect() {
+        assertEquals(ConversionPath.IDENTITY, ConversionEngine.resolve(MATRIX, "USD", "USD").getPath());
+        Conversion conversion = ConversionEngine.resolve(MATRIX, "BTC", "USD");
+        assertEquals(ConversionPath.DIRECT, conversion.getPath());
+        assertEquals(36000.0, conversion.getRate());
+        assertNull(conversion.getPivot());
+    }
+
+    /**
+     * Test inverse path.
+     */
+    @Test
+    void testInverse() {
+        Conversion conversion = ConversionEngine.resolve(MATRIX, "USD", "ETH");
+        assertEquals(ConversionPath.INVERSE, conversion.getPath());
+        assertEquals(1 / 1200.0, conversion.getRate(), 1e-12);
+    }
+
+    /**
+     * Test pivot path.
+     */
+    @Test
+    void testPivot() {
+        Conversion crypto = ConversionEngine.resolve(MATRIX, "BTC", "ETH");
+        assertEquals(ConversionPath.PIVOT, crypto.getPath());
+        assertEquals("USD", crypto.getPivot());
+        assertEquals(30.0, crypto.getRate(), 1e-9);
+
+        Conversion fiat = ConversionEngine.resolve(MATRIX, "EUR", "ARS");
+        assertEquals(ConversionPath.PIVOT, fiat.getPath());
+        assertEquals("BTC", fiat.getPivot());
+        assertEquals(120.0, fiat.getRate(), 1e-9);
+    }
+
+    /**
+     * Test pairs without a path.
+     */
+    @Test
+    void testNoPath() {
+        assertNull(ConversionEngine.resolve(MATRIX, "BTC", "XYZ"));
+        assertNull(ConversionEngine.resolve(MATRIX, "BTC", "DOGE"));
+    }
+}
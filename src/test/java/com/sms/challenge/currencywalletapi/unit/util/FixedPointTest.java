@@ -0,0 +1,107 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.sms.challenge.currencywalletapi.util.FixedPoint;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Fixed point test.
+ */
+class FixedPointTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Test amounts are converted to minor units exactly, or rejected.
+     */
+    @Test
+    void testToMinorUnits() {
+        assertEquals(250_000_000L, FixedPoint.toMinorUnits(new BigDecimal("2.5"), 8));
+        assertEquals(1L, FixedPoint.toMinorUnits(new BigDecimal("0.00000001"), 8));
+        assertEquals(1_000L, FixedPoint.toMinorUnits(new BigDecimal("1E+1"), 2));
+        assertEquals(new BigDecimal("2.50000000"), FixedPoint.toDecimal(250_000_000L, 8));
+
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toMinorUnits(new BigDecimal("0.000000001"), 8));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toMinorUnits(new BigDecimal("100000000000"), 8));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toMinorUnits(new BigDecimal("1E+1000000000"), 8));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toMinorUnits(BigDecimal.ONE, FixedPoint.MAX_SCALE + 1));
+    }
+
+    /**
+     * Test minor units are rescaled without losing precision.
+     */
+    @Test
+    void testRescale() {
+        assertEquals(250_000_000L, FixedPoint.rescale(250L, 2, 8));
+        assertEquals(250L, FixedPoint.rescale(250_000_000L, 8, 2));
+        assertEquals(7L, FixedPoint.rescale(7L, 8, 8));
+
+        assertThrows(ArithmeticException.class, () -> FixedPoint.rescale(250_000_001L, 8, 2));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.rescale(Long.MAX_VALUE, 2, 8));
+    }
+
+    /**
+     * Test conversions at a price round to the nearest minor unit, and fail instead of overflowing.
+     */
+    @Test
+    void testConvert() {
+        // 1.2 BTC at 36000 USD
+        assertEquals(4_320_000L, FixedPoint.convert(120_000_000L, 8, 36000.0, 2));
+        // 0.00000001 BTC at 36000.004 USD is 0.00036000004 USD, less than a cent
+        assertEquals(0L, FixedPoint.convert(1L, 8, 36000.004, 2));
+        // 0.01 USD at 0.000027 BTC
+        assertEquals(27L, FixedPoint.convert(1L, 2, 0.000027, 8));
+        // Half even, so 0.005 and 0.015 round to 0.00 and 0.02
+        assertEquals(0L, FixedPoint.convert(5L, 3, 1.0, 2));
+        assertEquals(2L, FixedPoint.convert(15L, 3, 1.0, 2));
+        // Exact past the 2^53 minor units a double holds
+        assertEquals(9_007_199_254_740_993L, FixedPoint.convert(9_007_199_254_740_993L, 8, 1.0, 8));
+        assertEquals(27_021_597_764_222_979L, FixedPoint.convert(9_007_199_254_740_993L, 8, 3.0, 8));
+
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convert(Long.MAX_VALUE, 8, 2.0, 8));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convert(1L, 8, Double.NaN, 8));
+        assertThrows(ArithmeticException.class, () -> FixedPoint.convert(1L, 8, Double.POSITIVE_INFINITY, 8));
+    }
+
+    /**
+     * Test amounts are written as plain decimals and read without going through a double.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testJson() throws Exception {
+        Amount amount = new Amount();
+        amount.amount = new BigDecimal("2.50000000");
+        assertEquals("{\"amount\":2.5}", this.mapper.writeValueAsString(amount));
+        amount.amount = new BigDecimal("1E+3");
+        assertEquals("{\"amount\":1000}", this.mapper.writeValueAsString(amount));
+
+        assertEquals(new BigDecimal("0.10000001"), this.mapper.readValue("{\"amount\":0.10000001}", Amount.class).amount);
+        assertEquals(new BigDecimal("12345678901.12345678"), this.mapper.readValue("{\"amount\":\"12345678901.12345678\"}", Amount.class).amount);
+
+        assertThrows(JsonMappingException.class, () -> this.mapper.readValue("{\"amount\":1e1000000000}", Amount.class));
+        assertThrows(JsonMappingException.class, () -> this.mapper.readValue("{\"amount\":\"1e-1000000000\"}", Amount.class));
+        assertThrows(JsonMappingException.class, () -> this.mapper.readValue("{\"amount\":\"ten\"}", Amount.class));
+        assertThrows(JsonMappingException.class, () -> this.mapper.readValue("{\"amount\":true}", Amount.class));
+    }
+
+    /**
+     * The type Amount.
+     */
+    static class Amount {
+
+        /**
+         * The Amount.
+         */
+        @JsonSerialize(using = FixedPoint.Serializer.class)
+        @JsonDeserialize(using = FixedPoint.Deserializer.class)
+        public BigDecimal amount;
+    }
+}
@@ -0,0 +1,27 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.sms.challenge.currencywalletapi.util.LatencyWindow;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The type Latency window test.
+ */
+class LatencyWindowTest {
+
+    /**
+     * Test percentile over the last samples.
+     */
+    @Test
+    void testPercentile() {
+        LatencyWindow window = new LatencyWindow(10);
+        assertEquals(-1, window.percentile(0.95));
+        for (long i = 1; i <= 20; i++) {
+            window.record(i);
+        }
+        assertEquals(11, window.percentile(0.0));
+        assertEquals(15, window.percentile(0.5));
+        assertEquals(20, window.percentile(0.95));
+    }
+}
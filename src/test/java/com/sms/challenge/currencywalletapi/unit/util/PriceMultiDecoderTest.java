@@ -0,0 +1,103 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.sms.challenge.currencywalletapi.entity.Currency;
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.exception.ExternalServiceException;
+import com.sms.challenge.currencywalletapi.exception.NotFoundException;
+import com.sms.challenge.currencywalletapi.util.PriceMultiDecoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Price multi decoder test.
+ */
+class PriceMultiDecoderTest {
+
+    private static final CurrencyIndex INDEX = new CurrencyIndex(Stream.of(
+            new Currency("BTC", true),
+            new Currency("ETH", true),
+            new Currency("USD", false),
+            new Currency("EUR", false)
+    ).collect(Collectors.toList()));
+
+    private final PriceMultiDecoder decoder = new PriceMultiDecoder();
+
+    private static InputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test decode pricemulti.
+     */
+    @Test
+    void testDecode() {
+        PriceMatrix matrix = this.decoder.decode(
+                body("{\"BTC\":{\"USD\":36000.5,\"EUR\":30000,\"XYZ\":1},\"ETH\":{\"USD\":2500.25},\"DOGE\":{\"USD\":0.3}}"),
+                INDEX
+        );
+        assertEquals(36000.5, matrix.rate("BTC", "USD"));
+        assertEquals(30000.0, matrix.rate("BTC", "EUR"));
+        assertEquals(2500.25, matrix.rate("ETH", "USD"));
+        assertTrue(Double.isNaN(matrix.rate("ETH", "EUR")));
+    }
+
+    /**
+     * Test decoded values match the JDK parser, on and off the fast path.
+     */
+    @Test
+    void testDecode_Precision() {
+        String[] values = {"0.1", "36150.42", "0.00002345", "-12.5", "1234567.891234", "142.85714285714286", "1.5e-7", "7", "0.000000000000000000000001"};
+        for (String value : values) {
+            PriceMatrix matrix = this.decoder.decode(body("{\"USD\":" + value + "}"), INDEX, "BTC");
+            assertEquals(Double.parseDouble(value), matrix.rate("BTC", "USD"), value);
+        }
+    }
+
+    /**
+     * Test decode single price.
+     */
+    @Test
+    void testDecode_SinglePrice() {
+        PriceMatrix matrix = this.decoder.decode(body("{\"USD\":36000.5,\"EUR\":30000}"), INDEX, "BTC");
+        assertEquals(36000.5, matrix.rate("BTC", "USD"));
+        assertEquals(30000.0, matrix.rate("BTC", "EUR"));
+    }
+
+    /**
+     * Test decode error envelope of a missing pair.
+     */
+    @Test
+    void testDecode_ErrorNotFound() {
+        InputStream body = body("{\"Response\":\"Error\",\"Message\":\"cccagg_or_exchange market does not exist for this coin pair (XYZ-USD)\","
+                + "\"HasWarning\":false,\"Type\":2,\"RateLimit\":{},\"Data\":{},\"Cooldown\":0}");
+        Exception exception = assertThrows(NotFoundException.class, () -> this.decoder.decode(body, INDEX));
+        assertTrue(exception.getMessage().contains("Currency symbol not found"));
+    }
+
+    /**
+     * Test decode error envelope.
+     */
+    @Test
+    void testDecode_Error() {
+        InputStream body = body("{\"Response\":\"Error\",\"Message\":\"You are over your rate limit please upgrade your account!\"}");
+        Exception exception = assertThrows(ExternalServiceException.class, () -> this.decoder.decode(body, INDEX));
+        assertTrue(exception.getMessage().contains("rate limit"));
+    }
+
+    /**
+     * Test decode invalid body.
+     */
+    @Test
+    void testDecode_Invalid() {
+        assertThrows(ExternalServiceException.class, () -> this.decoder.decode(body("[1,2]"), INDEX));
+        assertThrows(ExternalServiceException.class, () -> this.decoder.decode(body("{\"BTC\":{\"USD\":"), INDEX));
+    }
+}
@@ -0,0 +1,64 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.sms.challenge.currencywalletapi.entity.CurrencyIndex;
+import com.sms.challenge.currencywalletapi.entity.PriceMatrix;
+import com.sms.challenge.currencywalletapi.util.PriceTape;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Price tape test.
+ */
+class PriceTapeTest {
+
+    /**
+     * Test records appended across writers are read back in order, ignoring a truncated tail.
+     *
+     * @param directory the directory
+     * @throws IOException the io exception
+     */
+    @Test
+    void testAppendAndRead(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("tape.bin");
+        CurrencyIndex index = CurrencyIndex.of("BTC", "ETH", "USD");
+        PriceMatrix matrix = PriceMatrix.builder(index)
+                .set(index.ordinal("BTC"), index.ordinal("USD"), 36000.0)
+                .build();
+        try (PriceTape.Writer writer = new PriceTape.Writer(path)) {
+            writer.append(PriceTape.Record.ok(1000L, 250, false, Arrays.asList("BTC", "ETH"), Collections.singletonList("USD"), matrix));
+        }
+        try (PriceTape.Writer writer = new PriceTape.Writer(path)) {
+            writer.append(PriceTape.Record.failed(2000L, 900, true, Collections.singletonList("XYZ"), Collections.singletonList("USD"),
+                    PriceTape.Outcome.NOT_FOUND, "Currency symbol not found"));
+        }
+        Files.write(path, new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        List<PriceTape.Record> records;
+        try (InputStream input = Files.newInputStream(path)) {
+            records = PriceTape.read(input);
+        }
+
+        assertEquals(2, records.size());
+        PriceTape.Record ok = records.get(0);
+        assertEquals(1000L, ok.getTimestamp());
+        assertEquals(250, ok.getLatencyMicros());
+        assertEquals(36000.0, ok.rate("BTC", "USD"));
+        assertTrue(Double.isNaN(ok.rate("ETH", "USD")));
+        assertEquals(36000.0, ok.toMatrix(index).rate("BTC", "USD"));
+        PriceTape.Record notFound = records.get(1);
+        assertTrue(notFound.isSingle());
+        assertEquals(PriceTape.Outcome.NOT_FOUND, notFound.getOutcome());
+        assertEquals("Currency symbol not found", notFound.getMessage());
+    }
+}
@@ -0,0 +1,59 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.sms.challenge.currencywalletapi.util.SingleFlight;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The type Single flight test.
+ */
+class SingleFlightTest {
+
+    /**
+     * Test concurrent identical calls share one load.
+     */
+    @Test
+    void testExecute_Coalesced() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        MonoProcessor<Integer> upstream = MonoProcessor.create();
+
+        Mono<Integer> first = singleFlight.execute("BTC|USD", () -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        Mono<Integer> second = singleFlight.execute("BTC|USD", () -> {
+            loads.incrementAndGet();
+            return upstream;
+        });
+        MonoProcessor<Integer> firstResult = first.toProcessor();
+        MonoProcessor<Integer> secondResult = second.toProcessor();
+        assertEquals(1, singleFlight.getInFlight());
+
+        upstream.onNext(42);
+
+        assertEquals(42, firstResult.block());
+        assertEquals(42, secondResult.block());
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.getCoalesced());
+        assertEquals(0, singleFlight.getInFlight());
+    }
+
+    /**
+     * Test a completed call is not reused.
+     */
+    @Test
+    void testExecute_NotReusedAfterCompletion() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, singleFlight.execute("BTC|USD", () -> Mono.just(loads.incrementAndGet())).block());
+        assertEquals(2, singleFlight.execute("BTC|USD", () -> Mono.just(loads.incrementAndGet())).block());
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+}
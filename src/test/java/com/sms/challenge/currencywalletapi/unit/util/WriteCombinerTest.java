@@ -0,0 +1,193 @@
+package com.sms.challenge.currencywalletapi.unit.util;
+
+import com.sms.challenge.currencywalletapi.util.WriteCombiner;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The type Write combiner test.
+ */
+class WriteCombinerTest {
+
+    /**
+     * Test the operations queued while a key waits for its drain are applied as one batch.
+     */
+    @Test
+    void testSubmit_Batched() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        List<List<Integer>> batches = new ArrayList<>();
+        WriteCombiner<Long, Integer> combiner = new WriteCombiner<>(tasks::add, 10, (key, operations) -> {
+            batches.add(new ArrayList<>(operations));
+            return null;
+        });
+
+        CompletableFuture<Void> first = combiner.submit(1L, 1);
+        CompletableFuture<Void> second = combiner.submit(1L, 2);
+        CompletableFuture<Void> third = combiner.submit(1L, 3);
+        assertEquals(1, tasks.size());
+        assertEquals(3, combiner.getQueued());
+
+        tasks.poll().run();
+
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3)), batches);
+        assertTrue(first.isDone() && second.isDone() && third.isDone());
+        assertEquals(0, combiner.getQueued());
+        assertTrue(tasks.isEmpty());
+    }
+
+    /**
+     * Test a batch is capped, and the rest of the queue is drained by the next task.
+     */
+    @Test
+    void testSubmit_MaxBatchSize() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        List<Integer> sizes = new ArrayList<>();
+        WriteCombiner<Long, Integer> combiner = new WriteCombiner<>(tasks::add, 2, (key, operations) -> {
+            sizes.add(operations.size());
+            return null;
+        });
+        for (int i = 0; i < 5; i++) {
+            combiner.submit(1L, i);
+        }
+
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+
+        assertEquals(Arrays.asList(2, 2, 1), sizes);
+    }
+
+    /**
+     * Test each caller gets its own result, and a failing handler fails the whole batch.
+     */
+    @Test
+    void testSubmit_Failures() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        WriteCombiner<Long, Integer> combiner = new WriteCombiner<>(tasks::add, 10, (key, operations) -> {
+            if (key == 2L) {
+                throw new IllegalStateException("Batch failed");
+            }
+            List<RuntimeException> failures = new ArrayList<>();
+            operations.forEach(operation -> failures.add(operation < 0 ? new IllegalArgumentException("Negative") : null));
+            return failures;
+        });
+
+        CompletableFuture<Void> valid = combiner.submit(1L, 1);
+        CompletableFuture<Void> invalid = combiner.submit(1L, -1);
+        CompletableFuture<Void> other = combiner.submit(2L, 1);
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+
+        assertDoesNotThrow(() -> valid.get());
+        ExecutionException exception = assertThrows(ExecutionException.class, invalid::get);
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        exception = assertThrows(ExecutionException.class, other::get);
+        assertEquals("Batch failed", exception.getCause().getMessage());
+    }
+
+    /**
+     * Test the queue of a key is dropped once drained, and a new one is started by the next submission.
+     */
+    @Test
+    void testSubmit_LaneDropped() {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        List<List<Integer>> batches = new ArrayList<>();
+        WriteCombiner<Long, Integer> combiner = new WriteCombiner<>(tasks::add, 10, (key, operations) -> {
+            batches.add(new ArrayList<>(operations));
+            return null;
+        });
+
+        combiner.submit(1L, 1);
+        combiner.submit(2L, 2);
+        assertEquals(2, this.lanes(combiner).size());
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+        assertTrue(this.lanes(combiner).isEmpty());
+
+        CompletableFuture<Void> next = combiner.submit(1L, 3);
+        assertEquals(1, this.lanes(combiner).size());
+        tasks.poll().run();
+        assertTrue(next.isDone());
+        assertEquals(Arrays.asList(Arrays.asList(1), Arrays.asList(2), Arrays.asList(3)), batches);
+        assertTrue(this.lanes(combiner).isEmpty());
+    }
+
+    /**
+     * Test submissions racing with the drop of an idle queue are all applied, one batch of a key at a time.
+     *
+     * @throws Exception the exception
+     */
+    @Test
+    void testSubmit_Concurrent() throws Exception {
+        int threadCount = 8;
+        int operationCount = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ExecutorService submitters = Executors.newFixedThreadPool(threadCount);
+        Map<Long, AtomicBoolean> running = new ConcurrentHashMap<>();
+        Map<Long, List<Integer>> applied = new ConcurrentHashMap<>();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        WriteCombiner<Long, Integer> combiner = new WriteCombiner<>(executor, 10, (key, operations) -> {
+            AtomicBoolean flag = running.computeIfAbsent(key, k -> new AtomicBoolean());
+            if (!flag.compareAndSet(false, true)) {
+                overlapped.set(true);
+            }
+            applied.computeIfAbsent(key, k -> new ArrayList<>()).addAll(operations);
+            flag.set(false);
+            return null;
+        });
+        try {
+            List<CompletableFuture<Void>> results = new ArrayList<>();
+            List<Future<List<CompletableFuture<Void>>>> futures = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                long key = t;
+                futures.add(submitters.submit(() -> {
+                    List<CompletableFuture<Void>> submitted = new ArrayList<>();
+                    for (int i = 0; i < operationCount; i++) {
+                        submitted.add(combiner.submit(key % 2, i));
+                        if (i % 100 == 0) {
+                            submitted.get(i).join();
+                        }
+                    }
+                    return submitted;
+                }));
+            }
+            for (Future<List<CompletableFuture<Void>>> future : futures) {
+                results.addAll(future.get());
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        } finally {
+            submitters.shutdown();
+            executor.shutdown();
+        }
+        // The lanes are dropped right after their results are completed
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertFalse(overlapped.get());
+        assertEquals(threadCount * operationCount, applied.values().stream().mapToInt(List::size).sum());
+        assertTrue(this.lanes(combiner).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, ?> lanes(WriteCombiner<Long, Integer> combiner) {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(combiner, "lanes");
+    }
+}